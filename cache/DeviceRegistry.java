@@ -0,0 +1,240 @@
+package com.iot.platform.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.iot.platform.entity.Device;
+import com.iot.platform.executor.IngestExecution;
+import com.iot.platform.mapper.DeviceMapper;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 设备编码到设备信息的进程内注册表
+ * <p>
+ * 查询顺序：进程内缓存 → Redis（device缓存）→ MySQL。同一设备编码的并发未命中只查询一次，
+ * 不存在的编码在本节点短暂缓存。设备增删改在事务提交后失效、在线状态回写时直接失效，
+ * 并通过Redis频道广播给其他节点。最后上报时间变化太频繁，只就地更新本节点的缓存副本，
+ * 其他节点缓存中的该字段可能滞后，最长为缓存有效期。启动后可一次性预加载全部设备。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceRegistry implements MessageListener {
+
+    private static final String CACHE_NAME = "device";
+    private static final String INVALIDATE_CHANNEL = "iot:device:invalidate";
+    private static final String ALL = "*";
+    private static final String CODE_SEPARATOR = "\n";
+
+    private final DeviceMapper deviceMapper;
+    private final CacheManager cacheManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final IngestExecution ingestExecution;
+
+    @Value("${device.near-cache.max-size:100000}")
+    private int maxSize;
+
+    @Value("${device.near-cache.ttl:600000}")
+    private long ttlMillis;
+
+    @Value("${device.near-cache.negative-ttl:5000}")
+    private long negativeTtlMillis;
+
+    @Value("${device.near-cache.preload:true}")
+    private boolean preload;
+
+    /** 本节点标识，忽略自己发出的失效广播 */
+    private final String nodeId = UUID.randomUUID().toString();
+    private NearCache<String, Device> byCode;
+
+    @PostConstruct
+    public void init() {
+        byCode = new NearCache<>(maxSize, ttlMillis, negativeTtlMillis);
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 启动完成后预加载全部设备
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (!preload) {
+            return;
+        }
+        try {
+            List<Device> devices = deviceMapper.selectList(null);
+            int loaded = 0;
+            for (Device device : devices) {
+                if (device.getDeviceCode() != null && loaded++ < maxSize) {
+                    byCode.put(device.getDeviceCode(), device);
+                }
+            }
+            log.info("Preloaded {} of {} devices into near cache", Math.min(loaded, maxSize), devices.size());
+        } catch (Exception e) {
+            log.warn("Device near cache preload failed, devices will be loaded on demand", e);
+        }
+    }
+
+    public Device getByCode(String deviceCode) {
+        if (deviceCode == null) {
+            return null;
+        }
+        return byCode.get(deviceCode, this::load);
+    }
+
+    public Integer getIdByCode(String deviceCode) {
+        Device device = getByCode(deviceCode);
+        return device != null ? device.getId() : null;
+    }
+
+    private Device load(String deviceCode) {
+        String key = "code:" + deviceCode;
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            Device cached = ingestExecution.redis().call(() -> getCached(cache, key));
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Device device = ingestExecution.db().call(() -> deviceMapper.selectOne(
+                new LambdaQueryWrapper<Device>().eq(Device::getDeviceCode, deviceCode)));
+        if (device != null && cache != null) {
+            ingestExecution.redis().run(() -> cache.put(key, device));
+        }
+        return device;
+    }
+
+    private Device getCached(Cache cache, String key) {
+        try {
+            return cache.get(key, Device.class);
+        } catch (IllegalStateException e) {
+            // 旧版本以同一key缓存过设备ID，类型不符时丢弃
+            cache.evict(key);
+            return null;
+        }
+    }
+
+    /**
+     * 设备信息变更后调用：清除本地与Redis中的缓存并通知其他节点
+     *
+     * @param deviceCode 设备编码，为null时清除全部
+     */
+    public void invalidate(String deviceCode) {
+        // 先清Redis再清本地，否则本地未命中时可能从Redis读回旧值并缓存整个有效期
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null && deviceCode != null) {
+            cache.evict("code:" + deviceCode);
+        }
+        invalidateLocal(deviceCode);
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL,
+                    nodeId + "|" + (deviceCode == null ? ALL : deviceCode));
+        } catch (Exception e) {
+            log.warn("Failed to broadcast device cache invalidation for {}", deviceCode, e);
+        }
+    }
+
+    /**
+     * 批量失效，多个设备只广播一条消息
+     */
+    public void invalidate(Collection<String> deviceCodes) {
+        if (deviceCodes.isEmpty()) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        for (String deviceCode : deviceCodes) {
+            if (cache != null) {
+                cache.evict("code:" + deviceCode);
+            }
+            invalidateLocal(deviceCode);
+        }
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL,
+                    nodeId + "|" + String.join(CODE_SEPARATOR, deviceCodes));
+        } catch (Exception e) {
+            log.warn("Failed to broadcast device cache invalidation for {} devices", deviceCodes.size(), e);
+        }
+    }
+
+    /**
+     * 设备增删改时调用：在事务提交后清除按ID、按编码的缓存并广播，
+     * 避免提交前其他线程把旧值重新加载进缓存；不在事务中时立即清除
+     */
+    public void invalidateAfterCommit(Integer deviceId, Collection<String> deviceCodes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateChanged(deviceId, deviceCodes);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateChanged(deviceId, deviceCodes);
+            }
+        });
+    }
+
+    private void invalidateChanged(Integer deviceId, Collection<String> deviceCodes) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null && deviceId != null) {
+            cache.evict("id:" + deviceId);
+        }
+        invalidate(deviceCodes);
+    }
+
+    /**
+     * 就地更新本节点缓存副本的最后上报时间
+     */
+    public void touchLastSeen(String deviceCode, LocalDateTime lastSeen) {
+        Device device = byCode.peek(deviceCode);
+        if (device != null) {
+            device.setLastSeen(lastSeen);
+        }
+    }
+
+    private void invalidateLocal(String deviceCode) {
+        if (deviceCode == null || ALL.equals(deviceCode)) {
+            byCode.invalidateAll();
+        } else {
+            byCode.invalidate(deviceCode);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.startsWith(nodeId + "|")) {
+            return;
+        }
+        for (String deviceCode : body.substring(separator + 1).split(CODE_SEPARATOR)) {
+            invalidateLocal(deviceCode);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return byCode.getStats();
+    }
+}
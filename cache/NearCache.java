@@ -0,0 +1,242 @@
+package com.iot.platform.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 进程内有界缓存
+ * <p>
+ * 基于ConcurrentHashMap，读路径无锁；条目按写入时间过期，超出容量时抽样淘汰最久未访问的条目
+ * （近似LRU），不维护全局访问链表，避免热点读之间的竞争。
+ * 同一key的并发未命中只调用一次loader，其余调用等待其结果；loader返回null时按较短的有效期缓存未命中。
+ */
+public class NearCache<K, V> {
+
+    private static final int EVICTION_SAMPLES = 8;
+    /** 抽样起点的随机跳过上限，限制单次淘汰的遍历开销 */
+    private static final int MAX_EVICTION_SKIP = 1024;
+    /** 失效代数按key哈希分段，段数为2的幂 */
+    private static final int GENERATION_STRIPES = 64;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    /** 正在加载的key，失效时移除，使加载结果不再写入缓存 */
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    /** 各段的失效代数：失效先递增代数再删除条目，加载开始前记下代数，写入后代数变了就撤回 */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadWaits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public NearCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, 0);
+    }
+
+    /**
+     * @param negativeTtlMillis 未命中结果的缓存时间，0表示不缓存未命中
+     */
+    public NearCache(int maxSize, long ttlMillis, long negativeTtlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.negativeTtlNanos = negativeTtlMillis * 1_000_000L;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = lookup(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * 未命中时调用loader加载；同一key同时只有一个线程执行loader，
+     * 加载结果为null时按negativeTtl缓存，期间不再重复加载
+     */
+    public V get(K key, Function<K, V> loader) {
+        Entry<V> entry = lookup(key);
+        if (entry != null) {
+            return entry.value;
+        }
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            loadWaits.increment();
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        V value;
+        try {
+            value = loader.apply(key);
+            loads.increment();
+        } catch (RuntimeException | Error e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        // 加载期间被失效时不写入，避免把旧值放回缓存；写入与失效交错时以代数为准撤回
+        if (loading.remove(key, future) && generations.get(stripe) == generation) {
+            Entry<V> loaded = value != null
+                    ? new Entry<>(value, System.nanoTime(), ttlNanos)
+                    : negativeTtlNanos > 0 ? new Entry<>(null, System.nanoTime(), negativeTtlNanos) : null;
+            if (loaded != null) {
+                store(key, loaded);
+                if (generations.get(stripe) != generation) {
+                    entries.remove(key, loaded);
+                }
+            }
+        }
+        future.complete(value);
+        return value;
+    }
+
+    /**
+     * 只查看当前缓存的值，不计入命中统计、不刷新访问时间
+     */
+    public V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry == null || entry.isExpired(System.nanoTime()) ? null : entry.value;
+    }
+
+    public void put(K key, V value) {
+        store(key, new Entry<>(value, System.nanoTime(), ttlNanos));
+    }
+
+    public void invalidate(K key) {
+        generations.incrementAndGet(stripe(key));
+        loading.remove(key);
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        loading.clear();
+        entries.clear();
+    }
+
+    private static int stripe(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * 查找未过期的条目，包括缓存的未命中（value为null）
+     */
+    private Entry<V> lookup(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        long now = System.nanoTime();
+        if (entry.isExpired(now)) {
+            if (entries.remove(key, entry)) {
+                expirations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        entry.accessedAt = now;
+        if (entry.value == null) {
+            negativeHits.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    private void store(K key, Entry<V> entry) {
+        if (entries.put(key, entry) == null && entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 随机抽样若干条目，淘汰其中最久未访问的一个，直到回到容量以内
+     */
+    private void evict() {
+        while (entries.size() > maxSize) {
+            K victim = null;
+            long oldest = Long.MAX_VALUE;
+            int skip = ThreadLocalRandom.current().nextInt(Math.max(1, Math.min(entries.size() - EVICTION_SAMPLES, MAX_EVICTION_SKIP)));
+            Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+            for (int i = 0; i < skip && iterator.hasNext(); i++) {
+                iterator.next();
+            }
+            for (int i = 0; i < EVICTION_SAMPLES && iterator.hasNext(); i++) {
+                Map.Entry<K, Entry<V>> candidate = iterator.next();
+                if (candidate.getValue().accessedAt < oldest) {
+                    oldest = candidate.getValue().accessedAt;
+                    victim = candidate.getKey();
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            if (entries.remove(victim) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", total == 0 ? 0 : (double) hitCount / total);
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("loads", loads.sum());
+        stats.put("loadWaits", loadWaits.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long writtenAt;
+        final long ttlNanos;
+        volatile long accessedAt;
+
+        Entry(V value, long writtenAt, long ttlNanos) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+            this.ttlNanos = ttlNanos;
+            this.accessedAt = writtenAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - writtenAt > ttlNanos;
+        }
+    }
+}
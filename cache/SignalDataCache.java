@@ -2,57 +2,157 @@ package com.iot.platform.cache;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.OverflowPolicy;
+import com.iot.platform.enums.WaitStrategy;
+import com.iot.platform.wal.SensorDataWal;
 
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * 传感器数据写入缓冲
+ * <p>
+ * 基于预分配的有界环形缓冲区，多个接入线程并发写入，由专用消费线程批量取出。
+ */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class SignalDataCache {
-    
+
+    private final SensorDataWal sensorDataWal;
+
     @Value("${batch.processing.size:100}")
     private int batchSize;
-    
-    private final ConcurrentLinkedQueue<SensorData> cache = new ConcurrentLinkedQueue<>();
-    private final Lock lock = new ReentrantLock();
-    
-    public void add(SensorData data) {
-        cache.offer(data);
-    }
-    
-    public void addAll(List<SensorData> dataList) {
-        cache.addAll(dataList);
-    }
-    
-    public List<SensorData> getBatchForProcessing() {
-        List<SensorData> batch = new ArrayList<>();
-        if (lock.tryLock()) {
-            try {
-                while (batch.size() < batchSize && !cache.isEmpty()) {
-                    SensorData data = cache.poll();
-                    if (data != null) {
-                        batch.add(data);
-                    }
+
+    @Value("${batch.ring-buffer.capacity:65536}")
+    private int capacity;
+
+    @Value("${batch.ring-buffer.wait-strategy:SLEEPING}")
+    private WaitStrategy waitStrategy;
+
+    @Value("${batch.ring-buffer.overflow-policy:BLOCK}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${batch.ring-buffer.offer-timeout:1000}")
+    private long offerTimeoutMillis;
+
+    private BoundedRingBuffer<SensorData> ringBuffer;
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        ringBuffer = new BoundedRingBuffer<>(capacity);
+        log.info("Signal data ring buffer initialized: capacity={}, waitStrategy={}, overflowPolicy={}",
+                ringBuffer.capacity(), waitStrategy, overflowPolicy);
+    }
+
+    /**
+     * 写入一条数据（先追加WAL），缓冲区满时按背压策略处理
+     *
+     * @return 是否写入成功
+     * @throws java.io.UncheckedIOException WAL追加失败，数据未进入缓冲
+     */
+    public boolean add(SensorData data) {
+        sensorDataWal.append(data);
+        if (ringBuffer.offer(data)) {
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+            int attempt = 0;
+            while (System.nanoTime() < deadline) {
+                waitStrategy.idle(attempt++);
+                if (ringBuffer.offer(data)) {
+                    return true;
                 }
-            } finally {
-                lock.unlock();
             }
         }
+        // 主动丢弃的数据不再等待落库，直接确认WAL
+        sensorDataWal.acknowledge(List.of(data));
+        long dropped = droppedCount.incrementAndGet();
+        if ((dropped & 1023) == 1) {
+            log.warn("Signal data ring buffer full, dropped {} records so far", dropped);
+        }
+        return false;
+    }
+
+    /**
+     * 批量写入，缓冲区满被丢弃的记录已确认WAL，调用方需据返回值让上游重投
+     *
+     * @return 被拒绝的条数
+     */
+    public int addAll(List<SensorData> dataList) {
+        int rejected = 0;
+        for (SensorData data : dataList) {
+            if (!add(data)) {
+                rejected++;
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * 非阻塞地取出一批数据（最多batchSize条）
+     */
+    public List<SensorData> getBatchForProcessing() {
+        List<SensorData> batch = new ArrayList<>(Math.min(batchSize, ringBuffer.size()));
+        ringBuffer.drainTo(batch, batchSize);
         return batch;
     }
-    
+
+    /**
+     * 消费线程使用：等待直到攒满一批或超过最长等待时间，再取出一批数据
+     *
+     * @param lingerMillis 最长等待时间（毫秒）
+     */
+    public List<SensorData> awaitBatch(long lingerMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        int attempt = 0;
+        while (ringBuffer.size() < batchSize && System.nanoTime() < deadline) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            waitStrategy.idle(attempt++);
+        }
+        return getBatchForProcessing();
+    }
+
+    /**
+     * 清空缓冲区，被清掉的数据同时确认WAL
+     */
+    public void clear() {
+        List<SensorData> batch = getBatchForProcessing();
+        while (!batch.isEmpty()) {
+            sensorDataWal.acknowledge(batch);
+            batch = getBatchForProcessing();
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     public int size() {
-        return cache.size();
+        return ringBuffer.size();
+    }
+
+    public int capacity() {
+        return ringBuffer.capacity();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
     }
-    
+
     public boolean shouldProcess() {
-        return cache.size() >= batchSize;
+        return ringBuffer.size() >= batchSize;
     }
-} 
\ No newline at end of file
+}
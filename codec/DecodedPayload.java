@@ -0,0 +1,128 @@
+package com.iot.platform.codec;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import com.iot.platform.enums.TopicType;
+
+/**
+ * 解码结果，按线程复用
+ * <p>
+ * 采样点以并列数组保存，容量按需扩大后不再收缩；结果只在下一次解码之前有效，
+ * 调用方需在同一线程内消费完毕。
+ */
+public final class DecodedPayload {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private TopicType topicType = TopicType.UNKNOWN;
+    private String deviceCode;
+    private boolean hasItems;
+    private String signalData;
+    private double samplingRate;
+
+    private int sampleCount;
+    private String[] channelIds = new String[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    private String[] units = new String[INITIAL_CAPACITY];
+    private String[] types = new String[INITIAL_CAPACITY];
+    private LocalDateTime[] collectTimes = new LocalDateTime[INITIAL_CAPACITY];
+
+    void reset(TopicType topicType) {
+        this.topicType = topicType;
+        this.deviceCode = null;
+        this.hasItems = false;
+        this.signalData = null;
+        this.samplingRate = 0;
+        // 释放上一条消息的引用，避免大报文被线程长期持有
+        Arrays.fill(channelIds, 0, sampleCount, null);
+        Arrays.fill(units, 0, sampleCount, null);
+        Arrays.fill(types, 0, sampleCount, null);
+        Arrays.fill(collectTimes, 0, sampleCount, null);
+        this.sampleCount = 0;
+    }
+
+    /**
+     * 追加一个采样点，返回其下标
+     */
+    int addSample(String channelId, double value) {
+        if (sampleCount == values.length) {
+            int capacity = values.length << 1;
+            channelIds = Arrays.copyOf(channelIds, capacity);
+            values = Arrays.copyOf(values, capacity);
+            units = Arrays.copyOf(units, capacity);
+            types = Arrays.copyOf(types, capacity);
+            collectTimes = Arrays.copyOf(collectTimes, capacity);
+        }
+        int index = sampleCount++;
+        channelIds[index] = channelId;
+        values[index] = value;
+        return index;
+    }
+
+    void setSampleMeta(int index, String unit, String type, LocalDateTime collectTime) {
+        units[index] = unit;
+        types[index] = type;
+        collectTimes[index] = collectTime;
+    }
+
+    void setDeviceCode(String deviceCode) {
+        this.deviceCode = deviceCode;
+    }
+
+    void setHasItems(boolean hasItems) {
+        this.hasItems = hasItems;
+    }
+
+    void setSignalData(String signalData) {
+        this.signalData = signalData;
+    }
+
+    void setSamplingRate(double samplingRate) {
+        this.samplingRate = samplingRate;
+    }
+
+    public TopicType getTopicType() {
+        return topicType;
+    }
+
+    public String getDeviceCode() {
+        return deviceCode;
+    }
+
+    public boolean hasItems() {
+        return hasItems;
+    }
+
+    public String getSignalData() {
+        return signalData;
+    }
+
+    public double getSamplingRate() {
+        return samplingRate;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public String getChannelId(int index) {
+        return channelIds[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    public String getUnit(int index) {
+        return units[index];
+    }
+
+    public String getType(int index) {
+        return types[index];
+    }
+
+    public LocalDateTime getCollectTime(int index) {
+        return collectTimes[index];
+    }
+}
@@ -0,0 +1,373 @@
+package com.iot.platform.codec;
+
+import java.time.LocalDateTime;
+
+/**
+ * 面向固定报文结构的流式JSON游标
+ * <p>
+ * 直接在原始字符串上按位置扫描，键名就地比较、数字就地解析，
+ * 不构建DOM；重复出现的短字符串（通道名、单位等）通过小型字符串池复用。
+ * 非线程安全，由调用方按线程持有。
+ */
+final class JsonCursor {
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int POOL_SIZE = 256;
+    private static final int POOL_MAX_LENGTH = 32;
+
+    private final String[] stringPool = new String[POOL_SIZE];
+    private final StringBuilder scratch = new StringBuilder(64);
+
+    private String json;
+    private int pos;
+    private int length;
+
+    private int keyStart;
+    private int keyEnd;
+    private String escapedKey;
+
+    void reset(String json) {
+        this.json = json;
+        this.pos = 0;
+        this.length = json.length();
+    }
+
+    void beginObject() {
+        expect('{');
+    }
+
+    /**
+     * 移动到对象的下一个字段，读取键名；对象结束时返回false
+     */
+    boolean nextField() {
+        skipWhitespace();
+        char c = current();
+        if (c == '}') {
+            pos++;
+            return false;
+        }
+        if (c == ',') {
+            pos++;
+            skipWhitespace();
+        }
+        expect('"');
+        keyStart = pos;
+        escapedKey = null;
+        while (pos < length) {
+            char k = json.charAt(pos);
+            if (k == '"') {
+                keyEnd = pos++;
+                expect(':');
+                return true;
+            }
+            if (k == '\\') {
+                pos = keyStart - 1;
+                escapedKey = readString();
+                keyEnd = keyStart + escapedKey.length();
+                expect(':');
+                return true;
+            }
+            pos++;
+        }
+        throw error("unterminated key");
+    }
+
+    boolean keyEquals(String key) {
+        if (escapedKey != null) {
+            return escapedKey.equals(key);
+        }
+        return keyEnd - keyStart == key.length() && json.regionMatches(keyStart, key, 0, key.length());
+    }
+
+    String currentKey() {
+        return escapedKey != null ? escapedKey : pooled(keyStart, keyEnd);
+    }
+
+    void beginArray() {
+        expect('[');
+    }
+
+    /**
+     * 移动到数组的下一个元素；数组结束时返回false
+     */
+    boolean nextElement() {
+        skipWhitespace();
+        char c = current();
+        if (c == ']') {
+            pos++;
+            return false;
+        }
+        if (c == ',') {
+            pos++;
+        }
+        return true;
+    }
+
+    char peek() {
+        skipWhitespace();
+        return current();
+    }
+
+    /**
+     * 读取字符串值，null字面量返回null；数字等非字符串值按原文返回
+     */
+    String readString() {
+        skipWhitespace();
+        char c = current();
+        if (c == 'n') {
+            skipLiteral();
+            return null;
+        }
+        if (c != '"') {
+            int start = pos;
+            skipLiteral();
+            return pooled(start, pos);
+        }
+        int start = ++pos;
+        while (pos < length) {
+            char ch = json.charAt(pos);
+            if (ch == '"') {
+                return pooled(start, pos++);
+            }
+            if (ch == '\\') {
+                return readEscapedString(start);
+            }
+            pos++;
+        }
+        throw error("unterminated string");
+    }
+
+    private String readEscapedString(int start) {
+        scratch.setLength(0);
+        scratch.append(json, start, pos);
+        while (pos < length) {
+            char ch = json.charAt(pos++);
+            if (ch == '"') {
+                return scratch.toString();
+            }
+            if (ch != '\\') {
+                scratch.append(ch);
+                continue;
+            }
+            char esc = json.charAt(pos++);
+            switch (esc) {
+                case 'n': scratch.append('\n'); break;
+                case 't': scratch.append('\t'); break;
+                case 'r': scratch.append('\r'); break;
+                case 'b': scratch.append('\b'); break;
+                case 'f': scratch.append('\f'); break;
+                case 'u':
+                    scratch.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                    pos += 4;
+                    break;
+                default: scratch.append(esc);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    /**
+     * 读取数值；null返回0，带引号的数字按数字解析，无法解析时返回NaN
+     */
+    double readDouble() {
+        skipWhitespace();
+        char c = current();
+        if (c == 'n') {
+            skipLiteral();
+            return 0;
+        }
+        if (c == '"') {
+            int start = ++pos;
+            while (pos < length && json.charAt(pos) != '"') {
+                pos++;
+            }
+            int end = pos++;
+            return parseDouble(start, end);
+        }
+        if (c == '{' || c == '[') {
+            skipValue();
+            return Double.NaN;
+        }
+        int start = pos;
+        skipLiteral();
+        return parseDouble(start, pos);
+    }
+
+    /**
+     * 读取时间戳：字符串按ISO-8601解析，数字按epoch解析
+     */
+    LocalDateTime readTimestamp() {
+        skipWhitespace();
+        char c = current();
+        if (c == 'n') {
+            skipLiteral();
+            return null;
+        }
+        if (c == '"') {
+            int start = ++pos;
+            while (pos < length && json.charAt(pos) != '"') {
+                pos++;
+            }
+            int end = pos++;
+            return TimestampParser.parseIso(json, start, end);
+        }
+        int start = pos;
+        skipLiteral();
+        return TimestampParser.parseEpoch(json, start, pos);
+    }
+
+    /**
+     * 跳过任意值（对象、数组、字符串、数字或字面量）
+     */
+    void skipValue() {
+        skipWhitespace();
+        char c = current();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            while (pos < length) {
+                char ch = json.charAt(pos);
+                if (ch == '"') {
+                    skipString();
+                    continue;
+                }
+                pos++;
+                if (ch == '{' || ch == '[') {
+                    depth++;
+                } else if (ch == '}' || ch == ']') {
+                    if (--depth == 0) {
+                        return;
+                    }
+                }
+            }
+            throw error("unterminated container");
+        } else {
+            skipLiteral();
+        }
+    }
+
+    private void skipString() {
+        pos++;
+        while (pos < length) {
+            char ch = json.charAt(pos++);
+            if (ch == '\\') {
+                pos++;
+            } else if (ch == '"') {
+                return;
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private void skipLiteral() {
+        while (pos < length) {
+            char ch = json.charAt(pos);
+            if (ch == ',' || ch == '}' || ch == ']' || ch <= ' ') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private double parseDouble(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (json.charAt(i) == '-' || json.charAt(i) == '+')) {
+            negative = json.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDot = false;
+        for (; i < end; i++) {
+            char ch = json.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (ch - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    if (seenDot) {
+                        scale++;
+                    }
+                } else {
+                    return slowParse(start, end);
+                }
+            } else if (ch == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                // 指数或其他格式走JDK解析
+                return slowParse(start, end);
+            }
+        }
+        if (i == start || (digits == 0 && mantissa == 0 && end - start == (negative ? 1 : 0))) {
+            return Double.NaN;
+        }
+        // 15位以内有效数字且缩放不超过10^22时，一次除法即可得到正确舍入的结果
+        if (digits <= 15 && scale < POW10.length) {
+            double value = mantissa / POW10[scale];
+            return negative ? -value : value;
+        }
+        return slowParse(start, end);
+    }
+
+    private double slowParse(int start, int end) {
+        try {
+            return Double.parseDouble(json.substring(start, end));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * 短字符串经字符串池复用，避免同名通道/单位每次都分配新对象
+     */
+    private String pooled(int start, int end) {
+        int len = end - start;
+        if (len > POOL_MAX_LENGTH) {
+            return json.substring(start, end);
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + json.charAt(i);
+        }
+        int index = (hash ^ (hash >>> 16)) & (POOL_SIZE - 1);
+        String candidate = stringPool[index];
+        if (candidate != null && candidate.length() == len && json.regionMatches(start, candidate, 0, len)) {
+            return candidate;
+        }
+        String value = json.substring(start, end);
+        stringPool[index] = value;
+        return value;
+    }
+
+    private void expect(char expected) {
+        skipWhitespace();
+        if (pos >= length || json.charAt(pos) != expected) {
+            throw error("expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private char current() {
+        if (pos >= length) {
+            throw error("unexpected end of input");
+        }
+        return json.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < length && json.charAt(pos) <= ' ') {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Malformed payload at " + pos + ": " + message);
+    }
+}
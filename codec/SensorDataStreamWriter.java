@@ -0,0 +1,102 @@
+package com.iot.platform.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.StreamFormat;
+
+/**
+ * 把逐行读出的传感器数据写到HTTP响应流，内存占用与数据量无关
+ * <p>
+ * NDJSON每flushRows行刷新一次；BINARY每攒满chunkRows行编码成一帧写出。
+ * 写出失败（通常是客户端断开）时抛出UncheckedIOException，用于中止数据库游标。
+ */
+public final class SensorDataStreamWriter {
+
+    private final OutputStream out;
+    private final StreamFormat format;
+    private final int flushRows;
+    private final int chunkRows;
+
+    private JsonGenerator generator;
+    private ObjectWriter rowWriter;
+    private List<SensorData> chunk;
+    private long rows;
+
+    public SensorDataStreamWriter(OutputStream out, StreamFormat format, ObjectMapper objectMapper,
+                                  int flushRows, int chunkRows) throws IOException {
+        this.out = out;
+        this.format = format;
+        this.flushRows = flushRows;
+        this.chunkRows = chunkRows;
+        if (format == StreamFormat.NDJSON) {
+            generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // 行分隔由换行符负责，去掉Jackson默认插在根值之间的空格
+            generator.setRootValueSeparator(null);
+            rowWriter = objectMapper.writerFor(SensorData.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        } else {
+            chunk = new ArrayList<>(chunkRows);
+        }
+    }
+
+    public void write(SensorData data) {
+        try {
+            if (format == StreamFormat.NDJSON) {
+                rowWriter.writeValue(generator, data);
+                generator.writeRaw('\n');
+                if (++rows % flushRows == 0) {
+                    generator.flush();
+                }
+            } else {
+                chunk.add(data);
+                rows++;
+                // 帧不带设备ID，一帧只包含一台设备的数据
+                if (chunk.size() >= chunkRows) {
+                    writeFrame();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 写出剩余数据；BINARY格式下切换设备前也需调用
+     */
+    public void finish() throws IOException {
+        if (format == StreamFormat.NDJSON) {
+            generator.flush();
+        } else {
+            writeFrame();
+            out.flush();
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    private void writeFrame() throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        byte[] frame = SensorFrameEncoder.encode(chunk, false);
+        int length = frame.length;
+        out.write(length & 0xFF);
+        out.write((length >>> 8) & 0xFF);
+        out.write((length >>> 16) & 0xFF);
+        out.write((length >>> 24) & 0xFF);
+        out.write(frame);
+        chunk.clear();
+    }
+}
@@ -0,0 +1,179 @@
+package com.iot.platform.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.iot.platform.entity.SensorData;
+
+/**
+ * 实时数据二进制帧编码（订阅 /topic/device/{code}/data.bin 时使用）
+ * <p>
+ * 一帧携带一台设备若干通道的一批样本，通道信息只在通道头中出现一次，时间戳按差值变长编码，
+ * 数值为float32或16位量化值，每个点约3~6字节，JSON格式约170字节。所有多字节字段均为小端序：
+ * <pre>
+ * 帧头    u8 magic=0x53  u8 version=1  u16 通道块数  i64 基准时间(epoch毫秒)
+ * 通道块  u8 通道ID长度  UTF-8通道ID  u8 单位长度  UTF-8单位  u8 数值编码(0=float32, 1=量化u16)  u16 点数
+ *         [编码为1时: f64 offset  f64 scale，数值 = offset + q * scale，q=0xFFFF表示空值]
+ *         点数个 时间差(毫秒，ZigZag+LEB128变长整数，第一个点相对基准时间，其余相对前一个点)
+ *         点数个 数值(f32，空值为NaN；或u16)
+ * </pre>
+ * 字符串超过255字节时在UTF-8字符边界处截断。浏览器端（@stomp/stompjs，经 /ws/websocket 原生连接）解码：
+ * <pre>
+ * client.subscribe('/topic/device/' + code + '/data.bin', message => {
+ *   const channels = decodeSensorFrame(message.binaryBody);
+ * });
+ *
+ * function decodeSensorFrame(bytes) {   // bytes: Uint8Array
+ *   const v = new DataView(bytes.buffer, bytes.byteOffset, bytes.byteLength), td = new TextDecoder();
+ *   if (v.getUint8(0) !== 0x53 || v.getUint8(1) !== 1) throw new Error('unsupported frame');
+ *   const blocks = v.getUint16(2, true), base = Number(v.getBigInt64(4, true));
+ *   let p = 12;
+ *   const str = () => { const n = v.getUint8(p++); const s = td.decode(bytes.subarray(p, p + n)); p += n; return s; };
+ *   const varint = () => { let r = 0, m = 1, b; do { b = v.getUint8(p++); r += (b &amp; 0x7f) * m; m *= 128; } while (b &amp; 0x80);
+ *                          return r % 2 ? -(r + 1) / 2 : r / 2; };
+ *   const channels = [];
+ *   for (let c = 0; c &lt; blocks; c++) {
+ *     const channelId = str(), unit = str(), enc = v.getUint8(p++), n = v.getUint16(p, true); p += 2;
+ *     let offset = 0, scale = 0;
+ *     if (enc === 1) { offset = v.getFloat64(p, true); scale = v.getFloat64(p + 8, true); p += 16; }
+ *     const times = new Float64Array(n), values = new Float64Array(n);
+ *     for (let i = 0, t = base; i &lt; n; i++) { t += varint(); times[i] = t; }
+ *     for (let i = 0; i &lt; n; i++) {
+ *       if (enc === 1) { const q = v.getUint16(p, true); p += 2; values[i] = q === 0xffff ? NaN : offset + q * scale; }
+ *       else { values[i] = v.getFloat32(p, true); p += 4; }
+ *     }
+ *     channels.push({ channelId, unit, times, values });
+ *   }
+ *   return channels;
+ * }
+ * </pre>
+ * 时间为采集时间（东八区）对应的epoch毫秒，同一通道可能出现在多个通道块中。
+ */
+public final class SensorFrameEncoder {
+
+    public static final int MAGIC = 0x53;
+    public static final int VERSION = 1;
+    public static final int ENCODING_FLOAT32 = 0;
+    public static final int ENCODING_QUANTIZED16 = 1;
+
+    private static final int MAX_POINTS_PER_BLOCK = 0xFFFF;
+    private static final int QUANTIZED_NULL = 0xFFFF;
+    private static final int QUANTIZED_MAX = 0xFFFE;
+
+    private SensorFrameEncoder() {
+    }
+
+    /**
+     * 编码一帧
+     *
+     * @param samples  一台设备的样本，同一通道的样本按时间顺序排列
+     * @param quantize 是否使用16位量化数值
+     */
+    public static byte[] encode(List<SensorData> samples, boolean quantize) {
+        Map<String, List<SensorData>> channels = new LinkedHashMap<>();
+        for (SensorData sample : samples) {
+            channels.computeIfAbsent(sample.getChannelId() == null ? "" : sample.getChannelId(),
+                    k -> new ArrayList<>()).add(sample);
+        }
+        long baseTime = samples.isEmpty() ? 0 : epochMillis(samples.get(0), 0);
+
+        // 最坏情况：每点10字节时间差 + 4字节数值，每块带两段最长255字节的字符串
+        int blocks = 0;
+        int capacity = 12;
+        for (List<SensorData> points : channels.values()) {
+            int channelBlocks = (points.size() + MAX_POINTS_PER_BLOCK - 1) / MAX_POINTS_PER_BLOCK;
+            blocks += channelBlocks;
+            capacity += channelBlocks * (2 + 255 * 2 + 1 + 2 + 16) + points.size() * 14;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) MAGIC).put((byte) VERSION).putShort((short) blocks).putLong(baseTime);
+        for (Map.Entry<String, List<SensorData>> entry : channels.entrySet()) {
+            List<SensorData> points = entry.getValue();
+            for (int from = 0; from < points.size(); from += MAX_POINTS_PER_BLOCK) {
+                List<SensorData> block = points.subList(from, Math.min(from + MAX_POINTS_PER_BLOCK, points.size()));
+                writeBlock(buffer, entry.getKey(), block, baseTime, quantize);
+            }
+        }
+        byte[] frame = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(frame);
+        return frame;
+    }
+
+    private static void writeBlock(ByteBuffer buffer, String channelId, List<SensorData> points,
+                                   long baseTime, boolean quantize) {
+        putShortString(buffer, channelId);
+        putShortString(buffer, points.get(0).getDataUnit());
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        if (quantize) {
+            for (SensorData point : points) {
+                Double value = point.getDataValue();
+                if (value != null && !value.isNaN()) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+        }
+        boolean quantized = quantize && min <= max && !Double.isInfinite(max - min);
+        buffer.put((byte) (quantized ? ENCODING_QUANTIZED16 : ENCODING_FLOAT32));
+        buffer.putShort((short) points.size());
+        double scale = 0;
+        if (quantized) {
+            scale = max > min ? (max - min) / QUANTIZED_MAX : 0;
+            buffer.putDouble(min).putDouble(scale);
+        }
+
+        long previous = baseTime;
+        for (SensorData point : points) {
+            long time = epochMillis(point, previous);
+            putVarLong(buffer, time - previous);
+            previous = time;
+        }
+        for (SensorData point : points) {
+            Double value = point.getDataValue();
+            if (!quantized) {
+                buffer.putFloat(value == null ? Float.NaN : value.floatValue());
+            } else if (value == null || value.isNaN()) {
+                buffer.putShort((short) QUANTIZED_NULL);
+            } else {
+                long q = scale == 0 ? 0 : Math.round((value - min) / scale);
+                buffer.putShort((short) Math.min(q, QUANTIZED_MAX));
+            }
+        }
+    }
+
+    private static long epochMillis(SensorData point, long fallback) {
+        LocalDateTime time = point.getCollectTime();
+        return time == null ? fallback : time.toInstant(TimestampParser.TARGET_OFFSET).toEpochMilli();
+    }
+
+    private static void putShortString(ByteBuffer buffer, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 255);
+        // 截断位置落在多字节字符中间（下一字节是续字节10xxxxxx）时回退到该字符开头
+        while (length > 0 && length < bytes.length && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.put((byte) length).put(bytes, 0, length);
+    }
+
+    /**
+     * ZigZag + LEB128，小的正负差值都只占1~2字节
+     */
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.put((byte) zigzag);
+    }
+}
@@ -0,0 +1,169 @@
+package com.iot.platform.codec;
+
+import java.time.LocalDateTime;
+
+import org.springframework.stereotype.Component;
+
+import com.iot.platform.enums.TopicType;
+
+/**
+ * 设备上行报文的专用流式解码器
+ * <p>
+ * 只识别 /thing/event/property/post 与 /user/signal 两种报文中用到的字段，其余字段直接跳过；
+ * 字段顺序不限。游标与解码结果按线程复用，解码过程不构建JSON对象树。
+ */
+@Component
+public class SensorPayloadDecoder {
+
+    private static final String SIGNAL_DATA = "signal_data";
+    private static final String SAMPLING_RATE = "sampling_rate";
+
+    private final ThreadLocal<JsonCursor> cursors = ThreadLocal.withInitial(JsonCursor::new);
+    private final ThreadLocal<DecodedPayload> payloads = ThreadLocal.withInitial(DecodedPayload::new);
+
+    /**
+     * 解码一条报文；返回的结果在当前线程下一次调用前有效
+     *
+     * @throws IllegalArgumentException 报文格式错误
+     */
+    public DecodedPayload decode(TopicType topicType, String content) {
+        DecodedPayload payload = payloads.get();
+        payload.reset(topicType);
+        JsonCursor cursor = cursors.get();
+        cursor.reset(content);
+        switch (topicType) {
+            case PROPERTY_POST:
+                decodePropertyPost(cursor, payload);
+                break;
+            case USER_SIGNAL:
+                decodeUserSignal(cursor, payload);
+                break;
+            default:
+                break;
+        }
+        return payload;
+    }
+
+    /**
+     * {"deviceName":"...","items":{"ch1":{"value":1.2,"time":...},"signal_data":{"value":"csv"},...}}
+     */
+    private void decodePropertyPost(JsonCursor cursor, DecodedPayload payload) {
+        cursor.beginObject();
+        while (cursor.nextField()) {
+            if (cursor.keyEquals("deviceName")) {
+                payload.setDeviceCode(cursor.readString());
+            } else if (cursor.keyEquals("items") && cursor.peek() == '{') {
+                payload.setHasItems(true);
+                decodeItems(cursor, payload);
+            } else {
+                cursor.skipValue();
+            }
+        }
+    }
+
+    private void decodeItems(JsonCursor cursor, DecodedPayload payload) {
+        cursor.beginObject();
+        while (cursor.nextField()) {
+            if (cursor.keyEquals(SIGNAL_DATA)) {
+                payload.setSignalData(readItemString(cursor));
+            } else if (cursor.keyEquals(SAMPLING_RATE)) {
+                payload.setSamplingRate(readItemDouble(cursor));
+            } else {
+                String channelId = cursor.currentKey();
+                double value = readItemDouble(cursor);
+                if (!Double.isNaN(value)) {
+                    payload.addSample(channelId, value);
+                }
+            }
+        }
+    }
+
+    private String readItemString(JsonCursor cursor) {
+        if (cursor.peek() != '{') {
+            return cursor.readString();
+        }
+        String value = null;
+        cursor.beginObject();
+        while (cursor.nextField()) {
+            if (cursor.keyEquals("value")) {
+                value = cursor.readString();
+            } else {
+                cursor.skipValue();
+            }
+        }
+        return value;
+    }
+
+    private double readItemDouble(JsonCursor cursor) {
+        if (cursor.peek() != '{') {
+            return cursor.readDouble();
+        }
+        double value = 0;
+        cursor.beginObject();
+        while (cursor.nextField()) {
+            if (cursor.keyEquals("value")) {
+                value = cursor.readDouble();
+            } else {
+                cursor.skipValue();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * {"deviceCode":"...","sensorData":[{"channelId":"...","value":1.2,"unit":"mV","type":"...","timestamp":"..."}]}
+     */
+    private void decodeUserSignal(JsonCursor cursor, DecodedPayload payload) {
+        String deviceCode = null;
+        String legacyDeviceCode = null;
+        cursor.beginObject();
+        while (cursor.nextField()) {
+            if (cursor.keyEquals("deviceCode")) {
+                deviceCode = cursor.readString();
+            } else if (cursor.keyEquals("device_code")) {
+                legacyDeviceCode = cursor.readString();
+            } else if (cursor.keyEquals("sensorData") && cursor.peek() == '[') {
+                decodeSensorDataArray(cursor, payload);
+            } else {
+                cursor.skipValue();
+            }
+        }
+        payload.setDeviceCode(deviceCode != null ? deviceCode : legacyDeviceCode);
+    }
+
+    private void decodeSensorDataArray(JsonCursor cursor, DecodedPayload payload) {
+        cursor.beginArray();
+        while (cursor.nextElement()) {
+            if (cursor.peek() != '{') {
+                cursor.skipValue();
+                continue;
+            }
+            String channelId = null;
+            double value = 0;
+            String unit = null;
+            String type = null;
+            LocalDateTime collectTime = null;
+            cursor.beginObject();
+            while (cursor.nextField()) {
+                if (cursor.keyEquals("channelId")) {
+                    channelId = cursor.readString();
+                } else if (cursor.keyEquals("value")) {
+                    value = cursor.readDouble();
+                } else if (cursor.keyEquals("unit")) {
+                    unit = cursor.readString();
+                } else if (cursor.keyEquals("type")) {
+                    type = cursor.readString();
+                } else if (cursor.keyEquals("timestamp")) {
+                    collectTime = cursor.readTimestamp();
+                } else {
+                    cursor.skipValue();
+                }
+            }
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            int index = payload.addSample(channelId, value);
+            payload.setSampleMeta(index, unit, type, collectTime);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.iot.platform.codec;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.OffsetDateTime;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 设备时间戳解析
+ * <p>
+ * 支持 yyyy-MM-ddTHH:mm:ss[.SSS...][Z|±HH:mm] 与 epoch 秒/毫秒，直接按字符位置解析，
+ * 结果统一换算为东八区本地时间；未带时区的ISO时间按UTC处理，与原有 plusHours(8) 行为一致。
+ */
+public final class TimestampParser {
+
+    public static final ZoneOffset TARGET_OFFSET = ZoneOffset.ofHours(8);
+
+    /**
+     * 小于该值的epoch按秒处理，否则按毫秒处理
+     */
+    private static final long EPOCH_MILLIS_THRESHOLD = 100_000_000_000L;
+
+    private TimestampParser() {
+    }
+
+    public static LocalDateTime parse(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return null;
+        }
+        if (isAllDigits(text)) {
+            return parseEpoch(text, 0, text.length());
+        }
+        return parseIso(text, 0, text.length());
+    }
+
+    /**
+     * 解析ISO-8601时间，格式不符合快速路径时回退到JDK解析
+     */
+    public static LocalDateTime parseIso(CharSequence s, int start, int end) {
+        int len = end - start;
+        if (len < 19 || s.charAt(start + 4) != '-' || s.charAt(start + 7) != '-'
+                || (s.charAt(start + 10) != 'T' && s.charAt(start + 10) != ' ')
+                || s.charAt(start + 13) != ':' || s.charAt(start + 16) != ':') {
+            return slowParse(s, start, end);
+        }
+        int year = digits(s, start, 4);
+        int month = digits(s, start + 5, 2);
+        int day = digits(s, start + 8, 2);
+        int hour = digits(s, start + 11, 2);
+        int minute = digits(s, start + 14, 2);
+        int second = digits(s, start + 17, 2);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return slowParse(s, start, end);
+        }
+        int pos = start + 19;
+        int nano = 0;
+        if (pos < end && s.charAt(pos) == '.') {
+            pos++;
+            int fractionDigits = 0;
+            while (pos < end) {
+                char c = s.charAt(pos);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                if (fractionDigits < 9) {
+                    nano = nano * 10 + (c - '0');
+                    fractionDigits++;
+                }
+                pos++;
+            }
+            for (int i = fractionDigits; i < 9; i++) {
+                nano *= 10;
+            }
+        }
+        int offsetSeconds = 0;
+        if (pos < end) {
+            char c = s.charAt(pos);
+            if (c == 'Z' || c == 'z') {
+                pos++;
+            } else if ((c == '+' || c == '-') && end - pos >= 3) {
+                int offsetHours = digits(s, pos + 1, 2);
+                int offsetMinutes = 0;
+                int next = pos + 3;
+                if (next < end && s.charAt(next) == ':') {
+                    next++;
+                }
+                if (end - next >= 2) {
+                    offsetMinutes = digits(s, next, 2);
+                    next += 2;
+                }
+                if (offsetHours < 0 || offsetMinutes < 0) {
+                    return slowParse(s, start, end);
+                }
+                offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (c == '-' ? -1 : 1);
+                pos = next;
+            }
+            if (pos != end) {
+                return slowParse(s, start, end);
+            }
+        }
+        if (month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))
+                || hour > 23 || minute > 59 || second > 59) {
+            return slowParse(s, start, end);
+        }
+        long epochSecond = daysFromCivil(year, month, day) * 86_400L
+                + hour * 3600 + minute * 60 + second - offsetSeconds;
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, TARGET_OFFSET);
+    }
+
+    /**
+     * 公历日期到epoch天数（Howard Hinnant算法），避免为换算时区创建中间对象
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468;
+    }
+
+    /**
+     * 解析epoch秒或毫秒
+     */
+    public static LocalDateTime parseEpoch(CharSequence s, int start, int end) {
+        long value = 0;
+        int pos = start;
+        while (pos < end) {
+            char c = s.charAt(pos);
+            if (c == '.') {
+                // 带小数的秒级时间戳，小数部分忽略到毫秒以下
+                break;
+            }
+            if (c < '0' || c > '9') {
+                throw new DateTimeParseException("Invalid epoch timestamp", s, pos);
+            }
+            value = value * 10 + (c - '0');
+            pos++;
+        }
+        if (pos == start) {
+            throw new DateTimeParseException("Invalid epoch timestamp", s, start);
+        }
+        long epochSecond;
+        int nano;
+        if (value >= EPOCH_MILLIS_THRESHOLD) {
+            epochSecond = Math.floorDiv(value, 1000);
+            nano = (int) Math.floorMod(value, 1000) * 1_000_000;
+        } else {
+            epochSecond = value;
+            nano = 0;
+        }
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, TARGET_OFFSET);
+    }
+
+    private static LocalDateTime slowParse(CharSequence s, int start, int end) {
+        String text = s.subSequence(start, end).toString();
+        try {
+            return OffsetDateTime.parse(text).atZoneSameInstant(TARGET_OFFSET).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(text.replace(' ', 'T')).plusSeconds(TARGET_OFFSET.getTotalSeconds());
+        }
+    }
+
+    private static int digits(CharSequence s, int offset, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            char c = s.charAt(offset + i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isAllDigits(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+package com.iot.platform.codec;
+
+import java.util.Arrays;
+
+import com.iot.platform.enums.TopicType;
+
+/**
+ * topic路由表
+ * <p>
+ * 启动时把各类型的后缀按末字符建立索引，路由时只比较末字符相同的候选后缀，
+ * 用 regionMatches 就地比较，不切分、不分配字符串。
+ */
+public final class TopicRouter {
+
+    private static final TopicType[][] BY_LAST_CHAR = new TopicType[128][];
+
+    static {
+        for (TopicType type : TopicType.values()) {
+            String suffix = type.getSuffix();
+            if (suffix == null) {
+                continue;
+            }
+            int last = suffix.charAt(suffix.length() - 1) & 0x7f;
+            TopicType[] existing = BY_LAST_CHAR[last];
+            TopicType[] candidates = existing == null ? new TopicType[1] : Arrays.copyOf(existing, existing.length + 1);
+            candidates[candidates.length - 1] = type;
+            BY_LAST_CHAR[last] = candidates;
+        }
+    }
+
+    private TopicRouter() {
+    }
+
+    public static TopicType route(String topic) {
+        if (topic == null || topic.isEmpty()) {
+            return TopicType.UNKNOWN;
+        }
+        char last = topic.charAt(topic.length() - 1);
+        TopicType[] candidates = last < 128 ? BY_LAST_CHAR[last] : null;
+        if (candidates != null) {
+            for (TopicType candidate : candidates) {
+                String suffix = candidate.getSuffix();
+                int offset = topic.length() - suffix.length();
+                if (offset >= 0 && topic.regionMatches(offset, suffix, 0, suffix.length())) {
+                    return candidate;
+                }
+            }
+        }
+        return TopicType.UNKNOWN;
+    }
+}
@@ -16,4 +16,10 @@ public class AmqpConfig {
     private String clientId;
     private String host;
     private int connectionCount;
+    /** 每个连接的预取消息数 */
+    private int prefetch = 100;
+    /** 消息处理分区数，0表示自动（PLATFORM模式为CPU核数的2倍，VIRTUAL模式见ingest.virtual-lane-count） */
+    private int laneCount = 0;
+    /** 每个分区的队列容量 */
+    private int laneQueueCapacity = 10000;
 }
\ No newline at end of file
@@ -1,14 +1,28 @@
 package com.iot.platform.config;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.mqtt.core.DefaultMqttPahoClientFactory;
 import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
-import org.springframework.integration.mqtt.inbound.MqttPahoMessageDrivenChannelAdapter;
-import org.springframework.integration.mqtt.support.DefaultPahoMessageConverter;
+import org.springframework.util.StringUtils;
+
+import com.iot.platform.executor.IngestExecution;
+import com.iot.platform.executor.PartitionedExecutor;
+import com.iot.platform.mqtt.DataCollectionHandler;
+import com.iot.platform.mqtt.MqttInboundClients;
+import com.iot.platform.mqtt.MqttMessageHandler;
+import com.iot.platform.mqtt.PartitionedInboundHandler;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -29,6 +43,24 @@ public class MqttConfig {
     @Value("${mqtt.password}")
     private String password;
 
+    @Value("${mqtt.inbound.topic:device/+/data}")
+    private String inboundTopic;
+
+    @Value("${mqtt.inbound.client-count:1}")
+    private int clientCount;
+
+    @Value("${mqtt.inbound.shared-group:}")
+    private String sharedGroup;
+
+    @Value("${mqtt.inbound.instance-id:}")
+    private String instanceId;
+
+    @Value("${mqtt.inbound.threads:0}")
+    private int inboundThreads;
+
+    @Value("${mqtt.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
     @Bean
     public MqttPahoClientFactory mqttClientFactory() {
         DefaultMqttPahoClientFactory factory = new DefaultMqttPahoClientFactory();
@@ -41,16 +73,55 @@ public class MqttConfig {
         return factory;
     }
 
+    /**
+     * 入站消息按主题（即设备）分区处理：同一设备的消息保持到达顺序，lane队列满时阻塞Paho回调线程形成背压。
+     * 只订阅一个处理器：开启转发RocketMQ时由 MqttMessageHandler 异步发送，否则由 DataCollectionHandler 直接处理
+     */
+    @Bean
+    public PartitionedInboundHandler mqttInboundHandler(IngestExecution ingestExecution,
+                                                        DataCollectionHandler dataCollectionHandler,
+                                                        ObjectProvider<MqttMessageHandler> mqttMessageHandler) {
+        int lanes = ingestExecution.resolveLaneCount(inboundThreads);
+        int laneCapacity = ingestExecution.resolveLaneQueueCapacity(Math.max(1, inboundQueueCapacity / lanes));
+        PartitionedExecutor executor = new PartitionedExecutor("mqtt-inbound", lanes, laneCapacity,
+                ingestExecution.threadFactory("mqtt-inbound"));
+        MqttMessageHandler forwarder = mqttMessageHandler.getIfAvailable();
+        if (forwarder != null) {
+            log.info("MQTT inbound data is forwarded to RocketMQ");
+            return new PartitionedInboundHandler(forwarder, executor);
+        }
+        return new PartitionedInboundHandler(dataCollectionHandler, executor);
+    }
+
+    @Bean
+    public DirectChannel mqttInboundChannel(PartitionedInboundHandler mqttInboundHandler) {
+        DirectChannel channel = new DirectChannel();
+        channel.subscribe(mqttInboundHandler);
+        return channel;
+    }
+
     @Bean
-    public MqttPahoMessageDrivenChannelAdapter mqttInbound(
-            MqttPahoClientFactory clientFactory) {
-        MqttPahoMessageDrivenChannelAdapter adapter = new MqttPahoMessageDrivenChannelAdapter(
-                clientId + "_inbound",
-                clientFactory,
-                "device/+/data"
-        );
-        adapter.setConverter(new DefaultPahoMessageConverter());
-        adapter.setQos(1);
-        return adapter;
+    public MqttInboundClients mqttInboundClients(MqttPahoClientFactory clientFactory,
+                                                 DirectChannel mqttInboundChannel,
+                                                 PartitionedInboundHandler mqttInboundHandler,
+                                                 BeanFactory beanFactory,
+                                                 ApplicationEventPublisher eventPublisher) {
+        // 多节点部署时各节点的客户端ID必须不同，未配置实例ID时随机生成
+        String instance = StringUtils.hasText(instanceId)
+                ? instanceId
+                : UUID.randomUUID().toString().substring(0, 8);
+        int count = Math.max(1, clientCount);
+        List<String> clientIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            clientIds.add(clientId + "_inbound_" + instance + "_" + i);
+        }
+        String subscription = StringUtils.hasText(sharedGroup)
+                ? "$share/" + sharedGroup + "/" + inboundTopic
+                : inboundTopic;
+        if (count > 1 && !StringUtils.hasText(sharedGroup)) {
+            log.warn("{} MQTT inbound clients without a shared subscription group will each receive every message", count);
+        }
+        return new MqttInboundClients(clientIds, subscription, 1, clientFactory, mqttInboundChannel,
+                mqttInboundHandler, beanFactory, eventPublisher);
     }
-} 
\ No newline at end of file
+}
@@ -20,7 +20,10 @@ public class SwaggerConfig {
         return new OpenAPI()
             .info(new Info()
                 .title("物联网平台 API文档")
-                .description("基于SpringBoot的物联网平台接口文档")
+                .description("基于SpringBoot的物联网平台接口文档。"
+                    + "实时数据通过STOMP端点 /ws 推送：/topic/device/{code}/data 为JSON样本数组，"
+                    + "/topic/device/{code}/data.bin 为二进制帧（需原生WebSocket连接 /ws/websocket），"
+                    + "帧格式与浏览器解码示例见 SensorFrameEncoder")
                 .version("1.0.0"))
             .addSecurityItem(new SecurityRequirement().addList("JWT"))
             .components(new Components()
@@ -1,16 +1,30 @@
 package com.iot.platform.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.iot.platform.service.impl.SensorHistoryStreams;
+
+import lombok.RequiredArgsConstructor;
+
 /**
  * Web MVC配置类
  */
 @Configuration
+@RequiredArgsConstructor
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    private final SensorHistoryStreams sensorHistoryStreams;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // 流式导出的响应体未执行时，在异步请求结束时释放其并发许可
+        configurer.registerCallableInterceptors(sensorHistoryStreams);
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -0,0 +1,26 @@
+package com.iot.platform.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+
+import com.iot.platform.websocket.OutboundSubProtocolWebSocketHandler;
+
+/**
+ * STOMP消息代理配置
+ * <p>
+ * 代替 @EnableWebSocketMessageBroker，仍收集所有 WebSocketMessageBrokerConfigurer（见 {@link WebSocketConfig}），
+ * 只把子协议处理器换成不再套 FIFO 发送装饰器的实现，使 OutboundBackpressure 的分级队列真正生效。
+ */
+@Configuration
+public class WebSocketBrokerConfiguration extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(AbstractSubscribableChannel clientInboundChannel,
+                                                        AbstractSubscribableChannel clientOutboundChannel) {
+        return new OutboundSubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel);
+    }
+}
@@ -1,13 +1,21 @@
 package com.iot.platform.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
 
+import com.iot.platform.websocket.OutboundBackpressure;
+
+import lombok.RequiredArgsConstructor;
+
 @Configuration
-@EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final WebSocketOutboundProperties outboundProperties;
+    private final OutboundBackpressure outboundBackpressure;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");  // 广播消息前缀
@@ -16,8 +24,28 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // 原生WebSocket客户端经 /ws/websocket 连接时可订阅二进制帧 /topic/device/{code}/data.bin，
+        // SockJS降级传输只能传文本，应订阅JSON主题 /topic/device/{code}/data
         registry.addEndpoint("/ws")
                 .setAllowedOrigins("*")
                 .withSockJS();
     }
-} 
\ No newline at end of file
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // 每个会话按告警/状态/数据分级排队，慢会话只影响自己；
+        // 代理由 WebSocketBrokerConfiguration 启用，其子协议处理器不会再套一层FIFO发送装饰器
+        registration.setSendTimeLimit(outboundProperties.getSendTimeLimit())
+                .setSendBufferSizeLimit(outboundProperties.getBufferSizeLimit())
+                .setMessageSizeLimit(outboundProperties.getMessageSizeLimit())
+                .addDecoratorFactory(outboundBackpressure);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        int poolSize = outboundProperties.getPoolSize() > 0
+                ? outboundProperties.getPoolSize()
+                : Runtime.getRuntime().availableProcessors() * 2;
+        registration.taskExecutor().corePoolSize(poolSize).maxPoolSize(poolSize);
+    }
+}
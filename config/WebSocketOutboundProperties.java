@@ -0,0 +1,31 @@
+package com.iot.platform.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import com.iot.platform.enums.SlowConsumerPolicy;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "websocket.outbound")
+@Data
+public class WebSocketOutboundProperties {
+    /** 单次发送超过该时间（毫秒）判定为慢消费者并断开 */
+    private int sendTimeLimit = 10000;
+    /** 单个会话排队消息的总字节上限 */
+    private int bufferSizeLimit = 512 * 1024;
+    /** 客户端发来的单条消息大小上限（字节） */
+    private int messageSizeLimit = 64 * 1024;
+    /** 出站通道线程数，0表示CPU核数的2倍 */
+    private int poolSize = 0;
+    /** 告警消息队列容量及溢出策略 */
+    private int alarmQueueCapacity = 256;
+    private SlowConsumerPolicy alarmPolicy = SlowConsumerPolicy.DISCONNECT;
+    /** 设备状态及其他非数据消息队列容量及溢出策略 */
+    private int statusQueueCapacity = 128;
+    private SlowConsumerPolicy statusPolicy = SlowConsumerPolicy.DROP_OLDEST;
+    /** 实时数据、曲线、信号消息队列容量及溢出策略 */
+    private int dataQueueCapacity = 64;
+    private SlowConsumerPolicy dataPolicy = SlowConsumerPolicy.DROP_OLDEST;
+}
@@ -0,0 +1,33 @@
+package com.iot.platform.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import com.iot.platform.enums.PushPolicy;
+
+import lombok.Data;
+
+@Configuration
+@ConfigurationProperties(prefix = "websocket.push")
+@Data
+public class WebSocketPushProperties {
+    /** 是否合并推送（/data 负载改为样本数组），关闭时每个样本单独推送，负载与旧版一致 */
+    private boolean enabled = false;
+    /** 每个目的地每秒最多推送的帧数 */
+    private int frameRate = 10;
+    /** 每个通道单帧最多携带的样本数 */
+    private int maxSamplesPerFrame = 100;
+    /** 每个通道两帧之间最多缓冲的样本数 */
+    private int channelBufferCapacity = 1000;
+    /** 默认取舍策略 */
+    private PushPolicy policy = PushPolicy.DECIMATE;
+    /** 按设备编码单独指定的取舍策略 */
+    private Map<String, PushPolicy> devicePolicies = new HashMap<>();
+    /** 二进制帧是否使用16位量化数值，否则为float32 */
+    private boolean binaryQuantized = false;
+    /** 连续多少帧没有数据后回收该目的地的缓冲 */
+    private int idleFrames = 600;
+}
@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.iot.platform.dto.AlarmRecordDTO;
+import com.iot.platform.dto.KeysetPage;
 import com.iot.platform.entity.AlarmRecord;
 import com.iot.platform.entity.AlarmRule;
 import com.iot.platform.service.AlarmService;
@@ -48,6 +49,17 @@ public class AlarmController {
         return ResponseEntity.ok(alarmService.getDeviceAlarms(startTime, endTime));
     }
 
+    @GetMapping("/page")
+    @Operation(summary = "分页查询告警记录",
+            description = "按创建时间倒序键集分页；首页不传pageToken，之后传上一页返回的nextToken，nextToken为空表示没有更多数据")
+    public ResponseEntity<KeysetPage<AlarmRecord>> getDeviceAlarmsPage(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(alarmService.getDeviceAlarmsPage(startTime, endTime, pageToken, size));
+    }
+
     @PutMapping("/{alarmId}/handle")
     @Operation(summary = "处理告警")
     public ResponseEntity<Void> handleAlarm(
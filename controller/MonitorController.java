@@ -0,0 +1,177 @@
+package com.iot.platform.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.iot.platform.cache.DeviceRegistry;
+import com.iot.platform.executor.IngestExecution;
+import com.iot.platform.mq.SensorDataBatchConsumer;
+import com.iot.platform.mq.SensorDataProducer;
+import com.iot.platform.mqtt.MqttInboundClients;
+import com.iot.platform.scheduler.DeviceStatusTracker;
+import com.iot.platform.scheduler.SensorDataFlusher;
+import com.iot.platform.scheduler.SensorDataPartitionManager;
+import com.iot.platform.scheduler.SensorDataRollupAccumulator;
+import com.iot.platform.scheduler.SensorDataRollupRepairer;
+import com.iot.platform.service.impl.AmqpServiceImpl;
+import com.iot.platform.service.impl.SensorHistoryStreams;
+import com.iot.platform.wal.SensorDataWal;
+import com.iot.platform.websocket.ClusterRelay;
+import com.iot.platform.websocket.OutboundBackpressure;
+import com.iot.platform.websocket.RealTimePushScheduler;
+import com.iot.platform.websocket.SseStreams;
+import com.iot.platform.websocket.SubscriptionRegistry;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/monitor")
+@RequiredArgsConstructor
+@Tag(name = "运行监控", description = "数据接入与写入运行指标")
+public class MonitorController {
+
+    private final SensorDataFlusher sensorDataFlusher;
+    private final SensorDataWal sensorDataWal;
+    private final AmqpServiceImpl amqpService;
+    private final IngestExecution ingestExecution;
+    private final DeviceRegistry deviceRegistry;
+    private final DeviceStatusTracker deviceStatusTracker;
+    private final RealTimePushScheduler realTimePushScheduler;
+    private final SubscriptionRegistry subscriptionRegistry;
+    private final OutboundBackpressure outboundBackpressure;
+    private final ClusterRelay clusterRelay;
+    private final SseStreams sseStreams;
+    private final SensorDataPartitionManager sensorDataPartitionManager;
+    private final SensorDataRollupAccumulator sensorDataRollupAccumulator;
+    private final SensorDataRollupRepairer sensorDataRollupRepairer;
+    private final SensorHistoryStreams sensorHistoryStreams;
+    private final ObjectProvider<SensorDataBatchConsumer> batchConsumer;
+    private final ObjectProvider<SensorDataProducer> sensorDataProducer;
+    private final ObjectProvider<MqttInboundClients> mqttInboundClients;
+
+    @GetMapping("/flush")
+    @Operation(summary = "获取传感器数据写入统计")
+    public ResponseEntity<Map<String, Object>> getFlushStats() {
+        return ResponseEntity.ok(sensorDataFlusher.getStats());
+    }
+
+    @GetMapping("/wal")
+    @Operation(summary = "获取预写日志统计")
+    public ResponseEntity<Map<String, Object>> getWalStats() {
+        return ResponseEntity.ok(sensorDataWal.getStats());
+    }
+
+    @GetMapping("/amqp")
+    @Operation(summary = "获取AMQP消息处理分区统计")
+    public ResponseEntity<Map<String, Object>> getAmqpStats() {
+        return ResponseEntity.ok(amqpService.getStats());
+    }
+
+    @GetMapping("/ingest")
+    @Operation(summary = "获取接入线程模型与数据库/Redis并发限制统计")
+    public ResponseEntity<Map<String, Object>> getIngestStats() {
+        return ResponseEntity.ok(ingestExecution.getStats());
+    }
+
+    @GetMapping("/rocketmq")
+    @Operation(summary = "获取RocketMQ异步发送与批量消费统计")
+    public ResponseEntity<Map<String, Object>> getRocketMqStats() {
+        SensorDataProducer producer = sensorDataProducer.getIfAvailable();
+        SensorDataBatchConsumer consumer = batchConsumer.getIfAvailable();
+        if (producer == null && consumer == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (producer != null) {
+            stats.put("producer", producer.getStats());
+        }
+        if (consumer != null) {
+            stats.put("batchConsumer", consumer.getStats());
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/mqtt")
+    @Operation(summary = "获取MQTT入站客户端统计")
+    public ResponseEntity<Map<String, Object>> getMqttStats() {
+        MqttInboundClients clients = mqttInboundClients.getIfAvailable();
+        if (clients == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(clients.getStats());
+    }
+
+    @GetMapping("/device-cache")
+    @Operation(summary = "获取设备信息进程内缓存统计")
+    public ResponseEntity<Map<String, Object>> getDeviceCacheStats() {
+        return ResponseEntity.ok(deviceRegistry.getStats());
+    }
+
+    @GetMapping("/device-status")
+    @Operation(summary = "获取设备在线状态跟踪统计")
+    public ResponseEntity<Map<String, Object>> getDeviceStatusStats() {
+        return ResponseEntity.ok(deviceStatusTracker.getStats());
+    }
+
+    @GetMapping("/ws-push")
+    @Operation(summary = "获取WebSocket实时数据合并推送统计")
+    public ResponseEntity<Map<String, Object>> getWebSocketPushStats() {
+        return ResponseEntity.ok(realTimePushScheduler.getStats());
+    }
+
+    @GetMapping("/ws-subscriptions")
+    @Operation(summary = "获取WebSocket订阅统计")
+    public ResponseEntity<Map<String, Object>> getWebSocketSubscriptionStats() {
+        return ResponseEntity.ok(subscriptionRegistry.getStats());
+    }
+
+    @GetMapping("/ws-outbound")
+    @Operation(summary = "获取WebSocket会话出站队列与丢弃统计")
+    public ResponseEntity<Map<String, Object>> getWebSocketOutboundStats() {
+        return ResponseEntity.ok(outboundBackpressure.getStats());
+    }
+
+    @GetMapping("/ws-relay")
+    @Operation(summary = "获取WebSocket多节点中继统计")
+    public ResponseEntity<Map<String, Object>> getWebSocketRelayStats() {
+        return ResponseEntity.ok(clusterRelay.getStats());
+    }
+
+    @GetMapping("/sse")
+    @Operation(summary = "获取SSE实时数据连接统计")
+    public ResponseEntity<Map<String, Object>> getSseStats() {
+        return ResponseEntity.ok(sseStreams.getStats());
+    }
+
+    @GetMapping("/partitions")
+    @Operation(summary = "获取传感器数据分区维护统计")
+    public ResponseEntity<Map<String, Object>> getPartitionStats() {
+        return ResponseEntity.ok(sensorDataPartitionManager.getStats());
+    }
+
+    @GetMapping("/rollups")
+    @Operation(summary = "获取传感器数据预聚合统计")
+    public ResponseEntity<Map<String, Object>> getRollupStats() {
+        return ResponseEntity.ok(sensorDataRollupAccumulator.getStats());
+    }
+
+    @GetMapping("/rollup-repair")
+    @Operation(summary = "获取崩溃节点汇总修复统计")
+    public ResponseEntity<Map<String, Object>> getRollupRepairStats() {
+        return ResponseEntity.ok(sensorDataRollupRepairer.getStats());
+    }
+
+    @GetMapping("/history-streams")
+    @Operation(summary = "获取历史数据流式导出统计")
+    public ResponseEntity<Map<String, Object>> getHistoryStreamStats() {
+        return ResponseEntity.ok(sensorHistoryStreams.getStats());
+    }
+}
@@ -2,9 +2,14 @@ package com.iot.platform.controller;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,14 +18,23 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.iot.platform.dto.AggregationResult;
+import com.iot.platform.dto.KeysetPage;
 import com.iot.platform.dto.SignalDTO;
 import com.iot.platform.entity.Device;
 import com.iot.platform.entity.SensorData;
 import com.iot.platform.entity.User;
+import com.iot.platform.enums.DownsampleMode;
+import com.iot.platform.enums.StreamFormat;
 import com.iot.platform.security.SecurityUtils;
+import com.iot.platform.security.StreamTicketService;
 import com.iot.platform.service.DeviceService;
 import com.iot.platform.service.SensorDataService;
+import com.iot.platform.service.impl.SensorHistoryStreams;
+import com.iot.platform.websocket.SseStreams;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -34,6 +48,9 @@ public class SensorDataController {
 
     private final SensorDataService sensorDataService;
     private final DeviceService deviceService;
+    private final SseStreams sseStreams;
+    private final SensorHistoryStreams sensorHistoryStreams;
+    private final StreamTicketService streamTicketService;
 
     @PostMapping("/save")
     @Operation(summary = "保存传感器数据")
@@ -45,7 +62,10 @@ public class SensorDataController {
     @PostMapping("/save-batch")
     @Operation(summary = "批量保存传感器数据")
     public ResponseEntity<Void> saveBatchSensorData(@RequestBody List<SensorData> sensorDataList) {
-        sensorDataService.saveBatchSensorData(sensorDataList);
+        if (sensorDataService.saveBatchSensorData(sensorDataList) > 0) {
+            // 写入缓冲已满，部分数据未接收，客户端应整批重试
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
         return ResponseEntity.ok().build();
     }
 
@@ -69,7 +89,7 @@ public class SensorDataController {
 
     @GetMapping("/device/{deviceId}/stats")
     @Operation(summary = "获取设备的传感器数据统计")
-    public ResponseEntity<List<SensorData>> getDeviceSensorDataStats(
+    public ResponseEntity<List<AggregationResult>> getDeviceSensorDataStats(
             @PathVariable Long deviceId,
             @RequestParam String channelId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
@@ -78,6 +98,74 @@ public class SensorDataController {
         return ResponseEntity.ok(sensorDataService.getDeviceSensorDataStats(deviceId, channelId, startTime, endTime, statsType));
     }
 
+    @GetMapping("/device/{deviceId}/page")
+    @Operation(summary = "分页获取设备的传感器数据",
+            description = "按采集时间倒序键集分页；首页不传pageToken，之后传上一页返回的nextToken，nextToken为空表示没有更多数据")
+    public ResponseEntity<KeysetPage<SensorData>> getDeviceSensorDataPage(
+            @PathVariable Long deviceId,
+            @RequestParam(required = false) String channelId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(sensorDataService.getSensorDataPage(
+                List.of(deviceId), channelId, startTime, endTime, pageToken, size));
+    }
+
+    @GetMapping("/user-sensor-data/page")
+    @Operation(summary = "分页获取当前用户的传感器数据",
+            description = "按设备ID依次、每台设备内按采集时间倒序键集分页，用法同 /device/{deviceId}/page")
+    public ResponseEntity<KeysetPage<SensorData>> getUserSensorDataPage(
+            @RequestParam(required = false) String channelId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer size) {
+        User currentUser = SecurityUtils.getCurrentUser();
+        List<Long> deviceIds = deviceService.getUserDevices(currentUser.getId()).stream()
+                .map(device -> device.getId().longValue())
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(sensorDataService.getSensorDataPage(
+                deviceIds, channelId, startTime, endTime, pageToken, size));
+    }
+
+    @GetMapping("/device/{deviceId}/history")
+    @Operation(summary = "流式导出设备的传感器历史数据",
+            description = "按通道、采集时间顺序边查边写，任意时间范围内存占用恒定；format为NDJSON（每行一条JSON）"
+                    + "或BINARY（连续的 u32小端帧长度 + 二进制帧，帧格式同 /topic/device/{code}/data.bin）")
+    public ResponseEntity<StreamingResponseBody> streamDeviceSensorHistory(
+            @PathVariable Long deviceId,
+            @RequestParam(required = false) String channelId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(defaultValue = "NDJSON") StreamFormat format) {
+        return historyResponse(sensorHistoryStreams.open(List.of(deviceId), channelId, startTime, endTime, format), format);
+    }
+
+    @GetMapping("/user-sensor-data/history")
+    @Operation(summary = "流式导出当前用户所有设备的传感器历史数据",
+            description = "NDJSON格式，逐台设备依次输出，每行一条JSON")
+    public ResponseEntity<StreamingResponseBody> streamUserSensorHistory(
+            @RequestParam(required = false) String channelId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        User currentUser = SecurityUtils.getCurrentUser();
+        List<Long> deviceIds = deviceService.getUserDevices(currentUser.getId()).stream()
+                .map(device -> device.getId().longValue())
+                .collect(Collectors.toList());
+        return historyResponse(sensorHistoryStreams.open(deviceIds, channelId, startTime, endTime, StreamFormat.NDJSON),
+                StreamFormat.NDJSON);
+    }
+
+    private ResponseEntity<StreamingResponseBody> historyResponse(StreamingResponseBody body, StreamFormat format) {
+        if (body == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .body(body);
+    }
+
     @GetMapping("/user-sensor-data")
     @Operation(summary = "获取当前用户的传感器数据")
     public ResponseEntity<List<SensorData>> getUserSensorData(
@@ -108,16 +196,49 @@ public class SensorDataController {
     
 
     @GetMapping("/timeseries")
-    @Operation(summary = "获取时序信号数据")
+    @Operation(summary = "获取时序信号数据",
+            description = "按maxPoints降采样（mode为LTTB或MINMAX），返回点数与时间范围长短无关；maxPoints=0时返回全部原始点")
     public ResponseEntity<SignalDTO> getTimeSeriesData(
             @RequestParam Long deviceId,
             @RequestParam String channelId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) Integer maxPoints,
+            @RequestParam(defaultValue = "LTTB") DownsampleMode mode) {
             
         SignalDTO signalDTO = sensorDataService.getTimeSeriesData(
-            deviceId, channelId, startTime, endTime);
+            deviceId, channelId, startTime, endTime, maxPoints, mode);
             
         return ResponseEntity.ok(signalDTO);
     }
-} 
\ No newline at end of file
+
+    @GetMapping(value = "/stream/{deviceCode}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "实时数据SSE流",
+            description = "按合并推送的帧率推送 event: data，数据为样本数组；指定channelId时只推送该通道。"
+                    + "EventSource不能携带Authorization头，先调用 POST /stream/{deviceCode}/ticket 获取票据，再以 ?ticket= 连接")
+    public ResponseEntity<SseEmitter> streamSensorData(
+            @PathVariable String deviceCode,
+            @RequestParam(required = false) String channelId) {
+        if (deviceService.getDeviceByCode(deviceCode) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        SseEmitter emitter = sseStreams.open(deviceCode, channelId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    @PostMapping("/stream/{deviceCode}/ticket")
+    @Operation(summary = "获取SSE连接票据", description = "票据短期有效且只能使用一次，只能用于连接该设备的实时数据流")
+    public ResponseEntity<Map<String, Object>> issueStreamTicket(@PathVariable String deviceCode) {
+        if (deviceService.getDeviceByCode(deviceCode) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        User currentUser = SecurityUtils.getCurrentUser();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ticket", streamTicketService.issue(currentUser.getUsername(), deviceCode));
+        result.put("expiresIn", streamTicketService.getTicketTtlMillis());
+        return ResponseEntity.ok(result);
+    }
+}
@@ -12,6 +12,7 @@ public class AggregationResult {
     private Double maxValue;
     private Double avgValue;
     private Double sumValue;
+    private Double stdDevValue;
     private Long count;
     private String timeUnit;  // HOUR, DAY, MONTH
 } 
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.iot.platform.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+/**
+ * 降采样后的时序数据
+ */
+@Data
+public class DownsampledSeries {
+    private LocalDateTime startTime;
+    private long[] timeOffsets;   // 相对startTime的毫秒数
+    private double[] values;
+    private long inputPoints;     // 参与降采样的原始点数
+    private String source;        // 数据来源：RAW或预聚合粒度（MINUTE/HOUR/DAY）
+}
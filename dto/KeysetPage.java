@@ -0,0 +1,33 @@
+package com.iot.platform.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * 键集分页结果：nextToken为空表示已到最后一页，否则原样传回以获取下一页
+ */
+@Data
+public class KeysetPage<T> {
+    private List<T> items;
+    private String nextToken;
+    private boolean hasMore;
+
+    public static <T> KeysetPage<T> of(List<T> items, String nextToken) {
+        KeysetPage<T> page = new KeysetPage<>();
+        page.setItems(items);
+        page.setNextToken(nextToken);
+        page.setHasMore(nextToken != null);
+        return page;
+    }
+
+    /**
+     * 未指定时取默认页大小，超过上限时按上限处理
+     */
+    public static int clampSize(Integer requested, int defaultSize, int maxSize) {
+        if (requested == null || requested <= 0) {
+            return Math.min(defaultSize, maxSize);
+        }
+        return Math.min(requested, maxSize);
+    }
+}
@@ -0,0 +1,62 @@
+package com.iot.platform.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import com.iot.platform.exception.BusinessException;
+
+/**
+ * 键集分页的续页标记：上一页最后一条记录的(时间, id)，跨设备分页时还带设备ID。
+ * 对客户端不透明，编码为URL安全的Base64。
+ */
+public final class PageToken {
+
+    private static final String VERSION = "v1";
+
+    private final Long deviceId;
+    private final LocalDateTime time;
+    private final long id;
+
+    public PageToken(Long deviceId, LocalDateTime time, long id) {
+        this.deviceId = deviceId;
+        this.time = time;
+        this.id = id;
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = VERSION + '|' + (deviceId == null ? "" : deviceId) + '|' + time + '|' + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return token为空时返回null
+     */
+    public static PageToken decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", -1);
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("unsupported token");
+            }
+            Long deviceId = parts[1].isEmpty() ? null : Long.valueOf(parts[1]);
+            return new PageToken(deviceId, LocalDateTime.parse(parts[2]), Long.parseLong(parts[3]));
+        } catch (RuntimeException e) {
+            throw new BusinessException("无效的分页标记");
+        }
+    }
+}
@@ -41,6 +41,10 @@ public class Device {
 
     @TableField("group_id")
     private Long groupId;
+
+    /** 最后一次上报数据的时间，由在线状态跟踪器批量回写 */
+    @TableField("last_seen")
+    private LocalDateTime lastSeen;
     
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createTime;
@@ -7,6 +7,7 @@ import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import lombok.Data;
 
@@ -40,4 +41,11 @@ public class SensorData {
     
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createTime;
+
+    /**
+     * 所属WAL分段编号，仅在内存中流转
+     */
+    @JsonIgnore
+    @TableField(exist = false)
+    private Long walSegment;
 } 
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.iot.platform.entity;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+/**
+ * 传感器数据预聚合桶：一个设备通道在一个时间桶内的最小值、最大值、和、平方和与样本数，
+ * 对应sensor_data_rollup_1m/1h/1d表中的一行。各项都可直接合并，粗粒度桶由细粒度桶相加得到。
+ */
+@Data
+public class SensorDataRollup {
+
+    private Integer deviceId;
+
+    private String channelId;
+
+    private LocalDateTime bucketTime;
+
+    private Double minValue;
+
+    private Double maxValue;
+
+    private Double sumValue;
+
+    private Double sumSquares;
+
+    private Long sampleCount;
+
+    public SensorDataRollup() {
+    }
+
+    public SensorDataRollup(Integer deviceId, String channelId, LocalDateTime bucketTime) {
+        this.deviceId = deviceId;
+        this.channelId = channelId;
+        this.bucketTime = bucketTime;
+        this.minValue = Double.POSITIVE_INFINITY;
+        this.maxValue = Double.NEGATIVE_INFINITY;
+        this.sumValue = 0.0;
+        this.sumSquares = 0.0;
+        this.sampleCount = 0L;
+    }
+
+    public void add(double value) {
+        minValue = Math.min(minValue, value);
+        maxValue = Math.max(maxValue, value);
+        sumValue += value;
+        sumSquares += value * value;
+        sampleCount++;
+    }
+
+    public void merge(SensorDataRollup other) {
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+        sumValue += other.sumValue;
+        sumSquares += other.sumSquares;
+        sampleCount += other.sampleCount;
+    }
+}
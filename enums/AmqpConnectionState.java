@@ -0,0 +1,26 @@
+package com.iot.platform.enums;
+
+/**
+ * AMQP连接状态
+ */
+public enum AmqpConnectionState {
+    /**
+     * 正在建立连接、会话和消费者
+     */
+    CONNECTING,
+
+    /**
+     * 消费者已创建，正在接收消息
+     */
+    CONNECTED,
+
+    /**
+     * 连接中断，客户端正在按failover配置重连
+     */
+    INTERRUPTED,
+
+    /**
+     * 建立失败或重连次数用尽
+     */
+    FAILED
+}
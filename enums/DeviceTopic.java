@@ -0,0 +1,35 @@
+package com.iot.platform.enums;
+
+/**
+ * 设备WebSocket推送主题 /topic/device/{code}/{suffix}
+ */
+public enum DeviceTopic {
+    DATA("data"),
+    /** 实时数据的二进制帧，格式见 SensorFrameEncoder */
+    DATA_BINARY("data.bin"),
+    ALARM("alarm"),
+    CHART("chart"),
+    STATUS("status"),
+    SIGNAL("signal"),
+    /** SSE实时数据连接，不是STOMP主题，只用于订阅计数 */
+    SSE("sse");
+
+    private final String suffix;
+
+    DeviceTopic(String suffix) {
+        this.suffix = suffix;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public static DeviceTopic fromSuffix(String suffix) {
+        for (DeviceTopic topic : values()) {
+            if (topic.suffix.equals(suffix)) {
+                return topic;
+            }
+        }
+        return null;
+    }
+}
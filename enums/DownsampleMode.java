@@ -0,0 +1,16 @@
+package com.iot.platform.enums;
+
+/**
+ * 时序数据降采样算法
+ */
+public enum DownsampleMode {
+    /**
+     * Largest-Triangle-Three-Buckets：每个时间桶保留与前后点构成三角形面积最大的点，保持曲线形状
+     */
+    LTTB,
+
+    /**
+     * 最小/最大包络：每个时间桶保留最小值和最大值两个点，不丢失峰值
+     */
+    MINMAX
+}
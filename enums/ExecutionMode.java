@@ -0,0 +1,16 @@
+package com.iot.platform.enums;
+
+/**
+ * 接入消息处理线程模型
+ */
+public enum ExecutionMode {
+    /**
+     * 固定数量的平台线程
+     */
+    PLATFORM,
+
+    /**
+     * 每条消息（或每个分区）一个虚拟线程，需要JDK 21+，不支持时回退到PLATFORM
+     */
+    VIRTUAL
+}
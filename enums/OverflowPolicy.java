@@ -0,0 +1,16 @@
+package com.iot.platform.enums;
+
+/**
+ * 缓冲区写满时的背压策略
+ */
+public enum OverflowPolicy {
+    /**
+     * 按等待策略阻塞生产者，超时后丢弃
+     */
+    BLOCK,
+
+    /**
+     * 立即丢弃新数据
+     */
+    DROP
+}
@@ -0,0 +1,28 @@
+package com.iot.platform.enums;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * sensor_data分区粒度
+ */
+public enum PartitionGranularity {
+    DAY,
+    /** 自然周，从周一开始 */
+    WEEK;
+
+    /**
+     * date所在分区的起始日
+     */
+    public LocalDate floor(LocalDate date) {
+        return this == DAY ? date : date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /**
+     * 下一个分区的起始日
+     */
+    public LocalDate next(LocalDate start) {
+        return this == DAY ? start.plusDays(1) : start.plusWeeks(1);
+    }
+}
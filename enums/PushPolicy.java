@@ -0,0 +1,21 @@
+package com.iot.platform.enums;
+
+/**
+ * 实时推送缓冲超出容量或单帧上限时的取舍策略
+ */
+public enum PushPolicy {
+    /**
+     * 丢弃最早的样本，保留最新数据
+     */
+    DROP_OLDEST,
+
+    /**
+     * 丢弃新到的样本
+     */
+    DROP_NEWEST,
+
+    /**
+     * 等间隔抽稀，保留波形轮廓和最新一个样本
+     */
+    DECIMATE
+}
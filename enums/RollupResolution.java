@@ -0,0 +1,75 @@
+package com.iot.platform.enums;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 传感器数据预聚合（rollup）粒度及对应的汇总表
+ */
+public enum RollupResolution {
+    MINUTE("sensor_data_rollup_1m", ChronoUnit.MINUTES),
+    HOUR("sensor_data_rollup_1h", ChronoUnit.HOURS),
+    DAY("sensor_data_rollup_1d", ChronoUnit.DAYS);
+
+    private final String table;
+    private final ChronoUnit unit;
+
+    RollupResolution(String table, ChronoUnit unit) {
+        this.table = table;
+        this.unit = unit;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * time所在桶的起始时间
+     */
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public boolean isAligned(LocalDateTime time) {
+        return time == null || floor(time).equals(time);
+    }
+
+    /**
+     * 选择查询使用的汇总粒度，调用方把起止时间按该粒度向外取整
+     * <p>
+     * 指定统计周期时取不大于周期的最粗粒度（小时或天，不会用到分钟）；未指定时取起止时间都对齐的最粗粒度。
+     * 分钟汇总只保留到minuteRetainedSince，起始时间更早时改用小时粒度，边界放宽到整小时也不漏掉已清理的数据。
+     *
+     * @param minuteRetainedSince 分钟汇总保留的最早时间，null表示永久保留
+     */
+    public static RollupResolution select(StatsPeriod period, LocalDateTime startTime, LocalDateTime endTime,
+                                          LocalDateTime minuteRetainedSince) {
+        RollupResolution[] candidates = values();
+        for (int i = candidates.length - 1; i > 0; i--) {
+            RollupResolution resolution = candidates[i];
+            boolean fits = period != null
+                    ? resolution.unit.getDuration().compareTo(period.getMinDuration()) <= 0
+                    : resolution.isAligned(startTime) && resolution.isAligned(endTime);
+            if (fits) {
+                return resolution;
+            }
+        }
+        if (minuteRetainedSince != null && (startTime == null || startTime.isBefore(minuteRetainedSince))) {
+            return HOUR;
+        }
+        return MINUTE;
+    }
+
+    /**
+     * 按保留天数计算分钟汇总仍然完整的最早时间
+     *
+     * @return 保留天数不大于0（永久保留）时返回null
+     */
+    public static LocalDateTime minuteRetainedSince(int minuteRetentionDays) {
+        return minuteRetentionDays > 0 ? LocalDateTime.now().minusDays(minuteRetentionDays) : null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.iot.platform.enums;
+
+/**
+ * WebSocket会话发送队列写满时的处理策略
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * 丢弃队列中最早的消息
+     */
+    DROP_OLDEST,
+
+    /**
+     * 断开该会话，由客户端重连
+     */
+    DISCONNECT
+}
@@ -0,0 +1,55 @@
+package com.iot.platform.enums;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * 统计周期
+ */
+public enum StatsPeriod {
+    HOUR(Duration.ofHours(1)),
+    DAY(Duration.ofDays(1)),
+    /** 自然周，从周一开始 */
+    WEEK(Duration.ofDays(7)),
+    /** 自然月，按最短的28天参与粒度选择 */
+    MONTH(Duration.ofDays(28));
+
+    private final Duration minDuration;
+
+    StatsPeriod(Duration minDuration) {
+        this.minDuration = minDuration;
+    }
+
+    public Duration getMinDuration() {
+        return minDuration;
+    }
+
+    /**
+     * time所在周期的起始时间
+     */
+    public LocalDateTime floor(LocalDateTime time) {
+        LocalDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+        switch (this) {
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case WEEK:
+                return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return day.withDayOfMonth(1);
+            default:
+                return day;
+        }
+    }
+
+    public static StatsPeriod fromName(String name) {
+        for (StatsPeriod period : values()) {
+            if (period.name().equalsIgnoreCase(name)) {
+                return period;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported stats type: " + name);
+    }
+}
@@ -0,0 +1,26 @@
+package com.iot.platform.enums;
+
+/**
+ * 历史数据流式导出格式
+ */
+public enum StreamFormat {
+    /**
+     * 每行一个JSON对象
+     */
+    NDJSON("application/x-ndjson"),
+
+    /**
+     * 连续的 [u32 帧长度(小端)][二进制帧] ，帧格式见SensorFrameEncoder
+     */
+    BINARY("application/octet-stream");
+
+    private final String mediaType;
+
+    StreamFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+}
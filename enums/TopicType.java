@@ -0,0 +1,26 @@
+package com.iot.platform.enums;
+
+/**
+ * 设备上行消息的topic类型
+ */
+public enum TopicType {
+    /**
+     * 物模型属性上报 /thing/event/property/post
+     */
+    PROPERTY_POST("/thing/event/property/post"),
+    /**
+     * 自定义信号数据 /user/signal
+     */
+    USER_SIGNAL("/user/signal"),
+    UNKNOWN(null);
+
+    private final String suffix;
+
+    TopicType(String suffix) {
+        this.suffix = suffix;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+}
@@ -0,0 +1,69 @@
+package com.iot.platform.enums;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 环形缓冲区等待策略
+ * <p>
+ * 生产者遇到缓冲区已满、消费者遇到缓冲区为空时，按策略让出CPU。
+ */
+public enum WaitStrategy {
+    /**
+     * 忙等，延迟最低，独占一个核心
+     */
+    BUSY_SPIN {
+        @Override
+        public void idle(int attempt) {
+            Thread.onSpinWait();
+        }
+    },
+
+    /**
+     * 先自旋后让出时间片
+     */
+    YIELDING {
+        @Override
+        public void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+
+    /**
+     * 自旋、让出时间片，最后短暂挂起，兼顾延迟与CPU占用
+     */
+    SLEEPING {
+        @Override
+        public void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (attempt < SPIN_TRIES * 2) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(100_000L);
+            }
+        }
+    },
+
+    /**
+     * 直接挂起，CPU占用最低
+     */
+    PARKING {
+        @Override
+        public void idle(int attempt) {
+            LockSupport.parkNanos(1_000_000L);
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+
+    /**
+     * 执行一次等待
+     *
+     * @param attempt 当前连续等待次数（从0开始）
+     */
+    public abstract void idle(int attempt);
+}
@@ -0,0 +1,26 @@
+package com.iot.platform.enums;
+
+/**
+ * sensor_data批量写入策略
+ */
+public enum WriteStrategy {
+    /**
+     * MyBatis foreach拼接的多行INSERT（原有方式）
+     */
+    MAPPER_FOREACH,
+
+    /**
+     * JDBC PreparedStatement addBatch/executeBatch
+     */
+    JDBC_BATCH,
+
+    /**
+     * MyBatis ExecutorType.BATCH会话
+     */
+    MYBATIS_BATCH,
+
+    /**
+     * MySQL LOAD DATA LOCAL INFILE，从内存流批量导入
+     */
+    LOAD_DATA
+}
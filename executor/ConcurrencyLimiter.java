@@ -0,0 +1,85 @@
+package com.iot.platform.executor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 按资源限制并发访问数的信号量
+ * <p>
+ * 接入线程数不再受线程池约束（虚拟线程）时，用它把对MySQL、Redis的并发调用
+ * 限制在连接池能承受的范围内，超出的调用在此排队而不是挤进连接池等待超时。
+ */
+public class ConcurrencyLimiter {
+
+    private final String name;
+    private final int permits;
+    private final Semaphore semaphore;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConcurrencyLimiter(String name, int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+        this.name = name;
+        this.permits = permits;
+        this.semaphore = new Semaphore(permits, true);
+    }
+
+    public <T> T call(Supplier<T> action) {
+        acquire();
+        try {
+            return action.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    public void run(Runnable action) {
+        acquire();
+        try {
+            action.run();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private void acquire() {
+        calls.increment();
+        if (semaphore.tryAcquire()) {
+            return;
+        }
+        contended.increment();
+        long start = System.nanoTime();
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name + " permit", e);
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    public Map<String, Object> getStats() {
+        long contendedCalls = contended.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("permits", permits);
+        stats.put("active", permits - semaphore.availablePermits());
+        stats.put("waiting", semaphore.getQueueLength());
+        stats.put("calls", calls.sum());
+        stats.put("contendedCalls", contendedCalls);
+        stats.put("avgWaitMillis", contendedCalls == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum() / contendedCalls));
+        stats.put("maxWaitMillis", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        return stats;
+    }
+}
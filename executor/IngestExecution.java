@@ -0,0 +1,153 @@
+package com.iot.platform.executor;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.iot.platform.enums.ExecutionMode;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 接入处理的线程模型与下游资源并发限制
+ * <p>
+ * VIRTUAL模式下各接入入口改用虚拟线程处理消息，阻塞在MySQL、Redis上时不再占用平台线程；
+ * 虚拟线程通过反射创建，在JDK 21以下运行时自动回退到PLATFORM模式。
+ * 各入口按设备分区（见 {@link PartitionedExecutor}），队列有界，满时阻塞调用方，同一设备的消息保持到达顺序。
+ * 无论哪种模式，对MySQL与Redis的调用都经过各自的信号量限流。
+ */
+@Slf4j
+@Component
+public class IngestExecution {
+
+    @Value("${ingest.execution-mode:PLATFORM}")
+    private ExecutionMode configuredMode;
+
+    @Value("${ingest.db-permits:10}")
+    private int dbPermits;
+
+    @Value("${ingest.redis-permits:8}")
+    private int redisPermits;
+
+    @Value("${ingest.virtual-lane-count:1024}")
+    private int virtualLaneCount;
+
+    @Value("${ingest.virtual-lane-queue-capacity:256}")
+    private int virtualLaneQueueCapacity;
+
+    private ExecutionMode mode;
+    private ConcurrencyLimiter dbLimiter;
+    private ConcurrencyLimiter redisLimiter;
+
+    @PostConstruct
+    public void init() {
+        mode = configuredMode;
+        if (mode == ExecutionMode.VIRTUAL && !VirtualThreads.SUPPORTED) {
+            log.warn("Virtual threads are not supported on Java {}, falling back to PLATFORM execution mode",
+                    Runtime.version().feature());
+            mode = ExecutionMode.PLATFORM;
+        }
+        dbLimiter = new ConcurrencyLimiter("db", dbPermits);
+        redisLimiter = new ConcurrencyLimiter("redis", redisPermits);
+        log.info("Ingest execution mode {}, db permits {}, redis permits {}", mode, dbPermits, redisPermits);
+    }
+
+    public boolean isVirtual() {
+        return mode == ExecutionMode.VIRTUAL;
+    }
+
+    /**
+     * 处理线程工厂：VIRTUAL模式创建虚拟线程，否则创建守护平台线程
+     */
+    public ThreadFactory threadFactory(String prefix) {
+        if (isVirtual()) {
+            return VirtualThreads.factory(prefix + "-vt-");
+        }
+        AtomicInteger index = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 分区执行器的分区数：未显式配置时，VIRTUAL模式使用较多的分区以提高阻塞调用的并发度
+     */
+    public int resolveLaneCount(int configured) {
+        if (configured > 0) {
+            return configured;
+        }
+        return isVirtual() ? virtualLaneCount : Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    /**
+     * 分区队列容量：VIRTUAL模式分区多，单个分区的队列相应缩小，总容量保持同一量级
+     */
+    public int resolveLaneQueueCapacity(int configured) {
+        return isVirtual() ? Math.min(configured, virtualLaneQueueCapacity) : configured;
+    }
+
+    public ConcurrencyLimiter db() {
+        return dbLimiter;
+    }
+
+    public ConcurrencyLimiter redis() {
+        return redisLimiter;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("configuredMode", configuredMode);
+        stats.put("mode", mode);
+        stats.put("db", dbLimiter.getStats());
+        stats.put("redis", redisLimiter.getStats());
+        return stats;
+    }
+
+    /**
+     * 通过反射访问 Thread.ofVirtual()，使代码在JDK 17上也能编译运行
+     */
+    private static final class VirtualThreads {
+
+        static final boolean SUPPORTED;
+        private static final Method OF_VIRTUAL;
+        private static final Method NAME;
+        private static final Method FACTORY;
+
+        static {
+            Method ofVirtual = null;
+            Method name = null;
+            Method factory = null;
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                name = builderClass.getMethod("name", String.class, long.class);
+                factory = builderClass.getMethod("factory");
+                // JDK 19/20的预览版本未开启时调用会抛异常，这里试探一次
+                factory.invoke(ofVirtual.invoke(null));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                ofVirtual = null;
+            }
+            OF_VIRTUAL = ofVirtual;
+            NAME = name;
+            FACTORY = factory;
+            SUPPORTED = ofVirtual != null;
+        }
+
+        static ThreadFactory factory(String prefix) {
+            try {
+                Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+                return (ThreadFactory) FACTORY.invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Failed to create virtual thread factory", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.iot.platform.executor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按key分区的有序执行器
+ * <p>
+ * 每个分区（lane）由一个线程和一个有界队列组成，同一个key总是落到同一lane，
+ * 因此同一设备的消息按到达顺序处理，不同设备在不同lane上并行。
+ * 队列满时阻塞提交方而不是拒绝任务，把背压传回消息来源。
+ */
+@Slf4j
+public class PartitionedExecutor {
+
+    private static final long BLOCK_WARN_MILLIS = 1000;
+    /** 空闲时检查关闭标志的间隔，任务吞掉中断时lane也能退出 */
+    private static final long IDLE_POLL_MILLIS = 200;
+
+    private final String name;
+    private final Lane[] lanes;
+    private volatile boolean shutdown = false;
+
+    public PartitionedExecutor(String name, int laneCount, int queueCapacity) {
+        this(name, laneCount, queueCapacity, r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param threadFactory lane线程工厂，可传入虚拟线程工厂
+     */
+    public PartitionedExecutor(String name, int laneCount, int queueCapacity, ThreadFactory threadFactory) {
+        if (laneCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("laneCount and queueCapacity must be positive");
+        }
+        this.name = name;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, queueCapacity, threadFactory);
+            lanes[i].thread.start();
+        }
+    }
+
+    /**
+     * 按key提交任务，对应lane已满时阻塞直到有空位
+     */
+    public void execute(Object key, Runnable task) throws InterruptedException {
+        if (shutdown) {
+            throw new IllegalStateException(name + " executor has been shut down");
+        }
+        Lane lane = lanes[laneIndex(key)];
+        TimedTask timedTask = new TimedTask(task, System.nanoTime());
+        if (lane.queue.offer(timedTask)) {
+            return;
+        }
+        lane.blockedSubmits.increment();
+        long waitStart = System.nanoTime();
+        while (!lane.queue.offer(timedTask, BLOCK_WARN_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (shutdown) {
+                throw new IllegalStateException(name + " executor has been shut down");
+            }
+            log.warn("{} lane {} full for {} ms, submitter blocked", name, lane.index,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart));
+        }
+    }
+
+    /**
+     * 按key提交任务，对应lane已满时不等待，直接返回false
+     */
+    public boolean tryExecute(Object key, Runnable task) {
+        if (shutdown) {
+            return false;
+        }
+        return lanes[laneIndex(key)].queue.offer(new TimedTask(task, System.nanoTime()));
+    }
+
+    private int laneIndex(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % lanes.length;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * 各lane的队列深度、处理量与延迟
+     */
+    public List<Map<String, Object>> getLaneStats() {
+        List<Map<String, Object>> stats = new ArrayList<>(lanes.length);
+        for (Lane lane : lanes) {
+            long completed = lane.completed.sum();
+            Map<String, Object> laneStats = new LinkedHashMap<>();
+            laneStats.put("lane", lane.index);
+            laneStats.put("queueDepth", lane.queue.size());
+            laneStats.put("completed", completed);
+            laneStats.put("failed", lane.failed.sum());
+            laneStats.put("blockedSubmits", lane.blockedSubmits.sum());
+            laneStats.put("avgQueueMillis", completed == 0 ? 0 : lane.totalQueueNanos.sum() / completed / 1_000_000);
+            laneStats.put("avgExecMillis", completed == 0 ? 0 : lane.totalExecNanos.sum() / completed / 1_000_000);
+            laneStats.put("maxLatencyMillis", TimeUnit.NANOSECONDS.toMillis(lane.maxLatencyNanos.get()));
+            stats.add(laneStats);
+        }
+        return stats;
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * 停止接收新任务，等待已排队任务处理完毕
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        shutdown = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Lane lane : lanes) {
+            lane.thread.interrupt();
+        }
+        for (Lane lane : lanes) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                lane.thread.join(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+            }
+        }
+        for (Lane lane : lanes) {
+            if (lane.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class TimedTask {
+        final Runnable task;
+        final long enqueuedAt;
+
+        TimedTask(Runnable task, long enqueuedAt) {
+            this.task = task;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final class Lane implements Runnable {
+        final int index;
+        final BlockingQueue<TimedTask> queue;
+        final Thread thread;
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder blockedSubmits = new LongAdder();
+        final LongAdder totalQueueNanos = new LongAdder();
+        final LongAdder totalExecNanos = new LongAdder();
+        final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        Lane(int index, int capacity, ThreadFactory threadFactory) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = threadFactory.newThread(this);
+            this.thread.setName(name + "-lane-" + index);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                TimedTask timedTask;
+                try {
+                    timedTask = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (timedTask == null) {
+                        if (shutdown) {
+                            drainRemaining();
+                            return;
+                        }
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    if (shutdown) {
+                        drainRemaining();
+                        return;
+                    }
+                    continue;
+                }
+                runTask(timedTask);
+            }
+        }
+
+        private void drainRemaining() {
+            TimedTask timedTask;
+            while ((timedTask = queue.poll()) != null) {
+                runTask(timedTask);
+            }
+        }
+
+        private void runTask(TimedTask timedTask) {
+            long start = System.nanoTime();
+            try {
+                timedTask.task.run();
+            } catch (Throwable t) {
+                failed.increment();
+                log.error("{} lane {} task failed", name, index, t);
+            }
+            long end = System.nanoTime();
+            completed.increment();
+            totalQueueNanos.add(start - timedTask.enqueuedAt);
+            totalExecNanos.add(end - start);
+            maxLatencyNanos.accumulateAndGet(end - timedTask.enqueuedAt, Math::max);
+        }
+    }
+}
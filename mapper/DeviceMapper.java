@@ -1,9 +1,12 @@
 package com.iot.platform.mapper;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.iot.platform.entity.Device;
@@ -17,4 +20,21 @@ public interface DeviceMapper extends BaseMapper<Device> {
     List<Device> selectDevicesByGroupId(Long groupId);
     
     void batchUpdateFirmware(List<Long> deviceIds, String firmwareVersion);
+
+    @Update("<script>" +
+            "UPDATE devices SET status = #{status} WHERE device_code IN " +
+            "<foreach collection='codes' item='code' open='(' separator=',' close=')'>#{code}</foreach>" +
+            "</script>")
+    int updateStatusByCodes(@Param("codes") Collection<String> deviceCodes, @Param("status") boolean status);
+
+    /**
+     * 批量回写最后上报时间，一条UPDATE覆盖整批设备
+     */
+    @Update("<script>" +
+            "UPDATE devices SET last_seen = CASE device_code " +
+            "<foreach collection='list' item='item'>WHEN #{item.deviceCode} THEN #{item.lastSeen} </foreach>" +
+            "END WHERE device_code IN " +
+            "<foreach collection='list' item='item' open='(' separator=',' close=')'>#{item.deviceCode}</foreach>" +
+            "</script>")
+    int updateLastSeenBatch(@Param("list") List<Device> devices);
 } 
\ No newline at end of file
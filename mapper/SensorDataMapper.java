@@ -6,8 +6,11 @@ import java.util.Map;
 
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.iot.platform.entity.SensorData;
@@ -24,6 +27,13 @@ public interface SensorDataMapper extends BaseMapper<SensorData> {
             "</script>")
     void insertBatch(@Param("list") List<SensorData> sensorDataList);
 
+    /**
+     * 单行插入，配合ExecutorType.BATCH会话使用
+     */
+    @Insert("INSERT INTO sensor_data (device_id, channel_id, data_value, data_unit, data_type, collect_time) " +
+            "VALUES (#{deviceId}, #{channelId}, #{dataValue}, #{dataUnit}, #{dataType}, #{collectTime})")
+    void insertOne(SensorData sensorData);
+
     @Select("""
         SELECT collect_time, data_value 
         FROM sensor_data 
@@ -38,4 +48,28 @@ public interface SensorDataMapper extends BaseMapper<SensorData> {
         @Param("startTime") LocalDateTime startTime,
         @Param("endTime") LocalDateTime endTime
     );
-} 
\ No newline at end of file
+
+    /**
+     * 流式读取：fetchSize为Integer.MIN_VALUE时MySQL驱动逐行返回结果，不在内存中缓存整个结果集。
+     * 按(channel_id, collect_time)排序以沿idx_device_channel_time索引顺序读取，避免对整个区间filesort。
+     * 须在事务内遍历，遍历期间独占一个数据库连接。
+     */
+    @Select("""
+        <script>
+        SELECT id, device_id, channel_id, data_value, data_unit, data_type, collect_time, create_time
+        FROM sensor_data
+        WHERE device_id = #{deviceId}
+        <if test='channelId != null'>AND channel_id = #{channelId}</if>
+        <if test='startTime != null'>AND collect_time &gt;= #{startTime}</if>
+        <if test='endTime != null'>AND collect_time &lt;= #{endTime}</if>
+        ORDER BY channel_id ASC, collect_time ASC
+        </script>
+    """)
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<SensorData> streamSensorData(
+        @Param("deviceId") Long deviceId,
+        @Param("channelId") String channelId,
+        @Param("startTime") LocalDateTime startTime,
+        @Param("endTime") LocalDateTime endTime
+    );
+}
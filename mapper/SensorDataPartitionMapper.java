@@ -0,0 +1,37 @@
+package com.iot.platform.mapper;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * sensor_data分区维护
+ */
+@Mapper
+public interface SensorDataPartitionMapper {
+
+    /**
+     * 按顺序列出sensor_data的分区；未分区时返回空
+     */
+    @Select("SELECT PARTITION_NAME AS name, PARTITION_DESCRIPTION AS description " +
+            "FROM INFORMATION_SCHEMA.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'sensor_data' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<Map<String, Object>> selectPartitions();
+
+    /**
+     * pmax分区中的行数，最多数到limit；从pmax拆分分区时需要复制这些行
+     */
+    @Select("SELECT COUNT(*) FROM (SELECT 1 FROM sensor_data PARTITION (pmax) LIMIT #{limit}) t")
+    long countMaxPartitionRows(@Param("limit") long limit);
+
+    /**
+     * 执行分区DDL，clause由分区维护任务按分区名和日期生成，不含外部输入
+     */
+    @Update("ALTER TABLE sensor_data ${clause}")
+    void alterPartitions(@Param("clause") String clause);
+}
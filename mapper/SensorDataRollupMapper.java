@@ -0,0 +1,97 @@
+package com.iot.platform.mapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import com.iot.platform.entity.SensorDataRollup;
+
+/**
+ * 传感器数据预聚合表访问，table取自RollupResolution，不含外部输入
+ */
+@Mapper
+public interface SensorDataRollupMapper {
+
+    /**
+     * 批量累加到汇总表：桶不存在时插入，已存在时合并
+     */
+    @Insert("<script>" +
+            "INSERT INTO ${table} (device_id, channel_id, bucket_time, min_value, max_value, sum_value, sum_squares, sample_count) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.deviceId}, #{item.channelId}, #{item.bucketTime}, #{item.minValue}, #{item.maxValue}, " +
+            "#{item.sumValue}, #{item.sumSquares}, #{item.sampleCount})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE " +
+            "min_value = LEAST(min_value, VALUES(min_value)), " +
+            "max_value = GREATEST(max_value, VALUES(max_value)), " +
+            "sum_value = sum_value + VALUES(sum_value), " +
+            "sum_squares = sum_squares + VALUES(sum_squares), " +
+            "sample_count = sample_count + VALUES(sample_count)" +
+            "</script>")
+    void upsertBatch(@Param("table") String table, @Param("list") List<SensorDataRollup> rollups);
+
+    /**
+     * 按时间顺序查询桶，startTime含、endTime不含
+     */
+    @Select("<script>" +
+            "SELECT device_id, channel_id, bucket_time, min_value, max_value, sum_value, sum_squares, sample_count " +
+            "FROM ${table} WHERE device_id = #{deviceId} " +
+            "<if test='channelId != null'>AND channel_id = #{channelId} </if>" +
+            "<if test='startTime != null'>AND bucket_time &gt;= #{startTime} </if>" +
+            "<if test='endTime != null'>AND bucket_time &lt; #{endTime} </if>" +
+            "ORDER BY bucket_time, channel_id" +
+            "</script>")
+    List<SensorDataRollup> selectRollups(@Param("table") String table,
+                                         @Param("deviceId") Long deviceId,
+                                         @Param("channelId") String channelId,
+                                         @Param("startTime") LocalDateTime startTime,
+                                         @Param("endTime") LocalDateTime endTime);
+
+    @Delete("DELETE FROM ${table} WHERE bucket_time < #{before} LIMIT #{limit}")
+    int deleteBefore(@Param("table") String table, @Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 从sensor_data重新计算[from, to)内的分钟桶，覆盖已有的桶
+     */
+    @Insert("REPLACE INTO sensor_data_rollup_1m (device_id, channel_id, bucket_time, min_value, max_value, sum_value, sum_squares, sample_count) " +
+            "SELECT device_id, channel_id, DATE_FORMAT(collect_time, '%Y-%m-%d %H:%i:00'), MIN(data_value), MAX(data_value), " +
+            "SUM(data_value), SUM(data_value * data_value), COUNT(*) " +
+            "FROM sensor_data WHERE collect_time >= #{from} AND collect_time < #{to} " +
+            "GROUP BY device_id, channel_id, DATE_FORMAT(collect_time, '%Y-%m-%d %H:%i:00')")
+    int rebuildMinuteBuckets(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 用更细粒度的汇总表source合并出table中起始于bucketTime的一个桶，覆盖已有的桶
+     */
+    @Insert("REPLACE INTO ${table} (device_id, channel_id, bucket_time, min_value, max_value, sum_value, sum_squares, sample_count) " +
+            "SELECT device_id, channel_id, #{bucketTime}, MIN(min_value), MAX(max_value), " +
+            "SUM(sum_value), SUM(sum_squares), SUM(sample_count) " +
+            "FROM ${source} WHERE bucket_time >= #{bucketTime} AND bucket_time < #{bucketEnd} " +
+            "GROUP BY device_id, channel_id")
+    int rebuildBucket(@Param("table") String table, @Param("source") String source,
+                      @Param("bucketTime") LocalDateTime bucketTime, @Param("bucketEnd") LocalDateTime bucketEnd);
+
+    /**
+     * 记录本节点的汇总水位：采集时间早于markTime的数据，其汇总增量都已入库
+     */
+    @Insert("INSERT INTO sensor_data_rollup_mark (node_id, mark_time) VALUES (#{nodeId}, #{markTime}) " +
+            "ON DUPLICATE KEY UPDATE mark_time = VALUES(mark_time)")
+    void saveMark(@Param("nodeId") String nodeId, @Param("markTime") LocalDateTime markTime);
+
+    @Delete("DELETE FROM sensor_data_rollup_mark WHERE node_id = #{nodeId}")
+    void deleteMark(@Param("nodeId") String nodeId);
+
+    /**
+     * 早于before未再更新的水位中最早的一个，即崩溃节点可能丢失汇总的起点；没有时返回null
+     */
+    @Select("SELECT MIN(mark_time) FROM sensor_data_rollup_mark WHERE mark_time < #{before}")
+    LocalDateTime selectOldestStaleMark(@Param("before") LocalDateTime before);
+
+    @Delete("DELETE FROM sensor_data_rollup_mark WHERE mark_time < #{before}")
+    int deleteStaleMarks(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,173 @@
+package com.iot.platform.mq;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.executor.IngestExecution;
+import com.iot.platform.service.AlarmService;
+import com.iot.platform.service.SensorDataService;
+import com.iot.platform.wal.SensorDataWal;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 传感器数据批量消费者
+ * <p>
+ * 每次回调最多拉取batchSize条消息：整批反序列化后一次性进入写入缓冲，
+ * 等待WAL刷盘后才确认消费；告警规则按批查询一次。
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${rocketmq.enabled:false} and '${rocketmq.consumer.mode:SINGLE}' == 'BATCH'")
+public class SensorDataBatchConsumer implements SmartLifecycle {
+
+    private final DefaultMQPushConsumer consumer;
+    private final SensorDataService sensorDataService;
+    private final AlarmService alarmService;
+    private final SensorDataWal sensorDataWal;
+    private final IngestExecution ingestExecution;
+    private final ObjectReader reader;
+
+    @Value("${rocketmq.consumer.batch-size:64}")
+    private int batchSize;
+
+    @Value("${rocketmq.consumer.pull-batch-size:256}")
+    private int pullBatchSize;
+
+    @Value("${rocketmq.consumer.durable-timeout:3000}")
+    private long durableTimeoutMillis;
+
+    private volatile boolean running = false;
+
+    private final LongAdder consumedBatches = new LongAdder();
+    private final LongAdder consumedMessages = new LongAdder();
+    private final LongAdder malformedMessages = new LongAdder();
+    private final LongAdder reconsumedBatches = new LongAdder();
+    private final LongAdder totalBatchMillis = new LongAdder();
+
+    public SensorDataBatchConsumer(DefaultMQPushConsumer consumer, SensorDataService sensorDataService,
+                                   AlarmService alarmService, SensorDataWal sensorDataWal,
+                                   IngestExecution ingestExecution, ObjectMapper objectMapper) {
+        this.consumer = consumer;
+        this.sensorDataService = sensorDataService;
+        this.alarmService = alarmService;
+        this.sensorDataWal = sensorDataWal;
+        this.ingestExecution = ingestExecution;
+        this.reader = objectMapper.readerFor(SensorData.class);
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        consumer.setConsumeMessageBatchMaxSize(batchSize);
+        consumer.setPullBatchSize(Math.max(pullBatchSize, batchSize));
+        consumer.registerMessageListener((MessageListenerConcurrently) (messages, context) -> consumeBatch(messages));
+        try {
+            consumer.start();
+            running = true;
+            log.info("RocketMQ batch consumer started, batchSize={}, pullBatchSize={}", batchSize, consumer.getPullBatchSize());
+        } catch (Exception e) {
+            // 与生产者一致：RocketMQ不可用时不阻止应用启动
+            log.error("Failed to start RocketMQ batch consumer", e);
+        }
+    }
+
+    private ConsumeConcurrentlyStatus consumeBatch(List<MessageExt> messages) {
+        long start = System.currentTimeMillis();
+        List<SensorData> batch = new ArrayList<>(messages.size());
+        for (MessageExt message : messages) {
+            try {
+                batch.add(reader.readValue(message.getBody()));
+            } catch (Exception e) {
+                // 无法解析的消息重试也不会成功，记录后跳过
+                malformedMessages.increment();
+                log.warn("Skipping malformed sensor data message {}: {}", message.getMsgId(), e.getMessage());
+            }
+        }
+        if (batch.isEmpty()) {
+            return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+        }
+
+        try {
+            int rejected = sensorDataService.saveBatchSensorData(batch);
+            if (rejected > 0) {
+                // 被拒绝的记录已确认WAL，不重投就会丢失；已入队的记录重投后重复写入
+                reconsumedBatches.increment();
+                log.warn("Write buffer full, {} of {} sensor data messages rejected, batch will be redelivered",
+                        rejected, batch.size());
+                return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+            }
+            if (!sensorDataWal.awaitDurable(durableTimeoutMillis)) {
+                // 已进入缓冲的数据重投后会重复写入，按至少一次语义处理
+                reconsumedBatches.increment();
+                log.warn("WAL sync timed out, {} sensor data messages will be redelivered", messages.size());
+                return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reconsumedBatches.increment();
+            return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+        } catch (Exception e) {
+            reconsumedBatches.increment();
+            log.error("Error enqueuing {} sensor data messages", batch.size(), e);
+            return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+        }
+
+        // 数据已可靠入队，告警检测失败不再触发重投
+        try {
+            ingestExecution.db().run(() -> alarmService.detectAlarms(batch));
+        } catch (Exception e) {
+            log.error("Error detecting alarms for {} sensor data records", batch.size(), e);
+        }
+
+        consumedBatches.increment();
+        consumedMessages.add(messages.size());
+        totalBatchMillis.add(System.currentTimeMillis() - start);
+        return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+    }
+
+    public Map<String, Object> getStats() {
+        long batches = consumedBatches.sum();
+        long messages = consumedMessages.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("batchSize", batchSize);
+        stats.put("consumedBatches", batches);
+        stats.put("consumedMessages", messages);
+        stats.put("avgBatchSize", batches == 0 ? 0 : messages / batches);
+        stats.put("avgBatchMillis", batches == 0 ? 0 : totalBatchMillis.sum() / batches);
+        stats.put("malformedMessages", malformedMessages.sum());
+        stats.put("reconsumedBatches", reconsumedBatches.sum());
+        return stats;
+    }
+
+    @Override
+    public void stop() {
+        if (running) {
+            consumer.shutdown();
+            running = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
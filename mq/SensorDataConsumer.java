@@ -2,10 +2,11 @@ package com.iot.platform.mq;
 
 import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
 import org.apache.rocketmq.spring.core.RocketMQListener;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 
 import com.iot.platform.entity.SensorData;
+import com.iot.platform.executor.IngestExecution;
 import com.iot.platform.service.AlarmService;
 import com.iot.platform.service.SensorDataService;
 
@@ -13,12 +14,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * 传感器数据消费者
+ * 传感器数据消费者（逐条模式，批量模式见 {@link SensorDataBatchConsumer}）
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-@ConditionalOnProperty(prefix = "rocketmq", value = "enabled", havingValue = "true")
+@ConditionalOnExpression("${rocketmq.enabled:false} and '${rocketmq.consumer.mode:SINGLE}' == 'SINGLE'")
 @RocketMQMessageListener(
     topic = "${rocketmq.consumer.topic}",
     consumerGroup = "${rocketmq.consumer.group}",
@@ -28,6 +29,7 @@ public class SensorDataConsumer implements RocketMQListener<SensorData> {
 
     private final SensorDataService sensorDataService;
     private final AlarmService alarmService;
+    private final IngestExecution ingestExecution;
 
     @Override
     public void onMessage(SensorData sensorData) {
@@ -36,7 +38,7 @@ public class SensorDataConsumer implements RocketMQListener<SensorData> {
             sensorDataService.saveSensorData(sensorData);
             
             // 进行异常检测
-            alarmService.detectAlarm(sensorData);
+            ingestExecution.db().run(() -> alarmService.detectAlarm(sensorData));
             
         } catch (Exception e) {
             log.error("Error processing sensor data", e);
@@ -0,0 +1,364 @@
+package com.iot.platform.mq;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.OverflowPolicy;
+import com.iot.platform.service.SensorDataService;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 传感器数据异步批量生产者
+ * <p>
+ * 按设备哈希分到多个有界本地队列，每个队列一个发送线程，攒批后用RocketMQ批量消息异步发送；
+ * 每个发送线程的在途批次数受限，Broker变慢时数据先积压在本地队列，队列满后按溢出策略阻塞或丢弃。
+ * 发送失败的批次按退避间隔重试，重试耗尽后直接写入本地存储（经WAL落库，不做告警检测），不丢数据。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "rocketmq", value = "enabled", havingValue = "true")
+public class SensorDataProducer implements SmartLifecycle {
+
+    private final DefaultMQProducer producer;
+    private final ObjectWriter writer;
+    private final SensorDataService sensorDataService;
+
+    @Value("${rocketmq.producer.topic:sensor-data}")
+    private String topic;
+
+    @Value("${rocketmq.producer.async.queue-count:4}")
+    private int queueCount;
+
+    @Value("${rocketmq.producer.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${rocketmq.producer.async.batch-size:128}")
+    private int batchSize;
+
+    @Value("${rocketmq.producer.async.linger:5}")
+    private long lingerMillis;
+
+    @Value("${rocketmq.producer.async.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${rocketmq.producer.async.send-timeout:3000}")
+    private long sendTimeoutMillis;
+
+    @Value("${rocketmq.producer.async.overflow-policy:BLOCK}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${rocketmq.producer.async.offer-timeout:100}")
+    private long offerTimeoutMillis;
+
+    @Value("${rocketmq.producer.async.retries:3}")
+    private int retries;
+
+    @Value("${rocketmq.producer.async.retry-backoff:200}")
+    private long retryBackoffMillis;
+
+    private SendQueue[] queues;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running = false;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sentMessages = new LongAdder();
+    private final LongAdder sentBatches = new LongAdder();
+    private final LongAdder failedMessages = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder retriedBatches = new LongAdder();
+    private final LongAdder fallbackMessages = new LongAdder();
+    private final LongAdder lostMessages = new LongAdder();
+    private final LongAdder totalSendMillis = new LongAdder();
+    private final AtomicLong maxSendMillis = new AtomicLong();
+
+    public SensorDataProducer(RocketMQTemplate rocketMQTemplate, ObjectMapper objectMapper,
+                              SensorDataService sensorDataService) {
+        this.producer = rocketMQTemplate.getProducer();
+        this.writer = objectMapper.writerFor(SensorData.class);
+        this.sensorDataService = sensorDataService;
+    }
+
+    /**
+     * 放入本地发送队列，不等待Broker响应
+     *
+     * @return 是否入队成功；队列满且超时（或策略为DROP）时返回false
+     */
+    public boolean send(SensorData data) {
+        SendQueue queue = queues[queueIndex(data)];
+        boolean accepted = queue.buffer.offer(data);
+        if (!accepted && overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                accepted = queue.buffer.offer(data, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!accepted) {
+            dropped.increment();
+            if ((dropped.sum() & 1023) == 1) {
+                log.warn("RocketMQ send buffer {} full, dropped {} sensor data messages so far", queue.index, dropped.sum());
+            }
+            return false;
+        }
+        enqueued.increment();
+        return true;
+    }
+
+    private int queueIndex(SensorData data) {
+        int h = data.getDeviceId() == null ? 0 : data.getDeviceId().hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % queues.length;
+    }
+
+    @PostConstruct
+    public void init() {
+        queues = new SendQueue[Math.max(1, queueCount)];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new SendQueue(i);
+        }
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rocketmq-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (SendQueue queue : queues) {
+            queue.thread.start();
+        }
+        log.info("RocketMQ async producer started: queues={}, batchSize={}, maxInFlight={}",
+                queues.length, batchSize, maxInFlight);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // 发送线程发完本地队列中剩余的数据后退出
+        for (SendQueue queue : queues) {
+            try {
+                queue.thread.join(10_000);
+                if (queue.inFlight.tryAcquire(maxInFlight, sendTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    queue.inFlight.release(maxInFlight);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!queue.buffer.isEmpty()) {
+                log.warn("RocketMQ send buffer {} stopped with {} unsent messages", queue.index, queue.buffer.size());
+            }
+        }
+        retryScheduler.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Map<String, Object> getStats() {
+        long batches = sentBatches.sum();
+        int depth = 0;
+        for (SendQueue queue : queues) {
+            depth += queue.buffer.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", depth);
+        stats.put("queueCapacity", queueCapacity * queues.length);
+        stats.put("enqueued", enqueued.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("sentBatches", batches);
+        stats.put("sentMessages", sentMessages.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("failedMessages", failedMessages.sum());
+        stats.put("retriedBatches", retriedBatches.sum());
+        stats.put("fallbackMessages", fallbackMessages.sum());
+        stats.put("lostMessages", lostMessages.sum());
+        stats.put("avgSendMillis", batches == 0 ? 0 : totalSendMillis.sum() / batches);
+        stats.put("maxSendMillis", maxSendMillis.get());
+        return stats;
+    }
+
+    private final class SendQueue implements Runnable {
+        final int index;
+        final BlockingQueue<SensorData> buffer;
+        final Semaphore inFlight;
+        final Thread thread;
+
+        SendQueue(int index) {
+            this.index = index;
+            this.buffer = new ArrayBlockingQueue<>(queueCapacity);
+            this.inFlight = new Semaphore(maxInFlight);
+            this.thread = new Thread(this, "rocketmq-sender-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<SensorData> batch = new ArrayList<>(batchSize);
+            while (running || !buffer.isEmpty()) {
+                try {
+                    collect(batch);
+                    if (!batch.isEmpty()) {
+                        inFlight.acquire();
+                        sendBatch(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 攒满一批或等待超过linger后返回
+         */
+        private void collect(List<SensorData> batch) throws InterruptedException {
+            SensorData first = buffer.poll(100, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+            while (batch.size() < batchSize) {
+                buffer.drainTo(batch, batchSize - batch.size());
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() >= batchSize || remaining <= 0) {
+                    return;
+                }
+                SensorData next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+            }
+        }
+
+        private void sendBatch(List<SensorData> batch) {
+            List<SensorData> serialized = new ArrayList<>(batch.size());
+            List<Message> messages = new ArrayList<>(batch.size());
+            for (SensorData data : batch) {
+                try {
+                    messages.add(new Message(topic, writer.writeValueAsBytes(data)));
+                    serialized.add(data);
+                } catch (Exception e) {
+                    failedMessages.increment();
+                    lostMessages.increment();
+                    log.error("Failed to serialize sensor data for RocketMQ", e);
+                }
+            }
+            if (messages.isEmpty()) {
+                inFlight.release();
+                return;
+            }
+            sendAsync(serialized, messages, 0);
+        }
+
+        /**
+         * 异步发送一批消息；在途许可一直持有到最终成功或转存本地，重试期间不再放出新批次
+         */
+        private void sendAsync(List<SensorData> batch, List<Message> messages, int attempt) {
+            long start = System.currentTimeMillis();
+            try {
+                producer.send(messages, new SendCallback() {
+                    @Override
+                    public void onSuccess(SendResult sendResult) {
+                        recordSent(messages.size(), System.currentTimeMillis() - start);
+                        inFlight.release();
+                    }
+
+                    @Override
+                    public void onException(Throwable e) {
+                        onSendFailed(batch, messages, attempt, e);
+                    }
+                }, sendTimeoutMillis);
+            } catch (Exception e) {
+                onSendFailed(batch, messages, attempt, e);
+            }
+        }
+
+        private void onSendFailed(List<SensorData> batch, List<Message> messages, int attempt, Throwable e) {
+            recordFailed(messages.size(), e);
+            if (attempt < retries && running) {
+                retriedBatches.increment();
+                try {
+                    retryScheduler.schedule(() -> sendAsync(batch, messages, attempt + 1),
+                            retryBackoffMillis << Math.min(attempt, 6), TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RuntimeException rejected) {
+                    log.warn("RocketMQ retry rejected, saving batch locally: {}", rejected.getMessage());
+                }
+            }
+            saveLocally(batch);
+            inFlight.release();
+        }
+    }
+
+    /**
+     * 重试耗尽时直接写入本地存储，保证数据落库
+     */
+    private void saveLocally(List<SensorData> batch) {
+        try {
+            int rejected = sensorDataService.saveBatchSensorData(batch);
+            fallbackMessages.add(batch.size() - rejected);
+            if (rejected > 0) {
+                lostMessages.add(rejected);
+                log.error("Write buffer full, lost {} sensor data messages that failed to send to RocketMQ", rejected);
+            } else {
+                log.warn("Saved {} sensor data messages locally after RocketMQ send failed", batch.size());
+            }
+        } catch (Exception e) {
+            lostMessages.add(batch.size());
+            log.error("Failed to save {} sensor data messages locally after RocketMQ send failed", batch.size(), e);
+        }
+    }
+
+    private void recordSent(int count, long millis) {
+        sentBatches.increment();
+        sentMessages.add(count);
+        totalSendMillis.add(millis);
+        maxSendMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    private void recordFailed(int count, Throwable e) {
+        failedBatches.increment();
+        failedMessages.add(count);
+        log.error("Failed to send {} sensor data messages to RocketMQ: {}", count, e.getMessage());
+    }
+}
@@ -11,6 +11,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.iot.platform.dto.SensorDataDTO;
 import com.iot.platform.entity.Device;
 import com.iot.platform.entity.SensorData;
+import com.iot.platform.scheduler.DeviceStatusTracker;
 import com.iot.platform.service.BatchProcessingService;
 import com.iot.platform.service.DeviceService;
 import com.iot.platform.websocket.WebSocketService;
@@ -27,9 +28,17 @@ public class DataCollectionHandler implements MessageHandler {
     private final DeviceService deviceService;
     private final BatchProcessingService batchProcessingService;
     private final WebSocketService webSocketService;
+    private final DeviceStatusTracker deviceStatusTracker;
 
+    /**
+     * 在MQTT入站分区线程上执行，同一设备的消息按到达顺序处理
+     */
     @Override
     public void handleMessage(Message<?> message) throws MessagingException {
+        process(message);
+    }
+
+    private void process(Message<?> message) {
         try {
             String topic = message.getHeaders().get("mqtt_receivedTopic", String.class);
             String payload = message.getPayload().toString();
@@ -53,9 +62,8 @@ public class DataCollectionHandler implements MessageHandler {
             // 添加到批处理队列
             batchProcessingService.addToBatch(sensorData);
             
-            // 更新设备状态并推送
-            deviceService.updateDeviceStatus(deviceCode, true);
-            webSocketService.pushDeviceStatusChange(deviceCode, true);
+            // 更新设备在线状态，状态变化时才推送
+            deviceStatusTracker.markSeen(deviceCode);
             
         } catch (Exception e) {
             log.error("Error processing data collection message", e);
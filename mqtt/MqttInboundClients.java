@@ -0,0 +1,103 @@
+package com.iot.platform.mqtt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
+import org.springframework.integration.mqtt.inbound.MqttPahoMessageDrivenChannelAdapter;
+import org.springframework.integration.mqtt.support.DefaultPahoMessageConverter;
+import org.springframework.messaging.MessageChannel;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 一组MQTT入站客户端
+ * <p>
+ * 每个客户端独立连接、独立Paho回调线程，消息统一发往同一个入站通道。
+ * 配置共享订阅组时订阅 $share/{group}/{topic}，同组的客户端（包括其他节点上的）由Broker分摊消息，
+ * 不会重复收到同一条消息。
+ */
+@Slf4j
+public class MqttInboundClients implements SmartLifecycle {
+
+    private final List<String> clientIds;
+    private final String topic;
+    private final PartitionedInboundHandler inboundHandler;
+    private final List<MqttPahoMessageDrivenChannelAdapter> adapters = new ArrayList<>();
+    private volatile boolean running = false;
+
+    public MqttInboundClients(List<String> clientIds, String topic, int qos,
+                              MqttPahoClientFactory clientFactory, MessageChannel outputChannel,
+                              PartitionedInboundHandler inboundHandler,
+                              BeanFactory beanFactory, ApplicationEventPublisher eventPublisher) {
+        this.clientIds = List.copyOf(clientIds);
+        this.topic = topic;
+        this.inboundHandler = inboundHandler;
+        for (String clientId : clientIds) {
+            MqttPahoMessageDrivenChannelAdapter adapter =
+                    new MqttPahoMessageDrivenChannelAdapter(clientId, clientFactory, topic);
+            adapter.setConverter(new DefaultPahoMessageConverter());
+            adapter.setQos(qos);
+            adapter.setOutputChannel(outputChannel);
+            adapter.setBeanFactory(beanFactory);
+            adapter.setApplicationEventPublisher(eventPublisher);
+            adapter.afterPropertiesSet();
+            adapters.add(adapter);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        for (MqttPahoMessageDrivenChannelAdapter adapter : adapters) {
+            adapter.start();
+        }
+        running = true;
+        log.info("Started {} MQTT inbound client(s) on {}", adapters.size(), topic);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        for (int i = 0; i < adapters.size(); i++) {
+            try {
+                adapters.get(i).stop();
+            } catch (Exception e) {
+                log.warn("Failed to stop MQTT inbound client {}", clientIds.get(i), e);
+            }
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 各客户端状态与入站分区积压
+     */
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> clients = new ArrayList<>(adapters.size());
+        for (int i = 0; i < adapters.size(); i++) {
+            Map<String, Object> client = new LinkedHashMap<>();
+            client.put("clientId", clientIds.get(i));
+            client.put("running", adapters.get(i).isRunning());
+            clients.add(client);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("topic", topic);
+        stats.put("clients", clients);
+        stats.putAll(inboundHandler.getStats());
+        return stats;
+    }
+}
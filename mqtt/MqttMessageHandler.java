@@ -2,8 +2,7 @@ package com.iot.platform.mqtt;
 
 import java.time.LocalDateTime;
 
-import org.apache.rocketmq.spring.core.RocketMQTemplate;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessagingException;
@@ -12,23 +11,28 @@ import org.springframework.stereotype.Component;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.iot.platform.dto.SensorDataDTO;
 import com.iot.platform.entity.SensorData;
+import com.iot.platform.mq.SensorDataProducer;
+import com.iot.platform.scheduler.DeviceStatusTracker;
 import com.iot.platform.service.DeviceService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * MQTT消息处理器
+ * MQTT消息处理器：把入站数据交给RocketMQ异步批量生产者
+ * <p>
+ * 开启 mqtt.inbound.forward-to-rocketmq 且RocketMQ启用时，由 MqttConfig 替代 {@link DataCollectionHandler} 订阅入站通道。
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-@ConditionalOnProperty(prefix = "mqtt", value = "enabled", havingValue = "true")
+@ConditionalOnExpression("${mqtt.enabled:false} and ${rocketmq.enabled:false} and ${mqtt.inbound.forward-to-rocketmq:false}")
 public class MqttMessageHandler implements MessageHandler {
 
     private final ObjectMapper objectMapper;
-    private final RocketMQTemplate rocketMQTemplate;
+    private final SensorDataProducer sensorDataProducer;
     private final DeviceService deviceService;
+    private final DeviceStatusTracker deviceStatusTracker;
 
     @Override
     public void handleMessage(Message<?> message) throws MessagingException {
@@ -36,7 +40,7 @@ public class MqttMessageHandler implements MessageHandler {
             String topic = message.getHeaders().get("mqtt_receivedTopic", String.class);
             String payload = message.getPayload().toString();
             
-            log.info("Received MQTT message - Topic: {}, Payload: {}", topic, payload);
+            log.debug("Received MQTT message - Topic: {}, Payload: {}", topic, payload);
 
             // 解析设备编号
             String deviceCode = parseDeviceCode(topic);
@@ -47,11 +51,11 @@ public class MqttMessageHandler implements MessageHandler {
             // 构建传感器数据实体
             SensorData sensorData = buildSensorData(deviceCode, sensorDataDTO);
             
-            // 发送数据到RocketMQ进行异步处理
-            rocketMQTemplate.convertAndSend("sensor-data", sensorData);
+            // 放入异步批量发送队列，不在MQTT回调线程上等待Broker
+            sensorDataProducer.send(sensorData);
             
             // 更新设备状态为在线
-            deviceService.updateDeviceStatus(deviceCode, true);
+            deviceStatusTracker.markSeen(deviceCode);
             
         } catch (Exception e) {
             log.error("Error processing MQTT message", e);
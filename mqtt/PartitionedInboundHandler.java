@@ -0,0 +1,62 @@
+package com.iot.platform.mqtt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+
+import com.iot.platform.executor.PartitionedExecutor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * MQTT入站消息按主题分区处理
+ * <p>
+ * 主题格式为 device/{deviceCode}/data，同一主题即同一设备，总是落到同一lane按到达顺序处理，
+ * 不同设备并行。lane队列满时阻塞Paho回调线程，把背压传回Broker。
+ */
+@Slf4j
+public class PartitionedInboundHandler implements MessageHandler, DisposableBean {
+
+    private static final String TOPIC_HEADER = "mqtt_receivedTopic";
+
+    private final MessageHandler delegate;
+    private final PartitionedExecutor executor;
+
+    public PartitionedInboundHandler(MessageHandler delegate, PartitionedExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public void handleMessage(Message<?> message) throws MessagingException {
+        String topic = message.getHeaders().get(TOPIC_HEADER, String.class);
+        try {
+            executor.execute(topic, () -> delegate.handleMessage(message));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException(message, "Interrupted while dispatching MQTT message", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lanes", executor.getLaneCount());
+        stats.put("queueDepth", executor.getQueueDepth());
+        return stats;
+    }
+
+    /**
+     * 入站客户端停止后调用，处理完已排队的消息
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (!executor.shutdown(10, TimeUnit.SECONDS)) {
+            log.warn("{} MQTT inbound messages still queued at shutdown", executor.getQueueDepth());
+        }
+    }
+}
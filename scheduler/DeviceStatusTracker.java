@@ -0,0 +1,289 @@
+package com.iot.platform.scheduler;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.iot.platform.cache.DeviceRegistry;
+import com.iot.platform.entity.Device;
+import com.iot.platform.mapper.DeviceMapper;
+import com.iot.platform.websocket.WebSocketService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 设备在线状态跟踪（写后回写）
+ * <p>
+ * 内存中维护每台设备的最后上报时间与在线状态：只有状态真正变化时才推送WebSocket事件并登记数据库更新，
+ * 状态变化与最后上报时间按固定间隔批量回写。每台在线设备在时间轮中只有一个超时检查，
+ * 到期时若期间有新数据则按最后上报时间顺延，否则判定离线。
+ * <p>
+ * 多节点部署时同一设备的数据可能落在不同节点：回写时各节点把最后上报时间合并到Redis哈希，
+ * 本节点超时后先查看集群内的最后上报时间，其他节点近期收到过数据则继续顺延，避免设备在各节点间反复上下线。
+ * 状态回写后失效DeviceRegistry中的缓存，最后上报时间只就地更新本节点的缓存副本。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeviceStatusTracker {
+
+    private static final int UPDATE_CHUNK_SIZE = 500;
+    /** 集群内各设备最后上报时间（毫秒），field为设备编码 */
+    private static final String LAST_SEEN_KEY = "iot:device:last-seen";
+
+    private final DeviceMapper deviceMapper;
+    private final WebSocketService webSocketService;
+    private final DeviceRegistry deviceRegistry;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${device.status.offline-timeout:300000}")
+    private long offlineTimeoutMillis;
+
+    @Value("${device.status.tick:1000}")
+    private long tickMillis;
+
+    private final ConcurrentHashMap<String, DeviceState> states = new ConcurrentHashMap<>();
+    /** 待回写的状态变化，同一设备多次变化只保留最后一次 */
+    private final ConcurrentHashMap<String, Boolean> pendingStatus = new ConcurrentHashMap<>();
+    private TimingWheel<DeviceState> timingWheel;
+
+    private final LongAdder onlineTransitions = new LongAdder();
+    private final LongAdder offlineTransitions = new LongAdder();
+    private final LongAdder statusRowsUpdated = new LongAdder();
+    private final LongAdder lastSeenRowsUpdated = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        long now = System.currentTimeMillis();
+        int wheelSize = (int) Math.max(16, offlineTimeoutMillis / tickMillis + 1);
+        timingWheel = new TimingWheel<>(tickMillis, wheelSize, now);
+        // 上次运行时在线的设备先视为在线，超时内没有数据再转为离线
+        try {
+            List<Device> onlineDevices = deviceMapper.selectList(new QueryWrapper<Device>().eq("status", true));
+            for (Device device : onlineDevices) {
+                DeviceState state = new DeviceState(device.getDeviceCode(), now, true);
+                states.put(state.deviceCode, state);
+                timingWheel.schedule(state, now + offlineTimeoutMillis);
+            }
+            log.info("Device status tracker started with {} online devices", onlineDevices.size());
+        } catch (Exception e) {
+            log.warn("Failed to load online devices, status tracking starts empty", e);
+        }
+    }
+
+    /**
+     * 收到设备数据时调用（接入热路径）：只更新内存，离线转在线时才推送事件
+     */
+    public void markSeen(String deviceCode) {
+        if (deviceCode == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        DeviceState state = states.get(deviceCode);
+        if (state == null) {
+            state = states.computeIfAbsent(deviceCode, code -> new DeviceState(code, now, false));
+        }
+        // 与checkOffline在同一把锁内读写lastSeen，避免刚判定离线时丢掉这次上报
+        synchronized (state) {
+            state.lastSeen = now;
+            state.lastSeenDirty = true;
+            if (!state.online) {
+                state.online = true;
+                timingWheel.schedule(state, now + offlineTimeoutMillis);
+                transition(state.deviceCode, true);
+            }
+        }
+    }
+
+    public boolean isOnline(String deviceCode) {
+        DeviceState state = states.get(deviceCode);
+        return state != null && state.online;
+    }
+
+    /**
+     * 推进时间轮，检查到期设备是否离线
+     */
+    @Scheduled(fixedRateString = "${device.status.tick:1000}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        timingWheel.advance(now, state -> checkOffline(state, now));
+    }
+
+    private void checkOffline(DeviceState state, long now) {
+        // 本节点已超时才查询集群内的最后上报时间，查询放在锁外
+        long clusterLastSeen = state.online && state.lastSeen + offlineTimeoutMillis <= now
+                ? clusterLastSeen(state.deviceCode)
+                : 0;
+        synchronized (state) {
+            if (!state.online) {
+                return;
+            }
+            long deadline = Math.max(state.lastSeen, clusterLastSeen) + offlineTimeoutMillis;
+            if (deadline > now) {
+                // 期间有新数据，按最后上报时间顺延
+                timingWheel.schedule(state, deadline);
+                return;
+            }
+            state.online = false;
+            transition(state.deviceCode, false);
+        }
+    }
+
+    private long clusterLastSeen(String deviceCode) {
+        try {
+            Object value = stringRedisTemplate.opsForHash().get(LAST_SEEN_KEY, deviceCode);
+            return value == null ? 0 : Long.parseLong(value.toString());
+        } catch (Exception e) {
+            // Redis不可用时按本节点的状态判断
+            log.debug("Failed to read cluster last seen time of {}", deviceCode, e);
+            return 0;
+        }
+    }
+
+    private void transition(String deviceCode, boolean online) {
+        (online ? onlineTransitions : offlineTransitions).increment();
+        pendingStatus.put(deviceCode, online);
+        webSocketService.pushDeviceStatusChange(deviceCode, online);
+    }
+
+    /**
+     * 批量回写状态变化与最后上报时间
+     */
+    @Scheduled(fixedDelayString = "${device.status.flush-interval:5000}")
+    public void flush() {
+        flushStatus();
+        flushLastSeen();
+    }
+
+    private void flushStatus() {
+        if (pendingStatus.isEmpty()) {
+            return;
+        }
+        List<String> online = new ArrayList<>();
+        List<String> offline = new ArrayList<>();
+        for (String deviceCode : List.copyOf(pendingStatus.keySet())) {
+            Boolean status = pendingStatus.remove(deviceCode);
+            if (status != null) {
+                (status ? online : offline).add(deviceCode);
+            }
+        }
+        updateStatus(online, true);
+        updateStatus(offline, false);
+    }
+
+    private void updateStatus(List<String> deviceCodes, boolean status) {
+        for (int from = 0; from < deviceCodes.size(); from += UPDATE_CHUNK_SIZE) {
+            List<String> chunk = deviceCodes.subList(from, Math.min(from + UPDATE_CHUNK_SIZE, deviceCodes.size()));
+            try {
+                statusRowsUpdated.add(deviceMapper.updateStatusByCodes(chunk, status));
+                deviceRegistry.invalidate(chunk);
+            } catch (Exception e) {
+                flushFailures.increment();
+                log.error("Failed to update status of {} devices, will retry", chunk.size(), e);
+                // 期间若已有更新的状态则以新状态为准
+                chunk.forEach(code -> pendingStatus.putIfAbsent(code, status));
+            }
+        }
+    }
+
+    private void flushLastSeen() {
+        ZoneId zone = ZoneId.systemDefault();
+        List<Device> batch = new ArrayList<>(UPDATE_CHUNK_SIZE);
+        List<DeviceState> batchStates = new ArrayList<>(UPDATE_CHUNK_SIZE);
+        for (DeviceState state : states.values()) {
+            if (!state.lastSeenDirty) {
+                continue;
+            }
+            state.lastSeenDirty = false;
+            Device device = new Device();
+            device.setDeviceCode(state.deviceCode);
+            device.setLastSeen(LocalDateTime.ofInstant(Instant.ofEpochMilli(state.lastSeen), zone));
+            batch.add(device);
+            batchStates.add(state);
+            if (batch.size() >= UPDATE_CHUNK_SIZE) {
+                updateLastSeen(batch, batchStates);
+                batch = new ArrayList<>(UPDATE_CHUNK_SIZE);
+                batchStates = new ArrayList<>(UPDATE_CHUNK_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            updateLastSeen(batch, batchStates);
+        }
+    }
+
+    private void updateLastSeen(List<Device> batch, List<DeviceState> batchStates) {
+        publishLastSeen(batchStates);
+        try {
+            lastSeenRowsUpdated.add(deviceMapper.updateLastSeenBatch(batch));
+            batch.forEach(device -> deviceRegistry.touchLastSeen(device.getDeviceCode(), device.getLastSeen()));
+        } catch (Exception e) {
+            flushFailures.increment();
+            log.error("Failed to update last seen time of {} devices, will retry", batch.size(), e);
+            batchStates.forEach(state -> state.lastSeenDirty = true);
+        }
+    }
+
+    /**
+     * 把本节点的最后上报时间合并到集群哈希，供其他节点判断离线
+     */
+    private void publishLastSeen(List<DeviceState> batchStates) {
+        Map<String, String> values = new HashMap<>(batchStates.size() * 2);
+        for (DeviceState state : batchStates) {
+            values.put(state.deviceCode, Long.toString(state.lastSeen));
+        }
+        try {
+            stringRedisTemplate.opsForHash().putAll(LAST_SEEN_KEY, values);
+        } catch (Exception e) {
+            log.warn("Failed to publish last seen time of {} devices to Redis", values.size(), e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long online = states.values().stream().filter(state -> state.online).count();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedDevices", states.size());
+        stats.put("onlineDevices", online);
+        stats.put("pendingStatusUpdates", pendingStatus.size());
+        stats.put("onlineTransitions", onlineTransitions.sum());
+        stats.put("offlineTransitions", offlineTransitions.sum());
+        stats.put("statusRowsUpdated", statusRowsUpdated.sum());
+        stats.put("lastSeenRowsUpdated", lastSeenRowsUpdated.sum());
+        stats.put("flushFailures", flushFailures.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static final class DeviceState {
+        final String deviceCode;
+        volatile long lastSeen;
+        volatile boolean lastSeenDirty;
+        volatile boolean online;
+
+        DeviceState(String deviceCode, long lastSeen, boolean online) {
+            this.deviceCode = deviceCode;
+            this.lastSeen = lastSeen;
+            this.online = online;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.iot.platform.scheduler;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.iot.platform.cache.SignalDataCache;
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.WriteStrategy;
+import com.iot.platform.wal.SensorDataWal;
+import com.iot.platform.writer.SensorDataWriter;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * sensor_data写入引擎
+ * <p>
+ * 所有对sensor_data的批量写入都经由此处：最多maxInFlight个批次并行写库，
+ * 失败按指数退避重试，并统计写入延迟与积压情况。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SensorDataFlusher {
+
+    private final List<SensorDataWriter> writers;
+    private final SignalDataCache signalDataCache;
+    private final SensorDataWal sensorDataWal;
+    private final SensorDataRollupAccumulator rollupAccumulator;
+
+    @Value("${batch.flush.write-strategy:MAPPER_FOREACH}")
+    private WriteStrategy writeStrategy;
+
+    @Value("${batch.flush.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${batch.flush.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${batch.flush.retry-backoff:200}")
+    private long retryBackoffMillis;
+
+    @Value("${batch.flush.max-backoff:5000}")
+    private long maxBackoffMillis;
+
+    private SensorDataWriter writer;
+    private ExecutorService writerPool;
+    private Semaphore inFlightPermits;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder flushedBatches = new LongAdder();
+    private final LongAdder flushedRecords = new LongAdder();
+    private final LongAdder retriedBatches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder failedRecords = new LongAdder();
+    private final LongAdder totalLatencyMillis = new LongAdder();
+    private final AtomicLong lastLatencyMillis = new AtomicLong();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        writer = writers.stream()
+            .filter(w -> w.strategy() == writeStrategy)
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("No sensor data writer for strategy " + writeStrategy));
+        log.info("Sensor data flusher using write strategy {}", writeStrategy);
+        inFlightPermits = new Semaphore(maxInFlight);
+        AtomicInteger threadIndex = new AtomicInteger();
+        writerPool = new ThreadPoolExecutor(
+            maxInFlight, maxInFlight,
+            60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> {
+                Thread thread = new Thread(r, "sensor-data-flusher-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+    }
+
+    /**
+     * 提交一批数据异步写库；在途批次达到上限时阻塞调用方，形成背压
+     */
+    public void submit(List<SensorData> batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        inFlightPermits.acquire();
+        inFlight.incrementAndGet();
+        try {
+            writerPool.execute(() -> {
+                try {
+                    flushWithRetry(batch);
+                } finally {
+                    inFlight.decrementAndGet();
+                    inFlightPermits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            inFlightPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 在调用线程上同步写出一批数据（用于停机时的收尾）
+     */
+    public void flushNow(List<SensorData> batch) {
+        if (!batch.isEmpty()) {
+            flushWithRetry(batch);
+        }
+    }
+
+    /**
+     * 等待所有在途批次完成
+     */
+    public void awaitInFlight(long timeoutMillis) throws InterruptedException {
+        if (inFlightPermits.tryAcquire(maxInFlight, timeoutMillis, TimeUnit.MILLISECONDS)) {
+            inFlightPermits.release(maxInFlight);
+        } else {
+            log.warn("Timed out waiting for {} in-flight sensor data batches", inFlight.get());
+        }
+    }
+
+    private void flushWithRetry(List<SensorData> batch) {
+        long backoff = retryBackoffMillis;
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                writer.write(batch);
+                sensorDataWal.acknowledge(batch);
+                recordSuccess(batch.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (Exception e) {
+                if (attempt >= maxRetries) {
+                    failedBatches.increment();
+                    failedRecords.add(batch.size());
+                    // 未确认的数据保留在WAL中，下次启动时重放
+                    log.error("Failed to flush {} sensor data records after {} attempts", batch.size(), attempt + 1, e);
+                    return;
+                }
+                retriedBatches.increment();
+                log.warn("Flush of {} sensor data records failed (attempt {}), retrying in {} ms: {}",
+                        batch.size(), attempt + 1, backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                backoff = Math.min(backoff * 2, maxBackoffMillis);
+                continue;
+            }
+            // 只累加已落库的数据；放在try之外，预聚合出错不会触发原始数据重写
+            rollupAccumulator.accumulate(batch);
+            return;
+        }
+    }
+
+    private void recordSuccess(int records, long latencyMillis) {
+        flushedBatches.increment();
+        flushedRecords.add(records);
+        totalLatencyMillis.add(latencyMillis);
+        lastLatencyMillis.set(latencyMillis);
+        maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+    }
+
+    /**
+     * 写入统计快照
+     */
+    public Map<String, Object> getStats() {
+        long batches = flushedBatches.sum();
+        long latencySum = totalLatencyMillis.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("writeStrategy", writeStrategy);
+        stats.put("queueDepth", signalDataCache.size());
+        stats.put("queueCapacity", signalDataCache.capacity());
+        stats.put("droppedRecords", signalDataCache.getDroppedCount());
+        stats.put("inFlightBatches", inFlight.get());
+        stats.put("flushedBatches", batches);
+        stats.put("flushedRecords", flushedRecords.sum());
+        stats.put("retriedBatches", retriedBatches.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("failedRecords", failedRecords.sum());
+        stats.put("lastLatencyMillis", lastLatencyMillis.get());
+        stats.put("maxLatencyMillis", maxLatencyMillis.get());
+        stats.put("avgLatencyMillis", batches == 0 ? 0 : latencySum / batches);
+        // 单个写入线程的有效吞吐，用于比较不同写入策略
+        stats.put("writeRecordsPerSecond", latencySum == 0 ? 0 : flushedRecords.sum() * 1000 / latencySum);
+        stats.put("writer", writer.getStats());
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${batch.flush.report-interval:60000}")
+    public void reportStats() {
+        log.info("Sensor data flush stats: {}", getStats());
+    }
+
+    public void shutdown() {
+        writerPool.shutdown();
+        try {
+            if (!writerPool.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Sensor data flusher did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.iot.platform.scheduler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.iot.platform.enums.PartitionGranularity;
+import com.iot.platform.mapper.SensorDataPartitionMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * sensor_data按采集时间分区的维护任务
+ * <p>
+ * 表按 RANGE COLUMNS(collect_time) 分区（见建表脚本），每个分区为一天或一周，分区名为 p+起始日期，
+ * 另有 pmax 兜底。启动时及每天定时：从 pmax 中拆出未来若干个分区，并整区 DROP 超过保留期的分区，
+ * 不再逐行 DELETE。按时间范围查询时MySQL只扫描相关分区。多节点部署时通过Redisson锁只由一个节点执行。
+ * <p>
+ * 拆分 pmax 时MySQL会复制其中已有的行并阻塞写入，因此只在 pmax 中的行数不超过 max-reorganize-rows 时自动执行；
+ * 超过时（已有数据的表迁移到分区表，或停机超过提前创建的天数）只打印应在维护窗口手工执行的DDL。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SensorDataPartitionManager {
+
+    private static final String MAX_PARTITION = "pmax";
+    private static final String MAXVALUE = "MAXVALUE";
+    private static final String LOCK_NAME = "iot:lock:sensor-data-partition";
+    private static final DateTimeFormatter NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter BOUND_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final SensorDataPartitionMapper partitionMapper;
+    private final RedissonClient redissonClient;
+
+    @Value("${sensor-data.partition.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sensor-data.partition.granularity:DAY}")
+    private PartitionGranularity granularity;
+
+    @Value("${sensor-data.partition.ahead:7}")
+    private int ahead;
+
+    @Value("${sensor-data.partition.retention-days:0}")
+    private int retentionDays;
+
+    @Value("${sensor-data.partition.max-reorganize-rows:100000}")
+    private long maxReorganizeRows;
+
+    private volatile int partitionCount;
+    private volatile LocalDateTime oldestBound;
+    private volatile LocalDateTime newestBound;
+    private volatile LocalDateTime lastMaintained;
+    private final LongAdder createdPartitions = new LongAdder();
+    private final LongAdder droppedPartitions = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${sensor-data.partition.cron:0 10 0 * * ?}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(LOCK_NAME);
+        boolean locked = false;
+        try {
+            // 不指定租期，由看门狗续期，DDL耗时较长时锁也不会中途过期
+            locked = lock.tryLock(0, TimeUnit.SECONDS);
+            if (!locked) {
+                log.debug("Sensor data partition maintenance is running on another node");
+                return;
+            }
+            maintainPartitions(LocalDate.now());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Sensor data partition maintenance failed", e);
+        } finally {
+            if (locked) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void maintainPartitions(LocalDate today) {
+        List<Map<String, Object>> partitions = partitionMapper.selectPartitions();
+        if (partitions.isEmpty()) {
+            log.warn("sensor_data is not partitioned, skipping partition maintenance; see the schema script for the partitioned layout");
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        List<LocalDateTime> bounds = new ArrayList<>();
+        boolean hasMax = false;
+        for (Map<String, Object> partition : partitions) {
+            String description = String.valueOf(partition.get("description"));
+            if (MAXVALUE.equalsIgnoreCase(description)) {
+                hasMax = true;
+                continue;
+            }
+            names.add(String.valueOf(partition.get("name")));
+            bounds.add(LocalDateTime.parse(description.replace("'", ""), BOUND_FORMATTER));
+        }
+
+        createAhead(today, bounds, hasMax);
+        dropExpired(today, names, bounds);
+
+        partitionCount = bounds.size() + (hasMax ? 1 : 0);
+        oldestBound = bounds.isEmpty() ? null : bounds.get(0);
+        newestBound = bounds.isEmpty() ? null : bounds.get(bounds.size() - 1);
+        lastMaintained = LocalDateTime.now();
+    }
+
+    /**
+     * 保证从今天起至少还有ahead个分区，避免新数据落入pmax
+     */
+    private void createAhead(LocalDate today, List<LocalDateTime> bounds, boolean hasMax) {
+        LocalDate current = granularity.floor(today);
+        LocalDate target = current;
+        for (int i = 0; i <= ahead; i++) {
+            target = granularity.next(target);
+        }
+        LocalDate start = bounds.isEmpty() ? current : bounds.get(bounds.size() - 1).toLocalDate();
+        if (!start.isBefore(target)) {
+            return;
+        }
+        List<String> definitions = new ArrayList<>();
+        if (start.isBefore(current)) {
+            // 停机较久时，缺失的历史区间合成一个分区补齐
+            definitions.add(definition(start, current));
+            bounds.add(current.atStartOfDay());
+            start = current;
+        }
+        while (start.isBefore(target)) {
+            LocalDate end = granularity.next(start);
+            definitions.add(definition(start, end));
+            bounds.add(end.atStartOfDay());
+            start = end;
+        }
+        String clause = hasMax
+                ? "REORGANIZE PARTITION " + MAX_PARTITION + " INTO (" + String.join(", ", definitions)
+                        + ", PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE))"
+                : "ADD PARTITION (" + String.join(", ", definitions) + ")";
+        if (hasMax && partitionMapper.countMaxPartitionRows(maxReorganizeRows + 1) > maxReorganizeRows) {
+            bounds.subList(bounds.size() - definitions.size(), bounds.size()).clear();
+            log.error("sensor_data partition {} holds more than {} rows, reorganizing it would copy them while blocking writes; "
+                    + "run this offline in a maintenance window: ALTER TABLE sensor_data {}",
+                    MAX_PARTITION, maxReorganizeRows, clause);
+            return;
+        }
+        partitionMapper.alterPartitions(clause);
+        createdPartitions.add(definitions.size());
+        log.info("Created {} sensor_data partitions up to {}", definitions.size(), target);
+    }
+
+    /**
+     * 整区删除上界不晚于保留期起点的分区
+     */
+    private void dropExpired(LocalDate today, List<String> names, List<LocalDateTime> bounds) {
+        if (retentionDays <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = today.minusDays(retentionDays).atStartOfDay();
+        List<String> expired = new ArrayList<>();
+        // names只包含已有分区，新建的分区都在未来，不会过期
+        for (int i = 0; i < names.size(); i++) {
+            if (!bounds.get(i).isAfter(cutoff)) {
+                expired.add(names.get(i));
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        partitionMapper.alterPartitions("DROP PARTITION " + String.join(", ", expired));
+        bounds.subList(0, expired.size()).clear();
+        droppedPartitions.add(expired.size());
+        log.info("Dropped {} expired sensor_data partitions before {}: {}", expired.size(), cutoff, expired);
+    }
+
+    private static String definition(LocalDate start, LocalDate end) {
+        return "PARTITION p" + start.format(NAME_FORMATTER)
+                + " VALUES LESS THAN ('" + end.atStartOfDay().format(BOUND_FORMATTER) + "')";
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("granularity", granularity);
+        stats.put("retentionDays", retentionDays);
+        stats.put("partitions", partitionCount);
+        stats.put("oldestBound", oldestBound);
+        stats.put("newestBound", newestBound);
+        stats.put("lastMaintained", lastMaintained);
+        stats.put("createdPartitions", createdPartitions.sum());
+        stats.put("droppedPartitions", droppedPartitions.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,258 @@
+package com.iot.platform.scheduler;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.entity.SensorDataRollup;
+import com.iot.platform.enums.RollupResolution;
+import com.iot.platform.mapper.SensorDataRollupMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 传感器数据预聚合的增量维护
+ * <p>
+ * sensor_data每批写库成功后，在内存中按设备、通道、时间桶累加到分钟/小时/天三级桶，
+ * 定时以 INSERT ... ON DUPLICATE KEY UPDATE 合并进汇总表。统计查询直接读汇总表，
+ * 不再对原始数据 GROUP BY。写库失败的桶留在内存中，下次刷新时重试。
+ * <p>
+ * 正常停机时会刷新一次；进程崩溃时最多丢失一个刷新间隔（rollup.flush-interval）内累加的桶。
+ * 每次全部桶写入成功后在sensor_data_rollup_mark中记录本节点的水位，崩溃节点留下的过期水位
+ * 由{@link SensorDataRollupRepairer}从sensor_data重建其后的汇总。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SensorDataRollupAccumulator {
+
+    private static final RollupResolution[] RESOLUTIONS = RollupResolution.values();
+
+    private final SensorDataRollupMapper rollupMapper;
+
+    @Value("${rollup.batch-size:500}")
+    private int batchSize;
+
+    @Value("${rollup.minute-retention-days:30}")
+    private int minuteRetentionDays;
+
+    @Value("${rollup.repair.enabled:true}")
+    private boolean repairEnabled;
+
+    /** 汇总水位按进程区分，重启后是新节点，旧水位由修复任务清理 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /** 累加持有读锁，刷新时持有写锁换出待写入的桶 */
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private Map<RollupResolution, Map<RollupKey, SensorDataRollup>> pending = newPending();
+
+    private final LongAdder accumulatedRecords = new LongAdder();
+    private final LongAdder upsertedBuckets = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder purgedBuckets = new LongAdder();
+    private final LongAdder failedMarks = new LongAdder();
+    private volatile long lastFlushMillis;
+    private volatile LocalDateTime lastMark;
+
+    /**
+     * 累加一批已落库的数据
+     */
+    public void accumulate(List<SensorData> batch) {
+        // 先在批内合并，减少对共享桶的竞争
+        Map<RollupKey, SensorDataRollup> minuteBuckets = new HashMap<>();
+        for (SensorData data : batch) {
+            if (data.getDataValue() == null || data.getCollectTime() == null) {
+                continue;
+            }
+            LocalDateTime bucketTime = RollupResolution.MINUTE.floor(data.getCollectTime());
+            minuteBuckets.computeIfAbsent(new RollupKey(data.getDeviceId(), data.getChannelId(), bucketTime),
+                    key -> new SensorDataRollup(key.deviceId(), key.channelId(), key.bucketTime()))
+                .add(data.getDataValue());
+        }
+        swapLock.readLock().lock();
+        try {
+            for (SensorDataRollup minute : minuteBuckets.values()) {
+                for (RollupResolution resolution : RESOLUTIONS) {
+                    mergeInto(pending.get(resolution), resolution, minute);
+                }
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        accumulatedRecords.add(batch.size());
+    }
+
+    private static void mergeInto(Map<RollupKey, SensorDataRollup> buckets, RollupResolution resolution,
+                                  SensorDataRollup source) {
+        RollupKey key = new RollupKey(source.getDeviceId(), source.getChannelId(),
+                resolution.floor(source.getBucketTime()));
+        buckets.compute(key, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = new SensorDataRollup(k.deviceId(), k.channelId(), k.bucketTime());
+            }
+            bucket.merge(source);
+            return bucket;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${rollup.flush-interval:5000}")
+    public void flush() {
+        flushPending();
+    }
+
+    /**
+     * 换出并写入待刷新的桶，全部写入成功时推进本节点水位
+     *
+     * @return 是否全部写入成功
+     */
+    private boolean flushPending() {
+        Map<RollupResolution, Map<RollupKey, SensorDataRollup>> snapshot;
+        LocalDateTime swappedAt;
+        swapLock.writeLock().lock();
+        try {
+            snapshot = pending;
+            pending = newPending();
+            swappedAt = LocalDateTime.now();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        long start = System.currentTimeMillis();
+        boolean succeeded = true;
+        for (RollupResolution resolution : RESOLUTIONS) {
+            Map<RollupKey, SensorDataRollup> buckets = snapshot.get(resolution);
+            if (!buckets.isEmpty()) {
+                succeeded &= upsert(resolution, buckets);
+            }
+        }
+        lastFlushMillis = System.currentTimeMillis() - start;
+        if (succeeded) {
+            // 换出之前累加的增量都已入库；写库到累加之间的延迟和迟到数据由修复任务的回看时长覆盖
+            saveMark(swappedAt);
+        }
+        return succeeded;
+    }
+
+    private void saveMark(LocalDateTime markTime) {
+        if (!repairEnabled) {
+            return;
+        }
+        try {
+            rollupMapper.saveMark(nodeId, markTime);
+            lastMark = markTime;
+        } catch (Exception e) {
+            failedMarks.increment();
+            log.debug("Failed to save rollup mark: {}", e.getMessage());
+        }
+    }
+
+    private boolean upsert(RollupResolution resolution, Map<RollupKey, SensorDataRollup> buckets) {
+        List<SensorDataRollup> rollups = new ArrayList<>(buckets.values());
+        boolean succeeded = true;
+        for (int from = 0; from < rollups.size(); from += batchSize) {
+            List<SensorDataRollup> chunk = rollups.subList(from, Math.min(from + batchSize, rollups.size()));
+            try {
+                rollupMapper.upsertBatch(resolution.getTable(), chunk);
+                upsertedBuckets.add(chunk.size());
+            } catch (Exception e) {
+                failedFlushes.increment();
+                log.warn("Failed to upsert {} {} rollup buckets, will retry: {}",
+                        chunk.size(), resolution, e.getMessage());
+                requeue(resolution, chunk);
+                succeeded = false;
+            }
+        }
+        return succeeded;
+    }
+
+    private void requeue(RollupResolution resolution, List<SensorDataRollup> chunk) {
+        swapLock.readLock().lock();
+        try {
+            Map<RollupKey, SensorDataRollup> buckets = pending.get(resolution);
+            for (SensorDataRollup rollup : chunk) {
+                mergeInto(buckets, resolution, rollup);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 分钟桶只保留最近一段时间，小时桶和天桶体量小，长期保留
+     */
+    @Scheduled(cron = "${rollup.purge-cron:0 20 0 * * ?}")
+    public void purgeMinuteRollups() {
+        if (minuteRetentionDays <= 0) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusDays(minuteRetentionDays).truncatedTo(RollupResolution.DAY.getUnit());
+        try {
+            int deleted;
+            do {
+                deleted = rollupMapper.deleteBefore(RollupResolution.MINUTE.getTable(), before, batchSize * 10);
+                purgedBuckets.add(deleted);
+            } while (deleted > 0);
+        } catch (Exception e) {
+            log.error("Failed to purge minute rollups before {}", before, e);
+        }
+    }
+
+    private static Map<RollupResolution, Map<RollupKey, SensorDataRollup>> newPending() {
+        Map<RollupResolution, Map<RollupKey, SensorDataRollup>> map = new EnumMap<>(RollupResolution.class);
+        for (RollupResolution resolution : RESOLUTIONS) {
+            map.put(resolution, new ConcurrentHashMap<>());
+        }
+        return map;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> pendingBuckets = new LinkedHashMap<>();
+        swapLock.readLock().lock();
+        try {
+            pending.forEach((resolution, buckets) -> pendingBuckets.put(resolution.name(), buckets.size()));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        stats.put("pendingBuckets", pendingBuckets);
+        stats.put("accumulatedRecords", accumulatedRecords.sum());
+        stats.put("upsertedBuckets", upsertedBuckets.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        stats.put("purgedMinuteBuckets", purgedBuckets.sum());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("lastMark", lastMark);
+        stats.put("failedMarks", failedMarks.sum());
+        return stats;
+    }
+
+    /**
+     * 停机时刷新剩余的桶；全部入库后删除本节点水位，无需修复
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (flushPending() && repairEnabled) {
+            try {
+                rollupMapper.deleteMark(nodeId);
+            } catch (Exception e) {
+                log.warn("Failed to delete rollup mark {}: {}", nodeId, e.getMessage());
+            }
+        }
+    }
+
+    private record RollupKey(Integer deviceId, String channelId, LocalDateTime bucketTime) {
+    }
+}
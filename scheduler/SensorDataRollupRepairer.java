@@ -0,0 +1,149 @@
+package com.iot.platform.scheduler;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.iot.platform.enums.RollupResolution;
+import com.iot.platform.mapper.SensorDataRollupMapper;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 崩溃节点的汇总修复
+ * <p>
+ * 原始数据写库、确认WAL之后才累加汇总增量，进程崩溃时尚未刷新的增量丢失，汇总表偏少。
+ * 每个节点刷新成功后更新自己的水位，正常停机时删除；超过 stale-after 未更新的水位说明节点已崩溃。
+ * 启动时（WAL重放之前）及定时检查：从最早的过期水位往前回看 lookback 起，分钟桶从sensor_data重新计算，
+ * 小时桶由分钟桶、天桶由小时桶合并，均覆盖写入，然后删除这些水位。多节点部署时通过Redisson锁只由一个节点执行。
+ * <p>
+ * 其他节点仍在累加最近的分钟桶，因此最近一分钟的分钟桶不重建；小时桶和天桶由已入库的细粒度桶合并，
+ * 其他节点之后刷新的增量会同时加到各级桶上，不会重复计数。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SensorDataRollupRepairer {
+
+    private static final String LOCK_NAME = "iot:lock:sensor-data-rollup-repair";
+    private static final long STARTUP_LOCK_WAIT_SECONDS = 300;
+
+    private final SensorDataRollupMapper rollupMapper;
+    private final RedissonClient redissonClient;
+
+    @Value("${rollup.repair.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rollup.repair.stale-after:600000}")
+    private long staleAfterMillis;
+
+    @Value("${rollup.repair.lookback:300000}")
+    private long lookbackMillis;
+
+    @Value("${rollup.minute-retention-days:30}")
+    private int minuteRetentionDays;
+
+    private final LongAdder repairs = new LongAdder();
+    private final LongAdder replacedRows = new LongAdder();
+    private volatile LocalDateTime lastRepairedSince;
+    private volatile long lastRepairMillis;
+
+    /**
+     * 在消费线程启动、重放WAL之前执行：重放的数据会再累加一次，若与覆盖重建交错则会重复计数，
+     * 因此其他节点正在修复时等它完成
+     */
+    @PostConstruct
+    public void onStartup() {
+        repair(STARTUP_LOCK_WAIT_SECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${rollup.repair.check-interval:300000}",
+            initialDelayString = "${rollup.repair.check-interval:300000}")
+    public void repair() {
+        repair(0);
+    }
+
+    private void repair(long lockWaitSeconds) {
+        if (!enabled) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(LOCK_NAME);
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(lockWaitSeconds, TimeUnit.SECONDS);
+            if (!locked) {
+                log.debug("Rollup repair is running on another node");
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime staleBefore = now.minusNanos(TimeUnit.MILLISECONDS.toNanos(staleAfterMillis));
+            LocalDateTime oldestMark = rollupMapper.selectOldestStaleMark(staleBefore);
+            if (oldestMark == null) {
+                return;
+            }
+            LocalDateTime since = oldestMark.minusNanos(TimeUnit.MILLISECONDS.toNanos(lookbackMillis));
+            LocalDateTime retainedSince = RollupResolution.minuteRetainedSince(minuteRetentionDays);
+            if (retainedSince != null && since.isBefore(retainedSince)) {
+                // 更早的分钟桶已清理，无法再合并出小时桶
+                since = RollupResolution.DAY.floor(retainedSince).plusDays(1);
+                log.warn("Rollup mark {} is older than the minute retention, repairing only since {}", oldestMark, since);
+            }
+            long start = System.currentTimeMillis();
+            rebuild(since, now);
+            int cleared = rollupMapper.deleteStaleMarks(staleBefore);
+            lastRepairMillis = System.currentTimeMillis() - start;
+            lastRepairedSince = since;
+            repairs.increment();
+            log.info("Rebuilt rollups since {} for {} stale mark(s) in {} ms", since, cleared, lastRepairMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Rollup repair failed", e);
+        } finally {
+            if (locked) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 按小时分段重建，每段一条语句，避免长时间占用大范围的行锁
+     */
+    private void rebuild(LocalDateTime since, LocalDateTime now) {
+        LocalDateTime minuteFrom = RollupResolution.MINUTE.floor(since);
+        LocalDateTime minuteTo = RollupResolution.MINUTE.floor(now).minusMinutes(1);
+        for (LocalDateTime hour = RollupResolution.HOUR.floor(since); !hour.isAfter(now); hour = hour.plusHours(1)) {
+            LocalDateTime from = hour.isBefore(minuteFrom) ? minuteFrom : hour;
+            LocalDateTime to = hour.plusHours(1).isAfter(minuteTo) ? minuteTo : hour.plusHours(1);
+            if (from.isBefore(to)) {
+                replacedRows.add(rollupMapper.rebuildMinuteBuckets(from, to));
+            }
+            replacedRows.add(rollupMapper.rebuildBucket(RollupResolution.HOUR.getTable(),
+                    RollupResolution.MINUTE.getTable(), hour, hour.plusHours(1)));
+        }
+        for (LocalDateTime day = RollupResolution.DAY.floor(since); !day.isAfter(now); day = day.plusDays(1)) {
+            replacedRows.add(rollupMapper.rebuildBucket(RollupResolution.DAY.getTable(),
+                    RollupResolution.HOUR.getTable(), day, day.plusDays(1)));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("repairs", repairs.sum());
+        stats.put("replacedRows", replacedRows.sum());
+        stats.put("lastRepairedSince", lastRepairedSince);
+        stats.put("lastRepairMillis", lastRepairMillis);
+        return stats;
+    }
+}
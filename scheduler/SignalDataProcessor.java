@@ -2,34 +2,105 @@ package com.iot.platform.scheduler;
 
 import java.util.List;
 
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Component;
 
 import com.iot.platform.cache.SignalDataCache;
 import com.iot.platform.entity.SensorData;
-import com.iot.platform.mapper.SensorDataMapper;
+import com.iot.platform.wal.SensorDataWal;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * 传感器数据缓冲的专用消费线程：攒满一批或等待超过批处理间隔后交给写入引擎
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class SignalDataProcessor {
-    
+public class SignalDataProcessor implements SmartLifecycle {
+
     private final SignalDataCache signalDataCache;
-    private final SensorDataMapper sensorDataMapper;
-    
-    @Scheduled(fixedDelayString = "${batch.processing.interval:5000}")
-    public void processRemainingData() {
-        List<SensorData> batchData = signalDataCache.getBatchForProcessing();
-        if (!batchData.isEmpty()) {
+    private final SensorDataFlusher sensorDataFlusher;
+    private final SensorDataWal sensorDataWal;
+
+    @Value("${batch.processing.interval:5000}")
+    private long interval;
+
+    private volatile boolean running = false;
+    private Thread consumerThread;
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        consumerThread = new Thread(this::consumeLoop, "signal-data-consumer");
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+        log.info("Signal data consumer started");
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        consumerThread.interrupt();
+        try {
+            consumerThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 停止前写出缓冲中剩余的数据
+        try {
+            sensorDataFlusher.awaitInFlight(30_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        processRemainingData();
+        sensorDataFlusher.shutdown();
+        log.info("Signal data consumer stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void consumeLoop() {
+        // 先重放上次未落库的WAL数据
+        sensorDataWal.replay(signalDataCache.getBatchSize(), batch -> {
+            try {
+                sensorDataFlusher.submit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sensorDataFlusher.flushNow(batch);
+            }
+        });
+        while (running) {
+            List<SensorData> batchData = signalDataCache.awaitBatch(interval);
             try {
-                sensorDataMapper.insertBatch(batchData);
-                log.info("Scheduled processing of {} sensor data records", batchData.size());
+                sensorDataFlusher.submit(batchData);
+            } catch (InterruptedException e) {
+                // 停机时被中断，直接同步写出这一批
+                sensorDataFlusher.flushNow(batchData);
             } catch (Exception e) {
-                log.error("Error in scheduled processing of sensor data", e);
+                log.error("Error submitting sensor data batch", e);
             }
+            // 清除中断标记，是否退出由running决定
+            Thread.interrupted();
+        }
+    }
+
+    public void processRemainingData() {
+        List<SensorData> batchData = signalDataCache.getBatchForProcessing();
+        while (!batchData.isEmpty()) {
+            sensorDataFlusher.flushNow(batchData);
+            batchData = signalDataCache.getBatchForProcessing();
         }
     }
-} 
\ No newline at end of file
+}
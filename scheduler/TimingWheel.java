@@ -0,0 +1,81 @@
+package com.iot.platform.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * 单层哈希时间轮
+ * <p>
+ * 按到期时间落入 (deadline / tick) % wheelSize 号槽位，推进时只检查当前槽位，
+ * 未到期的条目（多圈之后才到期）留在原槽位。调度为O(1)，推进开销与到期条目数成正比，
+ * 与总条目数无关。schedule可并发调用，advance只由单个线程调用。
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final ConcurrentLinkedQueue<Timeout<T>>[] buckets;
+    /** 下一个待处理的tick */
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.buckets = new ConcurrentLinkedQueue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * 在deadlineMillis之后触发；已过期的时间落入当前槽位，在下一次推进时触发
+     */
+    public void schedule(T item, long deadlineMillis) {
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick);
+        buckets[(int) (tick % wheelSize)].add(new Timeout<>(item, deadlineMillis));
+    }
+
+    /**
+     * 推进到nowMillis，依次回调所有已到期的条目
+     */
+    public void advance(long nowMillis, Consumer<T> onExpired) {
+        long targetTick = nowMillis / tickMillis;
+        // 停顿超过一圈时每个槽位只需处理一次
+        long startTick = Math.max(currentTick, targetTick - wheelSize + 1);
+        List<Timeout<T>> drained = new ArrayList<>();
+        for (long tick = startTick; tick <= targetTick; tick++) {
+            ConcurrentLinkedQueue<Timeout<T>> bucket = buckets[(int) (tick % wheelSize)];
+            // 先整体取出再处理，回调中重新调度的条目不会在本轮被再次处理
+            Timeout<T> timeout;
+            while ((timeout = bucket.poll()) != null) {
+                drained.add(timeout);
+            }
+            for (Timeout<T> drainedTimeout : drained) {
+                if (drainedTimeout.deadlineMillis <= nowMillis) {
+                    onExpired.accept(drainedTimeout.item);
+                } else {
+                    bucket.add(drainedTimeout);
+                }
+            }
+            drained.clear();
+        }
+        currentTick = targetTick + 1;
+    }
+
+    private static final class Timeout<T> {
+        final T item;
+        final long deadlineMillis;
+
+        Timeout(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
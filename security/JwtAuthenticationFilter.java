@@ -23,8 +23,12 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    /** SSE实时数据流路径，后接设备编码 */
+    private static final String STREAM_PATH = "/api/sensor-data/stream/";
+
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final StreamTicketService streamTicketService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
@@ -60,6 +64,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 } else {
                     log.debug("No username found in token");
                 }
+            } else if (jwt == null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                authenticateStreamTicket(request);
             }
         } catch (Exception e) {
             log.error("认证失败: {}", e.getMessage());
@@ -69,6 +75,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * SSE连接（EventSource不能带请求头）以一次性票据认证，票据只对签发时的设备有效
+     */
+    private void authenticateStreamTicket(HttpServletRequest request) {
+        String ticket = request.getParameter("ticket");
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (ticket == null || !"GET".equals(request.getMethod()) || !path.startsWith(STREAM_PATH)) {
+            return;
+        }
+        String username = streamTicketService.redeem(ticket, path.substring(STREAM_PATH.length()));
+        if (username == null) {
+            log.debug("Invalid or expired stream ticket for {}", path);
+            return;
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
     private String extractJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         log.debug("Authorization header: {}", bearerToken != null ? "present" : "null");
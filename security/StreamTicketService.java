@@ -0,0 +1,53 @@
+package com.iot.platform.security;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * SSE连接票据
+ * <p>
+ * 浏览器的EventSource不能携带Authorization头：客户端先带JWT换取一个短期、一次性的票据，
+ * 再以 ?ticket= 建立SSE连接。票据存于Redis，任一节点都可兑换，且只能用于签发时指定的设备。
+ */
+@Component
+@RequiredArgsConstructor
+public class StreamTicketService {
+
+    private static final String KEY_PREFIX = "iot:sse:ticket:";
+    private static final char SEPARATOR = '|';
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${sse.ticket-ttl:30000}")
+    private long ticketTtlMillis;
+
+    public String issue(String username, String deviceCode) {
+        String ticket = UUID.randomUUID().toString().replace("-", "");
+        stringRedisTemplate.opsForValue().set(KEY_PREFIX + ticket, deviceCode + SEPARATOR + username,
+                ticketTtlMillis, TimeUnit.MILLISECONDS);
+        return ticket;
+    }
+
+    /**
+     * 兑换票据，兑换后立即失效
+     *
+     * @return 票据对应的用户名；票据不存在、已使用、已过期或设备不符时返回null
+     */
+    public String redeem(String ticket, String deviceCode) {
+        String value = stringRedisTemplate.opsForValue().getAndDelete(KEY_PREFIX + ticket);
+        if (value == null || !value.startsWith(deviceCode + SEPARATOR)) {
+            return null;
+        }
+        return value.substring(deviceCode.length() + 1);
+    }
+
+    public long getTicketTtlMillis() {
+        return ticketTtlMillis;
+    }
+}
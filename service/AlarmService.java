@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 import com.iot.platform.dto.AlarmRecordDTO;
+import com.iot.platform.dto.KeysetPage;
 import com.iot.platform.entity.AlarmRecord;
 import com.iot.platform.entity.AlarmRule;
 import com.iot.platform.entity.SensorData;
@@ -17,6 +18,11 @@ public interface AlarmService {
      */
     void detectAlarm(SensorData sensorData);
 
+    /**
+     * 批量检测传感器数据是否异常，整批只查询一次告警规则
+     */
+    void detectAlarms(List<SensorData> sensorDataList);
+
     /**
      * 添加告警记录
      */
@@ -26,6 +32,12 @@ public interface AlarmService {
      * 获取设备的异常记录
      */
     List<AlarmRecord> getDeviceAlarms(LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 按(create_time, id)倒序键集分页获取当前用户的异常记录
+     */
+    KeysetPage<AlarmRecord> getDeviceAlarmsPage(LocalDateTime startTime, LocalDateTime endTime,
+            String pageToken, Integer size);
     
     /**
      * 处理异常记录
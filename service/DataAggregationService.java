@@ -32,6 +32,12 @@ public interface DataAggregationService {
      */
     List<AggregationResult> getMonthlyStats(Long deviceId, String channelId, int year, int month);
     
+    /**
+     * 按统计周期（HOUR/DAY/WEEK/MONTH）分组统计，数据取自预聚合表
+     */
+    List<AggregationResult> getPeriodStats(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, String statsType);
+
     /**
      * 获取实时聚合数据
      */
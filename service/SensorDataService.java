@@ -2,9 +2,13 @@ package com.iot.platform.service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.iot.platform.dto.AggregationResult;
+import com.iot.platform.dto.KeysetPage;
 import com.iot.platform.dto.SignalDTO;
 import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.DownsampleMode;
 /**
  * 传感器数据服务接口
  */
@@ -17,8 +21,10 @@ public interface SensorDataService {
     
     /**
      * 批量保存传感器数据
+     *
+     * @return 因写入缓冲已满被拒绝的条数
      */
-    void saveBatchSensorData(List<SensorData> sensorDataList);
+    int saveBatchSensorData(List<SensorData> sensorDataList);
     
     /**
      * 查询设备的传感器数据
@@ -26,6 +32,20 @@ public interface SensorDataService {
     List<SensorData> getDeviceSensorData(Long deviceId, String channelId, 
             LocalDateTime startTime, LocalDateTime endTime);
     
+    /**
+     * 按(collect_time, id)倒序键集分页查询传感器数据；多台设备时按设备ID依次翻页
+     */
+    KeysetPage<SensorData> getSensorDataPage(List<Long> deviceIds, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, String pageToken, Integer size);
+
+    /**
+     * 流式读取设备的传感器数据，逐条交给consumer，不在内存中保留结果集
+     *
+     * @return 读取的条数
+     */
+    long streamSensorData(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, Consumer<SensorData> consumer);
+
     /**
      * 获取最新的传感器数据
      */
@@ -34,7 +54,7 @@ public interface SensorDataService {
     /**
      * 统计传感器数据
      */
-    List<SensorData> getDeviceSensorDataStats(Long deviceId, String channelId,
+    List<AggregationResult> getDeviceSensorDataStats(Long deviceId, String channelId,
             LocalDateTime startTime, LocalDateTime endTime, String statsType);
 
     /**
@@ -42,4 +62,12 @@ public interface SensorDataService {
      */
     SignalDTO getTimeSeriesData(Long deviceId, String channelId,
             LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 获取降采样后的时序信号数据
+     *
+     * @param maxPoints 最多返回的点数，为空时取默认值，不大于0时返回全部原始点
+     */
+    SignalDTO getTimeSeriesData(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, Integer maxPoints, DownsampleMode mode);
 } 
\ No newline at end of file
@@ -1,14 +1,21 @@
 package com.iot.platform.service.impl;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.iot.platform.dto.AlarmRecordDTO;
+import com.iot.platform.dto.KeysetPage;
+import com.iot.platform.dto.PageToken;
 import com.iot.platform.entity.AlarmRecord;
 import com.iot.platform.entity.AlarmRule;
 import com.iot.platform.entity.Device;
@@ -38,6 +45,13 @@ public class AlarmServiceImpl implements AlarmService {
     private final NotificationService notificationService;
     private final UserService userService;
     private final DeviceService deviceService;
+
+    @Value("${query.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${query.page.max-size:1000}")
+    private int maxPageSize;
+
     @Override
     @Transactional
     public void detectAlarm(SensorData sensorData) {
@@ -61,6 +75,54 @@ public class AlarmServiceImpl implements AlarmService {
         }
     }
 
+    @Override
+    @Transactional
+    public void detectAlarms(List<SensorData> sensorDataList) {
+        if (sensorDataList.isEmpty()) {
+            return;
+        }
+        Set<Integer> deviceIds = new HashSet<>();
+        for (SensorData sensorData : sensorDataList) {
+            if (sensorData.getDeviceId() != null) {
+                deviceIds.add(sensorData.getDeviceId());
+            }
+        }
+        if (deviceIds.isEmpty()) {
+            return;
+        }
+        // 一次查出整批涉及设备的启用规则，按 设备+通道 分组
+        QueryWrapper<AlarmRule> ruleWrapper = new QueryWrapper<>();
+        ruleWrapper.in("device_id", deviceIds)
+                .eq("is_enabled", true);
+        Map<String, List<AlarmRule>> rulesByChannel = alarmRuleMapper.selectList(ruleWrapper).stream()
+                .collect(Collectors.groupingBy(rule -> ruleKey(rule.getDeviceId(), rule.getChannelId())));
+        if (rulesByChannel.isEmpty()) {
+            return;
+        }
+
+        for (SensorData sensorData : sensorDataList) {
+            if (sensorData.getDeviceId() == null || sensorData.getDataValue() == null) {
+                continue;
+            }
+            List<AlarmRule> rules = rulesByChannel.get(
+                    ruleKey(sensorData.getDeviceId().longValue(), sensorData.getChannelId()));
+            if (rules == null) {
+                continue;
+            }
+            for (AlarmRule rule : rules) {
+                if (isAlarmTriggered(sensorData.getDataValue(), rule)) {
+                    AlarmRecord alarm = createAlarmRecord(sensorData, rule);
+                    alarmRecordMapper.insert(alarm);
+                    notificationService.sendAlarmNotification(alarm);
+                }
+            }
+        }
+    }
+
+    private static String ruleKey(Long deviceId, String channelId) {
+        return deviceId + "|" + channelId;
+    }
+
     @Override
     public void addAlarmRecord(AlarmRecordDTO alarmRecordDTO) {
         AlarmRecord alarmRecord = new AlarmRecord();
@@ -96,6 +158,35 @@ public class AlarmServiceImpl implements AlarmService {
 
     }
 
+    @Override
+    public KeysetPage<AlarmRecord> getDeviceAlarmsPage(LocalDateTime startTime, LocalDateTime endTime,
+            String pageToken, Integer size) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        User user = userService.findByUsername(username);
+        int limit = KeysetPage.clampSize(size, defaultPageSize, maxPageSize);
+        PageToken after = PageToken.decode(pageToken);
+
+        // 沿idx_user_time索引倒序读取，续页从上一页最后一条之后开始，不使用OFFSET
+        QueryWrapper<AlarmRecord> wrapper = new QueryWrapper<>();
+        wrapper.eq("user_id", user.getId())
+                .ge(startTime != null, "create_time", startTime)
+                .le(endTime != null, "create_time", endTime);
+        if (after != null) {
+            wrapper.le("create_time", after.getTime())
+                    .and(w -> w.lt("create_time", after.getTime())
+                            .or().eq("create_time", after.getTime()).lt("id", after.getId()));
+        }
+        wrapper.orderByDesc("create_time", "id")
+                .last("LIMIT " + (limit + 1));
+        List<AlarmRecord> records = alarmRecordMapper.selectList(wrapper);
+        if (records.size() <= limit) {
+            return KeysetPage.of(records, null);
+        }
+        List<AlarmRecord> items = records.subList(0, limit);
+        AlarmRecord last = items.get(limit - 1);
+        return KeysetPage.of(items, new PageToken(null, last.getCreateTime(), last.getId()).encode());
+    }
+
     @Override
     @Transactional
     public void handleAlarm(Long alarmId, String handleNote) {
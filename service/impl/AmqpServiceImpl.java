@@ -2,13 +2,13 @@ package com.iot.platform.service.impl;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-import javax.annotation.PreDestroy;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import javax.jms.Connection;
@@ -27,13 +27,16 @@ import org.apache.qpid.jms.JmsConnectionListener;
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.iot.platform.config.AmqpConfig;
+import com.iot.platform.enums.AmqpConnectionState;
+import com.iot.platform.executor.IngestExecution;
+import com.iot.platform.executor.PartitionedExecutor;
 import com.iot.platform.handler.AmqpMessageHandler;
 import com.iot.platform.websocket.WebSocketService;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -54,30 +57,52 @@ public class AmqpServiceImpl implements InitializingBean {
     @Autowired
     private WebSocketService webSocketService;
     
-    private final ExecutorService executorService = new ThreadPoolExecutor(
-        Runtime.getRuntime().availableProcessors(),
-        Runtime.getRuntime().availableProcessors() * 2, 
-        60, TimeUnit.SECONDS,
-        new LinkedBlockingQueue<>(50000)
-    );
+    /**
+     * 按设备名分区：同一设备的消息顺序处理，不同设备并行
+     */
+    private PartitionedExecutor executor;
 
     private final AmqpMessageHandler amqpMessageHandler;
 
-    @Value("${amqp.connectionCount}")
-    private int connectionCount;
+    private final IngestExecution ingestExecution;
+
+    /**
+     * 各连接的健康状态，下标即连接编号
+     */
+    private final List<ConnectionHealth> connectionHealth = new CopyOnWriteArrayList<>();
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        createConnection(0);
+        executor = new PartitionedExecutor("amqp",
+            ingestExecution.resolveLaneCount(amqpConfig.getLaneCount()),
+            ingestExecution.resolveLaneQueueCapacity(amqpConfig.getLaneQueueCapacity()),
+            ingestExecution.threadFactory("amqp"));
+        initConnections();
     }
 
+    /**
+     * 建立connectionCount个连接，每个连接独立的会话和消费者，消息汇入同一个分区执行器
+     */
     private void initConnections() throws Exception {
-        for (int i = 0; i < amqpConfig.getConnectionCount(); i++) {
-            createConnection(i);
+        int count = Math.max(1, amqpConfig.getConnectionCount());
+        Exception lastError = null;
+        for (int i = 0; i < count; i++) {
+            try {
+                createConnection(i);
+            } catch (Exception e) {
+                lastError = e;
+            }
+        }
+        if (connections.isEmpty() && lastError != null) {
+            throw lastError;
         }
+        log.info("Created {}/{} AMQP connections", connections.size(), count);
     }
 
     private void createConnection(int index) throws Exception {
+        ConnectionHealth health = new ConnectionHealth(index);
+        connectionHealth.add(health);
+        Connection connection = null;
         try {
             // 1. 生成认证信息
             long timestamp = System.currentTimeMillis();
@@ -103,11 +128,12 @@ public class AmqpServiceImpl implements InitializingBean {
                 "failover:(amqps://%s:5671?" +
                 "amqp.idleTimeout=80000" +
                 "&amqp.saslMechanisms=PLAIN" +
-                "&jms.prefetchPolicy.all=100)" +
+                "&jms.prefetchPolicy.all=%d)" +
                 "?failover.maxReconnectAttempts=10" +
                 "&failover.startupMaxReconnectAttempts=10" +
                 "&failover.reconnectDelay=3000",
-                amqpConfig.getHost()
+                amqpConfig.getHost(),
+                amqpConfig.getPrefetch()
             );
 
             log.info("Connecting with URL: {}", connectionUrl);
@@ -120,11 +146,10 @@ public class AmqpServiceImpl implements InitializingBean {
             factory.setPassword(password);
             
             // 6. 创建连接
-            Connection connection = factory.createConnection();
-            connections.add(connection);
+            connection = factory.createConnection();
             
             // 7. 添加连接监听器
-            ((JmsConnection)connection).addConnectionListener(createConnectionListener());
+            ((JmsConnection)connection).addConnectionListener(createConnectionListener(health));
             
             // 8. 创建会话和消费者
             Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
@@ -138,26 +163,71 @@ public class AmqpServiceImpl implements InitializingBean {
                 );
             Destination queue = session.createQueue(queueName);
             MessageConsumer consumer = session.createConsumer(queue);
-            consumer.setMessageListener(createMessageListener());
+            consumer.setMessageListener(createMessageListener(health));
+            // 消费者创建成功后才登记，失败的连接不会留在列表中
+            connections.add(connection);
+            health.state = AmqpConnectionState.CONNECTED;
             
             log.info("Successfully created AMQP connection {}", index);
             
         } catch (Exception e) {
+            health.state = AmqpConnectionState.FAILED;
+            health.lastError = e.getMessage();
             log.error("Failed to create connection {}: {}", index, e.getMessage());
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (JMSException closeError) {
+                    log.warn("Failed to close AMQP connection {}", index, closeError);
+                }
+            }
             throw e;
         }
     }
 
-    private MessageListener createMessageListener() {
+    private MessageListener createMessageListener(ConnectionHealth health) {
         return message -> {
+            health.messagesReceived.increment();
+            health.lastMessageAt = System.currentTimeMillis();
             try {
-                executorService.submit(() -> processMessage(message));
+                // lane满时阻塞JMS分发线程，由预取窗口把背压传回服务端
+                executor.execute(partitionKey(message), () -> processMessage(message));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while submitting message");
             } catch (Exception e) {
                 log.error("Submit task error", e);
             }
         };
     }
 
+    /**
+     * 分区键取设备名，topic格式：/{productKey}/{deviceName}/...
+     */
+    private String partitionKey(Message message) throws JMSException {
+        String topic = message.getStringProperty("topic");
+        if (topic == null) {
+            return "";
+        }
+        int first = topic.indexOf('/', 1);
+        if (first < 0) {
+            return topic;
+        }
+        int second = topic.indexOf('/', first + 1);
+        return second < 0 ? topic.substring(first + 1) : topic.substring(first + 1, second);
+    }
+
+    /**
+     * 消息处理执行器统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", connectionHealth.stream().map(ConnectionHealth::toMap).toList());
+        stats.put("queueDepth", executor.getQueueDepth());
+        stats.put("lanes", executor.getLaneStats());
+        return stats;
+    }
+
     private void processMessage(Message message) {
         try {
             byte[] body = message.getBody(byte[].class);
@@ -177,26 +247,32 @@ public class AmqpServiceImpl implements InitializingBean {
         }
     }
 
-    private JmsConnectionListener createConnectionListener() {
+    private JmsConnectionListener createConnectionListener(ConnectionHealth health) {
         return new JmsConnectionListener() {
             @Override
             public void onConnectionEstablished(URI remoteURI) {
-                log.info("onConnectionEstablished, remoteUri:{}", remoteURI);
+                health.state = AmqpConnectionState.CONNECTED;
+                log.info("onConnectionEstablished, index:{}, remoteUri:{}", health.index, remoteURI);
             }
 
             @Override
             public void onConnectionFailure(Throwable error) {
-                log.error("onConnectionFailure, {}", error.getMessage());
+                health.state = AmqpConnectionState.FAILED;
+                health.lastError = error.getMessage();
+                log.error("onConnectionFailure, index:{}, {}", health.index, error.getMessage());
             }
 
             @Override
             public void onConnectionInterrupted(URI remoteURI) {
-                log.info("onConnectionInterrupted, remoteUri:{}", remoteURI);
+                health.state = AmqpConnectionState.INTERRUPTED;
+                health.interruptions.increment();
+                log.info("onConnectionInterrupted, index:{}, remoteUri:{}", health.index, remoteURI);
             }
 
             @Override
             public void onConnectionRestored(URI remoteURI) {
-                log.info("onConnectionRestored, remoteUri:{}", remoteURI);
+                health.state = AmqpConnectionState.CONNECTED;
+                log.info("onConnectionRestored, index:{}, remoteUri:{}", health.index, remoteURI);
             }
 
             @Override
@@ -221,6 +297,33 @@ public class AmqpServiceImpl implements InitializingBean {
         return Base64.encodeBase64String(rawHmac);
     }
 
+    /**
+     * 单个AMQP连接的健康状态
+     */
+    private static class ConnectionHealth {
+        final int index;
+        volatile AmqpConnectionState state = AmqpConnectionState.CONNECTING;
+        volatile String lastError;
+        volatile long lastMessageAt;
+        final LongAdder messagesReceived = new LongAdder();
+        final LongAdder interruptions = new LongAdder();
+
+        ConnectionHealth(int index) {
+            this.index = index;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("index", index);
+            map.put("state", state);
+            map.put("messagesReceived", messagesReceived.sum());
+            map.put("interruptions", interruptions.sum());
+            map.put("lastMessageAt", lastMessageAt);
+            map.put("lastError", lastError);
+            return map;
+        }
+    }
+
     @PreDestroy
     public void destroy() {
         connections.forEach(connection -> {
@@ -231,9 +334,8 @@ public class AmqpServiceImpl implements InitializingBean {
             }
         });
 
-        executorService.shutdown();
         try {
-            if (executorService.awaitTermination(10, TimeUnit.SECONDS)) {
+            if (executor.shutdown(10, TimeUnit.SECONDS)) {
                 log.info("Shutdown success");
             } else {
                 log.warn("Failed to handle messages");
@@ -1,13 +1,10 @@
 package com.iot.platform.service.impl;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.iot.platform.cache.SignalDataCache;
 import com.iot.platform.entity.SensorData;
 import com.iot.platform.service.BatchProcessingService;
 import com.iot.platform.service.SensorDataService;
@@ -15,56 +12,45 @@ import com.iot.platform.service.SensorDataService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * 批处理服务实现类
+ * <p>
+ * 数据直接进入SignalDataCache（写入前先追加WAL），不再单独维护一个不受WAL保护的内存队列。
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BatchProcessingServiceImpl implements BatchProcessingService {
 
     private final SensorDataService sensorDataService;
-    
-    @Value("${batch.processing.size}")
-    private int batchSize;
-    
-    private final BlockingQueue<SensorData> dataQueue = new LinkedBlockingQueue<>();
+    private final SignalDataCache signalDataCache;
 
     @Override
     public void addToBatch(SensorData data) {
-        try {
-            dataQueue.put(data);
-            if (dataQueue.size() >= batchSize) {
-                processBatch();
-            }
-        } catch (InterruptedException e) {
-            log.error("Failed to add data to batch queue", e);
-            Thread.currentThread().interrupt();
-        }
+        signalDataCache.add(data);
     }
 
     @Override
     public void processBatch(List<SensorData> dataList) {
         try {
-            sensorDataService.saveBatchSensorData(dataList);
-            log.info("Successfully processed {} records", dataList.size());
+            int rejected = sensorDataService.saveBatchSensorData(dataList);
+            if (rejected > 0) {
+                log.warn("Write buffer full, {} of {} records rejected", rejected, dataList.size());
+            } else {
+                log.info("Successfully processed {} records", dataList.size());
+            }
         } catch (Exception e) {
             log.error("Failed to process batch data", e);
         }
     }
 
-    private void processBatch() {
-        List<SensorData> batchList = new ArrayList<>();
-        dataQueue.drainTo(batchList, batchSize);
-        if (!batchList.isEmpty()) {
-            processBatch(batchList);
-        }
-    }
-
     @Override
     public int getCurrentBatchSize() {
-        return dataQueue.size();
+        return signalDataCache.size();
     }
 
     @Override
     public void clearBatch() {
-        dataQueue.clear();
+        signalDataCache.clear();
     }
-} 
\ No newline at end of file
+}
@@ -3,13 +3,19 @@ package com.iot.platform.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.iot.platform.dto.AggregationResult;
 import com.iot.platform.entity.SensorData;
+import com.iot.platform.entity.SensorDataRollup;
+import com.iot.platform.enums.RollupResolution;
+import com.iot.platform.enums.StatsPeriod;
 import com.iot.platform.mapper.SensorDataMapper;
+import com.iot.platform.mapper.SensorDataRollupMapper;
 import com.iot.platform.service.DataAggregationService;
 import com.iot.platform.service.CacheService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -20,8 +26,12 @@ import java.util.stream.Collectors;
 public class DataAggregationServiceImpl implements DataAggregationService {
 
     private final SensorDataMapper sensorDataMapper;
+    private final SensorDataRollupMapper rollupMapper;
     private final CacheService cacheService;
 
+    @Value("${rollup.minute-retention-days:30}")
+    private int minuteRetentionDays;
+
     @Override
     public AggregationResult getDeviceDataStats(Long deviceId, String channelId,
             LocalDateTime startTime, LocalDateTime endTime, String aggregationType) {
@@ -33,15 +43,13 @@ public class DataAggregationServiceImpl implements DataAggregationService {
             return cachedResult;
         }
 
-        // 查询原始数据
-        QueryWrapper<SensorData> wrapper = new QueryWrapper<>();
-        wrapper.eq("device_id", deviceId)
-                .eq(channelId != null, "channel_id", channelId)
-                .between("collect_time", startTime, endTime);
-        List<SensorData> dataList = sensorDataMapper.selectList(wrapper);
+        // 从满足区间的最粗预聚合表汇总
+        RollupResolution resolution = RollupResolution.select(null, startTime, endTime,
+                RollupResolution.minuteRetainedSince(minuteRetentionDays));
+        SensorDataRollup total = new SensorDataRollup(null, channelId, null);
+        selectRollups(resolution, deviceId, channelId, startTime, endTime).forEach(total::merge);
 
-        // 计算统计结果
-        AggregationResult result = calculateStats(dataList, aggregationType);
+        AggregationResult result = toResult(total, aggregationType);
         result.setDeviceId(deviceId);
         result.setChannelId(channelId);
         result.setTimeUnit(aggregationType);
@@ -55,46 +63,73 @@ public class DataAggregationServiceImpl implements DataAggregationService {
     @Override
     public List<AggregationResult> getHourlyStats(Long deviceId, String channelId, LocalDateTime date) {
         LocalDateTime startTime = date.toLocalDate().atStartOfDay();
-        LocalDateTime endTime = startTime.plusDays(1);
-
-        // 查询数据
-        QueryWrapper<SensorData> wrapper = new QueryWrapper<>();
-        wrapper.eq("device_id", deviceId)
-                .eq(channelId != null, "channel_id", channelId)
-                .between("collect_time", startTime, endTime);
-        List<SensorData> dataList = sensorDataMapper.selectList(wrapper);
-
-        // 按小时分组
-        Map<Integer, List<SensorData>> hourlyData = dataList.stream()
-                .collect(Collectors.groupingBy(data -> data.getCollectTime().getHour()));
-
-        // 计算每小时的统计结果
-        List<AggregationResult> results = new ArrayList<>();
-        for (int hour = 0; hour < 24; hour++) {
-            List<SensorData> hourData = hourlyData.getOrDefault(hour, Collections.emptyList());
-            if (!hourData.isEmpty()) {
-                AggregationResult result = calculateStats(hourData, "HOUR");
-                result.setDeviceId(deviceId);
-                result.setChannelId(channelId);
-                result.setTimestamp(startTime.plusHours(hour));
-                results.add(result);
-            }
-        }
-
-        return results;
+        return getPeriodStats(deviceId, channelId, startTime, startTime.plusDays(1), StatsPeriod.HOUR.name());
     }
 
     @Override
     public List<AggregationResult> getDailyStats(Long deviceId, String channelId,
             LocalDateTime startDate, LocalDateTime endDate) {
-        // 实现日统计逻辑
-        return null;
+        return getPeriodStats(deviceId, channelId, startDate, endDate, StatsPeriod.DAY.name());
     }
 
     @Override
     public List<AggregationResult> getMonthlyStats(Long deviceId, String channelId, int year, int month) {
-        // 实现月统计逻辑
-        return null;
+        LocalDateTime startTime = LocalDate.of(year, month, 1).atStartOfDay();
+        return getPeriodStats(deviceId, channelId, startTime, startTime.plusMonths(1), StatsPeriod.MONTH.name());
+    }
+
+    @Override
+    public List<AggregationResult> getPeriodStats(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, String statsType) {
+        StatsPeriod period = StatsPeriod.fromName(statsType);
+        RollupResolution resolution = RollupResolution.select(period, startTime, endTime,
+                RollupResolution.minuteRetainedSince(minuteRetentionDays));
+
+        // 汇总表按桶时间有序，合并后各周期仍按时间排列
+        Map<String, SensorDataRollup> merged = new LinkedHashMap<>();
+        for (SensorDataRollup rollup : selectRollups(resolution, deviceId, channelId, startTime, endTime)) {
+            LocalDateTime periodStart = period.floor(rollup.getBucketTime());
+            merged.computeIfAbsent(rollup.getChannelId() + '|' + periodStart,
+                    key -> new SensorDataRollup(rollup.getDeviceId(), rollup.getChannelId(), periodStart))
+                .merge(rollup);
+        }
+        return merged.values().stream()
+                .map(rollup -> toResult(rollup, period.name()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 查询[startTime, endTime]覆盖到的桶；未对齐的边界按所在桶整体计入
+     */
+    private List<SensorDataRollup> selectRollups(RollupResolution resolution, Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime from = startTime == null ? null : resolution.floor(startTime);
+        LocalDateTime to = endTime == null || resolution.isAligned(endTime)
+                ? endTime
+                : resolution.floor(endTime).plus(1, resolution.getUnit());
+        return rollupMapper.selectRollups(resolution.getTable(), deviceId, channelId, from, to);
+    }
+
+    private AggregationResult toResult(SensorDataRollup rollup, String timeUnit) {
+        AggregationResult result = new AggregationResult();
+        result.setChannelId(rollup.getChannelId());
+        result.setTimestamp(rollup.getBucketTime());
+        result.setTimeUnit(timeUnit);
+        if (rollup.getDeviceId() != null) {
+            result.setDeviceId(rollup.getDeviceId().longValue());
+        }
+        long count = rollup.getSampleCount();
+        if (count == 0) {
+            return result;
+        }
+        double avg = rollup.getSumValue() / count;
+        result.setMinValue(rollup.getMinValue());
+        result.setMaxValue(rollup.getMaxValue());
+        result.setAvgValue(avg);
+        result.setSumValue(rollup.getSumValue());
+        result.setStdDevValue(Math.sqrt(Math.max(0, rollup.getSumSquares() / count - avg * avg)));
+        result.setCount(count);
+        return result;
     }
 
     @Override
@@ -136,6 +171,8 @@ public class DataAggregationServiceImpl implements DataAggregationService {
         result.setMaxValue(stats.getMax());
         result.setAvgValue(stats.getAverage());
         result.setSumValue(stats.getSum());
+        double sumSquares = dataList.stream().mapToDouble(data -> data.getDataValue() * data.getDataValue()).sum();
+        result.setStdDevValue(Math.sqrt(Math.max(0, sumSquares / stats.getCount() - stats.getAverage() * stats.getAverage())));
         result.setCount(stats.getCount());
         result.setTimeUnit(timeUnit);
 
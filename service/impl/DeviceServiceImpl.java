@@ -1,17 +1,18 @@
 package com.iot.platform.service.impl;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.iot.platform.cache.DeviceRegistry;
 import com.iot.platform.dto.DeviceDTO;
 import com.iot.platform.entity.Device;
 import com.iot.platform.entity.User;
@@ -31,19 +32,17 @@ public class DeviceServiceImpl implements DeviceService {
     private final DeviceMapper deviceMapper;
     private static final String CACHE_KEY = "device";
     private final UserService userService;
+    private final DeviceRegistry deviceRegistry;
     
     @Override
-    @Cacheable(value = "device", key = "'code:' + #deviceCode")  
     public Integer getDeviceIdByCode(String deviceCode) {
-        Device device = deviceMapper.selectOne(
-            new LambdaQueryWrapper<Device>()
-                .eq(Device::getDeviceCode, deviceCode)
-        );
-        return device != null ? device.getId() : null;
+        return deviceRegistry.getIdByCode(deviceCode);
     }
 
+    /**
+     * 状态更新不再清除设备缓存，避免每条消息之后的查询都落到MySQL
+     */
     @Override
-    @CacheEvict(value = CACHE_KEY, key = "'code:' + #deviceCode")
     public void updateDeviceStatus(String deviceCode, boolean status) {
         UpdateWrapper<Device> wrapper = new UpdateWrapper<>();
         wrapper.eq("device_code", deviceCode)
@@ -75,15 +74,17 @@ public class DeviceServiceImpl implements DeviceService {
         device.setDescription(deviceDTO.getDescription());
         device.setGroupId(deviceDTO.getGroupId());  
         deviceMapper.insert(device);
+        // 清除该编码可能已缓存的"设备不存在"
+        deviceRegistry.invalidateAfterCommit(device.getId(), codes(device.getDeviceCode(), null));
         return device;
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = CACHE_KEY, allEntries = true)
     public Device updateDevice(DeviceDTO deviceDTO) {
         // 更新设备信息 先查找出device再对其赋值
         Device device = deviceMapper.selectById(deviceDTO.getId());
+        String oldDeviceCode = device.getDeviceCode();
         device.setDeviceCode(deviceDTO.getDeviceCode());
         device.setDeviceName(deviceDTO.getDeviceName());
         device.setDeviceType(deviceDTO.getDeviceType());
@@ -91,14 +92,29 @@ public class DeviceServiceImpl implements DeviceService {
         device.setMqttTopic(deviceDTO.getMqttTopic());
         device.setDescription(deviceDTO.getDescription());
         deviceMapper.updateById(device);
+        deviceRegistry.invalidateAfterCommit(device.getId(), codes(oldDeviceCode, device.getDeviceCode()));
         return device;
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = CACHE_KEY, allEntries = true)
     public void deleteDevice(Long deviceId) {
+        Device device = deviceMapper.selectById(deviceId);
         deviceMapper.deleteById(deviceId);
+        if (device != null) {
+            deviceRegistry.invalidateAfterCommit(device.getId(), codes(device.getDeviceCode(), null));
+        }
+    }
+
+    private static Set<String> codes(String deviceCode, String otherCode) {
+        Set<String> codes = new LinkedHashSet<>();
+        if (deviceCode != null) {
+            codes.add(deviceCode);
+        }
+        if (otherCode != null) {
+            codes.add(otherCode);
+        }
+        return codes;
     }
 
     @Override
@@ -107,14 +123,12 @@ public class DeviceServiceImpl implements DeviceService {
         return deviceMapper.selectById(deviceId);
     }
 
+    /**
+     * 经进程内注册表查询，未命中时再查Redis缓存与数据库
+     */
     @Override
-    @Cacheable(value = CACHE_KEY, key = "'code:' + #deviceCode", unless = "#deviceCode == null")
     public Device getDeviceByCode(String deviceCode) {
-        if (deviceCode == null) {
-            return null;
-        }
-        return deviceMapper.selectOne(new LambdaQueryWrapper<Device>()
-            .eq(Device::getDeviceCode, deviceCode));
+        return deviceRegistry.getByCode(deviceCode);
     }
 
     @Override
@@ -9,10 +9,16 @@ import org.springframework.stereotype.Service;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.iot.platform.codec.DecodedPayload;
+import com.iot.platform.codec.SensorPayloadDecoder;
+import com.iot.platform.codec.TopicRouter;
 import com.iot.platform.entity.Device;
 import com.iot.platform.entity.SensorData;
 import com.iot.platform.entity.SignalFile;
+import com.iot.platform.enums.TopicType;
+import com.iot.platform.executor.IngestExecution;
 import com.iot.platform.mapper.SignalFileMapper;
+import com.iot.platform.scheduler.DeviceStatusTracker;
 import com.iot.platform.service.DeviceService;
 import com.iot.platform.service.SensorDataService;
 import com.iot.platform.websocket.WebSocketService;
@@ -29,96 +35,88 @@ public class MessageProcessService {
     private final SignalFileMapper signalFileMapper;
     private final SensorDataService sensorDataService;
     private final WebSocketService webSocketService;
-    
+    private final SensorPayloadDecoder payloadDecoder;
+    private final IngestExecution ingestExecution;
+    private final DeviceStatusTracker deviceStatusTracker;
+
+    private static final DateTimeFormatter FILE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
     public void processMessage(String topic, String content) {
         try {
-            log.info("MessageProcessService 开始处理消息");
             log.debug("消息详情 - Topic: {}, Content: {}", topic, content);
-            
-            JSONObject json = JSON.parseObject(content);
-            
-            if (topic.endsWith("/thing/event/property/post")) {
-                log.info("处理属性上报消息");
-                processPropertyPost(json);
-            } else if (topic.endsWith("/user/signal")) {
-                log.info("处理信号数据消息");
-                processUserSignal(json);
-            } else {
+
+            TopicType topicType = TopicRouter.route(topic);
+            if (topicType == TopicType.UNKNOWN) {
                 log.warn("未知的消息类型: {}", topic);
+                return;
             }
-            
+            DecodedPayload payload = payloadDecoder.decode(topicType, content);
+            if (topicType == TopicType.PROPERTY_POST) {
+                processPropertyPost(payload);
+            } else {
+                processUserSignal(payload);
+            }
+
         } catch (Exception e) {
             log.error("处理消息失败: {}", e.getMessage(), e);
         }
     }
-    
-    private void processPropertyPost(JSONObject json) {
-        String deviceCode = json.getString("deviceName");
+
+    private void processPropertyPost(DecodedPayload payload) {
+        String deviceCode = payload.getDeviceCode();
         Device device = deviceService.getDeviceByCode(deviceCode);
-        
+
         if (device == null) {
             log.error("未找到设备: {}", deviceCode);
             return;
         }
-        
+
         // 处理属性上报消息
-        JSONObject items = json.getJSONObject("items");
-        if (items != null) {
-            // 检查是否包含CSV数据
-            if (items.containsKey("signal_data")) {
+        if (payload.hasItems()) {
+            String csvData = payload.getSignalData();
+            if (csvData != null) {
                 // 处理CSV文件数据
-                String csvData = items.getJSONObject("signal_data").getString("value");
-                double samplingRate = items.getJSONObject("sampling_rate").getDoubleValue("value");
-                
-                // 保存为SignalFile
                 SignalFile signalFile = new SignalFile();
                 signalFile.setDeviceId(device.getId());
-                signalFile.setFileName(String.format("signal_%d_%s.csv", device.getId(), 
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS"))));
-                signalFile.setSamplingRate(samplingRate);
+                signalFile.setFileName(String.format("signal_%d_%s.csv", device.getId(),
+                    LocalDateTime.now().format(FILE_TIME_FORMATTER)));
+                signalFile.setSamplingRate(payload.getSamplingRate());
                 signalFile.setCollectTime(LocalDateTime.now());
                 signalFile.setFileData(csvData.getBytes(StandardCharsets.UTF_8));
                 signalFile.setFileSize(signalFile.getFileData().length);
                 signalFile.setChannelCount(3);
                 signalFile.setDataPoints((int) csvData.lines().count() - 1);
-                
-                signalFileMapper.insert(signalFile);
+
+                ingestExecution.db().run(() -> signalFileMapper.insert(signalFile));
                 log.info("成功保存设备 {} 的信号文件，大小: {} bytes", deviceCode, signalFile.getFileSize());
             } else {
                 // 处理普通传感器数据
-                for (String key : items.keySet()) {
-                    JSONObject item = items.getJSONObject(key);
-                    
+                LocalDateTime now = LocalDateTime.now();
+                for (int i = 0; i < payload.getSampleCount(); i++) {
                     SensorData sensorData = new SensorData();
                     sensorData.setDeviceId(device.getId());
-                    sensorData.setChannelId(key);
-                    sensorData.setDataValue(item.getDoubleValue("value"));
+                    sensorData.setChannelId(payload.getChannelId(i));
+                    sensorData.setDataValue(payload.getValue(i));
                     sensorData.setDataUnit("mV");
                     sensorData.setDataType("amplitude");
-                    sensorData.setCollectTime(LocalDateTime.now());
-                    
+                    sensorData.setCollectTime(now);
+
                     // 保存数据
                     sensorDataService.saveSensorData(sensorData);
-                    
+
                     // 推送实时数据
                     webSocketService.pushRealTimeData(deviceCode, sensorData);
                 }
             }
-            
+
             // 更新设备状态
-            deviceService.updateDeviceStatus(deviceCode, true);
-            webSocketService.pushDeviceStatusChange(deviceCode, true);
+            deviceStatusTracker.markSeen(deviceCode);
         }
     }
-    
-    private void processUserSignal(JSONObject json) {
+
+    private void processUserSignal(DecodedPayload payload) {
         try {
-            // 统一处理设备编码
-            String deviceCode = json.getString("deviceCode");
-            if (deviceCode == null) {
-                deviceCode = json.getString("device_code");  // 尝试另一种格式
-            }
-            
+            String deviceCode = payload.getDeviceCode();
             if (deviceCode == null) {
                 log.error("设备编码为空");
                 return;
@@ -129,34 +127,26 @@ public class MessageProcessService {
                 log.error("未找到设备: {}", deviceCode);
                 return;
             }
-            
+
             // 处理传感器数据
-            JSONArray sensorDataArray = json.getJSONArray("sensorData");
-            if (sensorDataArray != null) {
-                for (int i = 0; i < sensorDataArray.size(); i++) {
-                    JSONObject sensorData = sensorDataArray.getJSONObject(i);
-                    
-                    SensorData data = new SensorData();
-                    data.setDeviceId(device.getId());
-                    data.setChannelId(sensorData.getString("channelId"));
-                    data.setDataValue(sensorData.getDoubleValue("value"));
-                    data.setDataUnit(sensorData.getString("unit"));
-                    data.setDataType(sensorData.getString("type"));
-                    
-                    // 修改时间处理
-                    String timestamp = sensorData.getString("timestamp");
-                    // 处理UTC时间
-                    LocalDateTime collectTime = LocalDateTime.parse(timestamp.replace("Z", "")).plusHours(8);
-                    data.setCollectTime(collectTime);
-                    
-                    log.info("Saving sensor data: deviceId={}, channelId={}, value={}, time={}", 
-                        device.getId(), data.getChannelId(), data.getDataValue(), data.getCollectTime());
-                    
-                    sensorDataService.saveSensorData(data);
-                    
-                    // 推送实时数据
-                    webSocketService.pushRealTimeData(deviceCode, data);
-                }
+            for (int i = 0; i < payload.getSampleCount(); i++) {
+                SensorData data = new SensorData();
+                data.setDeviceId(device.getId());
+                data.setChannelId(payload.getChannelId(i));
+                data.setDataValue(payload.getValue(i));
+                data.setDataUnit(payload.getUnit(i));
+                data.setDataType(payload.getType(i));
+                // 解码时已换算为东八区时间，缺失时间戳时取接收时间
+                LocalDateTime collectTime = payload.getCollectTime(i);
+                data.setCollectTime(collectTime != null ? collectTime : LocalDateTime.now());
+
+                log.debug("Saving sensor data: deviceId={}, channelId={}, value={}, time={}",
+                    device.getId(), data.getChannelId(), data.getDataValue(), data.getCollectTime());
+
+                sensorDataService.saveSensorData(data);
+
+                // 推送实时数据
+                webSocketService.pushRealTimeData(deviceCode, data);
             }
         } catch (Exception e) {
             log.error("处理传感器数据失败: {}", e.getMessage(), e);
@@ -223,8 +213,7 @@ public class MessageProcessService {
                 }
                 
                 // 更新设备状态
-                deviceService.updateDeviceStatus(deviceCode, true);
-                webSocketService.pushDeviceStatusChange(deviceCode, true);
+                deviceStatusTracker.markSeen(deviceCode);
             }
         } catch (Exception e) {
             log.error("Process device message error - Topic: {}, Content: {}", topic, content, e);
@@ -1,22 +1,36 @@
 package com.iot.platform.service.impl;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.iot.platform.cache.SignalDataCache;
+import com.iot.platform.dto.AggregationResult;
+import com.iot.platform.dto.DownsampledSeries;
+import com.iot.platform.dto.KeysetPage;
+import com.iot.platform.dto.PageToken;
 import com.iot.platform.dto.SignalDTO;
 import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.DownsampleMode;
 import com.iot.platform.exception.BusinessException;
 import com.iot.platform.mapper.SensorDataMapper;
+import com.iot.platform.service.DataAggregationService;
 import com.iot.platform.service.SensorDataService;
+import com.iot.platform.signal.TimeSeriesDownsampler;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -29,11 +43,21 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class SensorDataServiceImpl extends ServiceImpl<SensorDataMapper, SensorData> implements SensorDataService {
 
+    private static final int[] LATEST_LOOKUP_DAYS = {1, 7, 30};
+
     private final SensorDataMapper sensorDataMapper;
     private final SignalDataCache signalDataCache;
+    private final DataAggregationService dataAggregationService;
+    private final TimeSeriesDownsampler timeSeriesDownsampler;
+
+    @Value("${downsample.default-points:2000}")
+    private int defaultMaxPoints;
 
-    @Value("${batch.processing.size:100}")
-    private int batchSize;
+    @Value("${query.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${query.page.max-size:1000}")
+    private int maxPageSize;
 
     @Override
     public void saveSensorData(SensorData sensorData) {
@@ -41,37 +65,21 @@ public class SensorDataServiceImpl extends ServiceImpl<SensorDataMapper, SensorD
         log.info("Saving sensor data: deviceId={}, channelId={}, value={}, time={}", 
             sensorData.getDeviceId(), sensorData.getChannelId(), sensorData.getDataValue(), sensorData.getCollectTime());
             
+        // 只负责入队，写库由SensorDataFlusher完成
         signalDataCache.add(sensorData);
-        processIfNeeded();
     }
 
     @Override
-    public void saveBatchSensorData(List<SensorData> sensorDataList) {
-        signalDataCache.addAll(sensorDataList);
-        processIfNeeded();
-    }
-
-    private void processIfNeeded() {
-        if (signalDataCache.shouldProcess()) {
-            List<SensorData> batchData = signalDataCache.getBatchForProcessing();
-            if (!batchData.isEmpty()) {
-                try {
-                    sensorDataMapper.insertBatch(batchData);
-                    log.info("Successfully processed batch of {} sensor data records", batchData.size());
-                } catch (Exception e) {
-                    throw new BusinessException("批量处理传感器数据失败");
-                }
-            }
-        }
+    public int saveBatchSensorData(List<SensorData> sensorDataList) {
+        return signalDataCache.addAll(sensorDataList);
     }
 
     @Override
     public List<SensorData> getDeviceSensorData(Long deviceId, String channelId,
             LocalDateTime startTime, LocalDateTime endTime) {
-        // 添加查询参数日志
-        log.info("Querying sensor data with params: deviceId={}, channelId={}, startTime={}, endTime={}", 
+        log.debug("Querying sensor data with params: deviceId={}, channelId={}, startTime={}, endTime={}",
             deviceId, channelId, startTime, endTime);
-            
+
         QueryWrapper<SensorData> wrapper = new QueryWrapper<>();
         wrapper.eq("device_id", deviceId)
                 .eq(channelId != null, "channel_id", channelId)
@@ -79,66 +87,107 @@ public class SensorDataServiceImpl extends ServiceImpl<SensorDataMapper, SensorD
                 .le(endTime != null, "collect_time", endTime)
                 .orderByDesc("collect_time");
         List<SensorData> sensorDataList = sensorDataMapper.selectList(wrapper);
-        
-        // 添加结果日志
-        log.info("Query result size: {}", sensorDataList.size());
-        if (!sensorDataList.isEmpty()) {
-            log.info("First record: deviceId={}, channelId={}, value={}, time={}", 
-                sensorDataList.get(0).getDeviceId(), sensorDataList.get(0).getChannelId(), 
-                sensorDataList.get(0).getDataValue(), sensorDataList.get(0).getCollectTime());
-        }
-        
+        log.debug("Query result size: {}", sensorDataList.size());
         return sensorDataList;
     }
 
+    @Override
+    public KeysetPage<SensorData> getSensorDataPage(List<Long> deviceIds, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, String pageToken, Integer size) {
+        int limit = KeysetPage.clampSize(size, defaultPageSize, maxPageSize);
+        PageToken after = PageToken.decode(pageToken);
+        List<Long> orderedIds = deviceIds.stream().distinct().sorted().collect(Collectors.toList());
+        int index = 0;
+        if (after != null) {
+            index = orderedIds.indexOf(after.getDeviceId());
+            if (index < 0) {
+                throw new BusinessException("无效的分页标记");
+            }
+        }
+
+        List<SensorData> items = new ArrayList<>(limit);
+        for (; index < orderedIds.size(); index++) {
+            Long deviceId = orderedIds.get(index);
+            PageToken seek = after != null && deviceId.equals(after.getDeviceId()) ? after : null;
+            int remaining = limit - items.size();
+            // 多取一条用于判断后面是否还有数据
+            List<SensorData> rows = selectPageAfter(deviceId, channelId, startTime, endTime, seek, remaining + 1);
+            if (rows.size() > remaining) {
+                items.addAll(rows.subList(0, remaining));
+                SensorData last = items.get(items.size() - 1);
+                String nextToken = new PageToken(last.getDeviceId().longValue(), last.getCollectTime(), last.getId()).encode();
+                return KeysetPage.of(items, nextToken);
+            }
+            items.addAll(rows);
+        }
+        return KeysetPage.of(items, null);
+    }
+
+    /**
+     * 单台设备的一页：沿(device_id, [channel_id,] collect_time, id)索引倒序做范围扫描，从seek之后开始，不使用OFFSET
+     */
+    private List<SensorData> selectPageAfter(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, PageToken seek, int limit) {
+        QueryWrapper<SensorData> wrapper = new QueryWrapper<>();
+        wrapper.eq("device_id", deviceId)
+                .eq(channelId != null, "channel_id", channelId)
+                .ge(startTime != null, "collect_time", startTime)
+                .le(endTime != null, "collect_time", endTime);
+        if (seek != null) {
+            // 冗余的collect_time <= 条件让优化器直接确定索引范围
+            wrapper.le("collect_time", seek.getTime())
+                    .and(w -> w.lt("collect_time", seek.getTime())
+                            .or().eq("collect_time", seek.getTime()).lt("id", seek.getId()));
+        }
+        wrapper.orderByDesc("collect_time", "id")
+                .last("LIMIT " + limit);
+        return sensorDataMapper.selectList(wrapper);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamSensorData(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, Consumer<SensorData> consumer) {
+        long rows = 0;
+        try (Cursor<SensorData> cursor = sensorDataMapper.streamSensorData(deviceId, channelId, startTime, endTime)) {
+            for (SensorData data : cursor) {
+                consumer.accept(data);
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
     @Override
     public SensorData getLatestSensorData(Long deviceId, String channelId) {
+        // 由近及远逐步放宽时间窗口，带collect_time条件时只扫描最近的分区
+        LocalDateTime now = LocalDateTime.now();
+        for (int days : LATEST_LOOKUP_DAYS) {
+            SensorData latest = selectLatest(deviceId, channelId, now.minusDays(days));
+            if (latest != null) {
+                return latest;
+            }
+        }
+        return selectLatest(deviceId, channelId, null);
+    }
+
+    private SensorData selectLatest(Long deviceId, String channelId, LocalDateTime since) {
         QueryWrapper<SensorData> wrapper = new QueryWrapper<>();
         wrapper.eq("device_id", deviceId)
                 .eq("channel_id", channelId)
+                .ge(since != null, "collect_time", since)
                 .orderByDesc("collect_time")
                 .last("LIMIT 1");
         return sensorDataMapper.selectOne(wrapper);
     }
 
     @Override
-    public List<SensorData> getDeviceSensorDataStats(Long deviceId, String channelId,
+    public List<AggregationResult> getDeviceSensorDataStats(Long deviceId, String channelId,
             LocalDateTime startTime, LocalDateTime endTime, String statsType) {
-        String groupByFormat;
-        switch (statsType.toLowerCase()) {
-            case "hour":
-                groupByFormat = "DATE_FORMAT(collect_time, '%Y-%m-%d %H:00:00')";
-                break;
-            case "day":
-                groupByFormat = "DATE_FORMAT(collect_time, '%Y-%m-%d')";
-                break;
-            case "week":
-                groupByFormat = "DATE_FORMAT(collect_time, '%Y-%u')"; // %u表示周数
-                break;
-            case "month":
-                groupByFormat = "DATE_FORMAT(collect_time, '%Y-%m')";
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported stats type: " + statsType);
-        }
-
-        QueryWrapper<SensorData> wrapper = new QueryWrapper<>();
-        wrapper.select(
-                "device_id",
-                "channel_id",
-                groupByFormat + " as collect_time",
-                "AVG(value) as avg_value",
-                "MAX(value) as max_value",
-                "MIN(value) as min_value",
-                "COUNT(*) as count"
-        )
-        .eq("device_id", deviceId)
-        .eq(channelId != null, "channel_id", channelId)
-        .ge(startTime != null, "collect_time", startTime)
-        .le(endTime != null, "collect_time", endTime)
-        .groupBy("device_id", "channel_id", groupByFormat)
-        .orderByAsc(groupByFormat);
-        return sensorDataMapper.selectList(wrapper);
+        // 读预聚合表，不再对原始数据按时间GROUP BY
+        return dataAggregationService.getPeriodStats(deviceId, channelId, startTime, endTime, statsType);
     }
 
     @Override
@@ -173,6 +222,26 @@ public class SensorDataServiceImpl extends ServiceImpl<SensorDataMapper, SensorD
         return signalDTO;
     }
 
+    @Override
+    public SignalDTO getTimeSeriesData(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, Integer maxPoints, DownsampleMode mode) {
+        int points = maxPoints == null ? defaultMaxPoints : maxPoints;
+        if (points <= 0) {
+            return getTimeSeriesData(deviceId, channelId, startTime, endTime);
+        }
+        DownsampledSeries series = timeSeriesDownsampler.downsample(deviceId, channelId, startTime, endTime, points, mode);
+        long[] offsets = series.getTimeOffsets();
+        double[] times = new double[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            times[i] = offsets[i];
+        }
+        SignalDTO signalDTO = new SignalDTO();
+        signalDTO.setTimes(times);
+        signalDTO.setValues(series.getValues());
+        signalDTO.setCollectTime(startTime);
+        return signalDTO;
+    }
+
     /**
      * 将传感器数据转换为时序信号数组
      * @param sensorDataList 传感器数据列表
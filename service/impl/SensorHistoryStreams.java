@@ -0,0 +1,158 @@
+package com.iot.platform.service.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.platform.codec.SensorDataStreamWriter;
+import com.iot.platform.enums.StreamFormat;
+import com.iot.platform.service.SensorDataService;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 传感器历史数据的流式HTTP导出
+ * <p>
+ * 数据库游标逐行读出、边读边写到响应流，任意时间范围内存占用恒定。每个导出流在传输期间独占一个数据库连接，
+ * 因此限制同时进行的导出数，超出时由调用方返回503。
+ * <p>
+ * 许可在请求线程中获取（此时还能返回503），由导出结束时释放；响应体因异步超时、出错或客户端断开而
+ * 没有执行时，由异步请求完成回调（见WebMvcConfig中注册的拦截器）兜底释放，许可只会释放一次。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorHistoryStreams implements CallableProcessingInterceptor {
+
+    private static final String STREAM_ATTRIBUTE = SensorHistoryStreams.class.getName() + ".stream";
+
+    private final SensorDataService sensorDataService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${sensor-data.stream.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${sensor-data.stream.flush-rows:1000}")
+    private int flushRows;
+
+    @Value("${sensor-data.stream.binary-chunk-rows:4096}")
+    private int binaryChunkRows;
+
+    private Semaphore permits;
+
+    private final LongAdder completedStreams = new LongAdder();
+    private final LongAdder abortedStreams = new LongAdder();
+    private final LongAdder rejectedStreams = new LongAdder();
+    private final LongAdder streamedRows = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * 依次导出多台设备的数据
+     *
+     * @return 响应体；同时进行的导出已达上限时返回null
+     */
+    public StreamingResponseBody open(List<Long> deviceIds, String channelId,
+                                      LocalDateTime startTime, LocalDateTime endTime, StreamFormat format) {
+        if (!permits.tryAcquire()) {
+            rejectedStreams.increment();
+            return null;
+        }
+        HistoryStream stream = new HistoryStream(deviceIds, channelId, startTime, endTime, format);
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(STREAM_ATTRIBUTE, stream, RequestAttributes.SCOPE_REQUEST);
+        }
+        return stream;
+    }
+
+    /**
+     * 异步请求结束（正常完成、超时或出错）时释放该请求尚未释放的许可
+     */
+    @Override
+    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+        Object stream = request.getAttribute(STREAM_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (stream instanceof HistoryStream) {
+            ((HistoryStream) stream).release();
+        }
+    }
+
+    private final class HistoryStream implements StreamingResponseBody {
+
+        private final List<Long> deviceIds;
+        private final String channelId;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private final StreamFormat format;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        HistoryStream(List<Long> deviceIds, String channelId,
+                      LocalDateTime startTime, LocalDateTime endTime, StreamFormat format) {
+            this.deviceIds = deviceIds;
+            this.channelId = channelId;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.format = format;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            SensorDataStreamWriter writer = null;
+            try {
+                writer = new SensorDataStreamWriter(out, format, objectMapper, flushRows, binaryChunkRows);
+                for (Long deviceId : deviceIds) {
+                    sensorDataService.streamSensorData(deviceId, channelId, startTime, endTime, writer::write);
+                    writer.finish();
+                }
+                completedStreams.increment();
+            } catch (UncheckedIOException e) {
+                abortedStreams.increment();
+                log.debug("Sensor history stream aborted by client: {}", e.getMessage());
+            } finally {
+                if (writer != null) {
+                    streamedRows.add(writer.getRows());
+                }
+                release();
+            }
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("activeStreams", maxConcurrent - permits.availablePermits());
+        stats.put("completedStreams", completedStreams.sum());
+        stats.put("abortedStreams", abortedStreams.sum());
+        stats.put("rejectedStreams", rejectedStreams.sum());
+        stats.put("streamedRows", streamedRows.sum());
+        return stats;
+    }
+}
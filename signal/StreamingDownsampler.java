@@ -0,0 +1,247 @@
+package com.iot.platform.signal;
+
+import java.util.Arrays;
+
+import com.iot.platform.enums.DownsampleMode;
+
+/**
+ * 按时间桶流式降采样
+ * <p>
+ * 把[0, span)等分为若干时间桶，按时间顺序逐点输入，输出点数不超过maxPoints。
+ * MINMAX每桶只保留当前最小、最大值；LTTB只缓存相邻两个桶的点，
+ * 在后一个桶结束后用它的平均点作为第三个顶点，从前一个桶中选出面积最大的点。
+ * 首、尾两点总是保留。时间用相对起点的毫秒数表示。
+ */
+public final class StreamingDownsampler {
+
+    private final DownsampleMode mode;
+    private final long span;
+    private final int buckets;
+
+    private long[] outTimes;
+    private double[] outValues;
+    private int outSize;
+    private long inputPoints;
+
+    // LTTB：上一个选中点、待选桶和正在收集的桶
+    private boolean hasFirst;
+    private long selectedTime;
+    private double selectedValue;
+    private PointBuffer pending = new PointBuffer();
+    private PointBuffer current = new PointBuffer();
+    private int currentIndex = -1;
+
+    // MINMAX：当前桶的最小、最大点
+    private long minTime;
+    private double minValue;
+    private long maxTime;
+    private double maxValue;
+    private int bucketCount;
+
+    /**
+     * @param span      时间范围（毫秒）
+     * @param maxPoints 最多输出点数，LTTB至少为3，MINMAX至少为2
+     */
+    public StreamingDownsampler(DownsampleMode mode, long span, int maxPoints) {
+        if (span <= 0) {
+            throw new IllegalArgumentException("span must be positive");
+        }
+        this.mode = mode;
+        this.span = span;
+        this.buckets = mode == DownsampleMode.LTTB ? Math.max(1, maxPoints - 2) : Math.max(1, maxPoints / 2);
+        int capacity = mode == DownsampleMode.LTTB ? buckets + 2 : buckets * 2;
+        this.outTimes = new long[Math.min(capacity, 1024)];
+        this.outValues = new double[outTimes.length];
+    }
+
+    public DownsampleMode getMode() {
+        return mode;
+    }
+
+    /**
+     * 输入一个点，time须不早于之前输入的点
+     */
+    public void add(long time, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        inputPoints++;
+        if (mode == DownsampleMode.MINMAX) {
+            addMinMax(time, value);
+        } else {
+            addLttb(time, value);
+        }
+    }
+
+    private int bucketOf(long time) {
+        long index = time * buckets / span;
+        return (int) Math.max(0, Math.min(buckets - 1, index));
+    }
+
+    private void addMinMax(long time, double value) {
+        int index = Math.max(bucketOf(time), currentIndex);
+        if (index != currentIndex) {
+            flushMinMax();
+            currentIndex = index;
+        }
+        if (bucketCount == 0 || value < minValue) {
+            minTime = time;
+            minValue = value;
+        }
+        if (bucketCount == 0 || value > maxValue) {
+            maxTime = time;
+            maxValue = value;
+        }
+        bucketCount++;
+    }
+
+    private void flushMinMax() {
+        if (bucketCount == 0) {
+            return;
+        }
+        if (minTime == maxTime) {
+            emit(minTime, minValue);
+        } else if (minTime < maxTime) {
+            emit(minTime, minValue);
+            emit(maxTime, maxValue);
+        } else {
+            emit(maxTime, maxValue);
+            emit(minTime, minValue);
+        }
+        bucketCount = 0;
+    }
+
+    private void addLttb(long time, double value) {
+        if (!hasFirst) {
+            hasFirst = true;
+            select(time, value);
+            return;
+        }
+        int index = Math.max(bucketOf(time), currentIndex);
+        if (index != currentIndex) {
+            if (current.size > 0) {
+                selectFrom(pending, current.averageTime(), current.averageValue());
+                PointBuffer done = pending;
+                pending = current;
+                current = done;
+                current.clear();
+            }
+            currentIndex = index;
+        }
+        current.add(time, value);
+    }
+
+    /**
+     * 从bucket中选出与上一个选中点、(cTime, cValue)构成三角形面积最大的点
+     */
+    private void selectFrom(PointBuffer bucket, double cTime, double cValue) {
+        if (bucket.size == 0) {
+            return;
+        }
+        int best = 0;
+        double bestArea = -1;
+        for (int i = 0; i < bucket.size; i++) {
+            double area = Math.abs((selectedTime - cTime) * (bucket.values[i] - selectedValue)
+                    - (selectedTime - bucket.times[i]) * (cValue - selectedValue));
+            if (area > bestArea) {
+                bestArea = area;
+                best = i;
+            }
+        }
+        select(bucket.times[best], bucket.values[best]);
+        bucket.clear();
+    }
+
+    private void select(long time, double value) {
+        selectedTime = time;
+        selectedValue = value;
+        emit(time, value);
+    }
+
+    private void emit(long time, double value) {
+        if (outSize == outTimes.length) {
+            outTimes = Arrays.copyOf(outTimes, outSize * 2);
+            outValues = Arrays.copyOf(outValues, outSize * 2);
+        }
+        outTimes[outSize] = time;
+        outValues[outSize] = value;
+        outSize++;
+    }
+
+    /**
+     * 输入结束，处理剩余的桶
+     */
+    public void finish() {
+        if (mode == DownsampleMode.MINMAX) {
+            flushMinMax();
+            return;
+        }
+        // 最后一个点单独保留，不参与所在桶的选择
+        PointBuffer holder = current.size > 0 ? current : pending;
+        if (holder.size == 0) {
+            return;
+        }
+        long lastTime = holder.times[holder.size - 1];
+        double lastValue = holder.values[holder.size - 1];
+        holder.removeLast();
+        if (current.size > 0) {
+            selectFrom(pending, current.averageTime(), current.averageValue());
+            selectFrom(current, lastTime, lastValue);
+        } else {
+            selectFrom(pending, lastTime, lastValue);
+        }
+        select(lastTime, lastValue);
+    }
+
+    public long[] getTimes() {
+        return Arrays.copyOf(outTimes, outSize);
+    }
+
+    public double[] getValues() {
+        return Arrays.copyOf(outValues, outSize);
+    }
+
+    public long getInputPoints() {
+        return inputPoints;
+    }
+
+    private static final class PointBuffer {
+        long[] times = new long[256];
+        double[] values = new double[256];
+        int size;
+        double timeSum;
+        double valueSum;
+
+        void add(long time, double value) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            times[size] = time;
+            values[size] = value;
+            size++;
+            timeSum += time;
+            valueSum += value;
+        }
+
+        void removeLast() {
+            size--;
+            timeSum -= times[size];
+            valueSum -= values[size];
+        }
+
+        double averageTime() {
+            return timeSum / size;
+        }
+
+        double averageValue() {
+            return valueSum / size;
+        }
+
+        void clear() {
+            size = 0;
+            timeSum = 0;
+            valueSum = 0;
+        }
+    }
+}
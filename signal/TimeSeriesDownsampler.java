@@ -0,0 +1,19 @@
+package com.iot.platform.signal;
+
+import java.time.LocalDateTime;
+
+import com.iot.platform.dto.DownsampledSeries;
+import com.iot.platform.enums.DownsampleMode;
+
+/**
+ * 时序数据降采样接口
+ */
+public interface TimeSeriesDownsampler {
+
+    /**
+     * 读取一个通道在[startTime, endTime]内的数据并降采样到不超过maxPoints个点；
+     * 时间桶足够宽时直接读预聚合表，否则流式读取原始数据
+     */
+    DownsampledSeries downsample(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, int maxPoints, DownsampleMode mode);
+}
@@ -0,0 +1,178 @@
+package com.iot.platform.signal.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.iot.platform.dto.DownsampledSeries;
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.entity.SensorDataRollup;
+import com.iot.platform.enums.DownsampleMode;
+import com.iot.platform.enums.RollupResolution;
+import com.iot.platform.exception.BusinessException;
+import com.iot.platform.mapper.SensorDataMapper;
+import com.iot.platform.mapper.SensorDataRollupMapper;
+import com.iot.platform.signal.StreamingDownsampler;
+import com.iot.platform.signal.TimeSeriesDownsampler;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TimeSeriesDownsamplerImpl implements TimeSeriesDownsampler {
+
+    private static final RollupResolution[] TIERS_COARSEST_FIRST = {
+        RollupResolution.DAY, RollupResolution.HOUR, RollupResolution.MINUTE
+    };
+
+    private final SensorDataMapper sensorDataMapper;
+    private final SensorDataRollupMapper rollupMapper;
+
+    @Value("${downsample.max-points:10000}")
+    private int maxPointsLimit;
+
+    @Value("${downsample.use-rollups:true}")
+    private boolean useRollups;
+
+    @Value("${rollup.minute-retention-days:30}")
+    private int minuteRetentionDays;
+
+    @Value("${downsample.raw-max-concurrent:4}")
+    private int rawMaxConcurrent;
+
+    @Value("${downsample.raw-wait:2000}")
+    private long rawWaitMillis;
+
+    /** 读原始数据的降采样逐行扫描整个时间范围并占用一个连接，限制同时进行的数量 */
+    private Semaphore rawPermits;
+
+    @PostConstruct
+    public void init() {
+        rawPermits = new Semaphore(rawMaxConcurrent);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DownsampledSeries downsample(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, int maxPoints, DownsampleMode mode) {
+        if (channelId == null) {
+            throw new BusinessException("降采样需要指定通道");
+        }
+        if (startTime == null || endTime == null || !endTime.isAfter(startTime)) {
+            throw new BusinessException("降采样需要有效的起止时间");
+        }
+        int points = Math.max(3, Math.min(maxPoints, maxPointsLimit));
+        long span = ChronoUnit.MILLIS.between(startTime, endTime) + 1;
+        StreamingDownsampler downsampler = new StreamingDownsampler(mode, span, points);
+
+        RollupResolution tier = selectTier(startTime, span, points, mode);
+        if (tier != null) {
+            feedRollups(downsampler, tier, deviceId, channelId, startTime, endTime);
+        } else {
+            feedRawLimited(downsampler, deviceId, channelId, startTime, endTime);
+        }
+        downsampler.finish();
+
+        DownsampledSeries series = new DownsampledSeries();
+        series.setStartTime(startTime);
+        series.setTimeOffsets(downsampler.getTimes());
+        series.setValues(downsampler.getValues());
+        series.setInputPoints(downsampler.getInputPoints());
+        series.setSource(tier == null ? "RAW" : tier.name());
+        return series;
+    }
+
+    /**
+     * 选择不宽于一个降采样桶的最粗预聚合粒度，没有合适粒度时返回null读原始数据；
+     * 分钟汇总超出保留期时改用小时汇总，点数少于请求值，但不扫描原始数据
+     */
+    private RollupResolution selectTier(LocalDateTime startTime, long span, int points, DownsampleMode mode) {
+        if (!useRollups) {
+            return null;
+        }
+        int buckets = mode == DownsampleMode.LTTB ? points - 2 : points / 2;
+        Duration bucketWidth = Duration.ofMillis(span / buckets);
+        for (RollupResolution tier : TIERS_COARSEST_FIRST) {
+            if (tier.getUnit().getDuration().compareTo(bucketWidth) > 0) {
+                continue;
+            }
+            LocalDateTime minuteRetainedSince = RollupResolution.minuteRetainedSince(minuteRetentionDays);
+            if (tier == RollupResolution.MINUTE && minuteRetainedSince != null
+                    && startTime.isBefore(minuteRetainedSince)) {
+                return RollupResolution.HOUR;
+            }
+            return tier;
+        }
+        return null;
+    }
+
+    private void feedRawLimited(StreamingDownsampler downsampler, Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime) {
+        boolean acquired;
+        try {
+            acquired = rawPermits.tryAcquire(rawWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new BusinessException(503, "原始数据降采样查询繁忙，请稍后重试或减少点数");
+        }
+        try {
+            feedRaw(downsampler, deviceId, channelId, startTime, endTime);
+        } finally {
+            rawPermits.release();
+        }
+    }
+
+    /**
+     * 游标逐行读取原始数据，读出后立即转成(毫秒偏移, 数值)送入降采样器，不保留结果集
+     */
+    private void feedRaw(StreamingDownsampler downsampler, Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime) {
+        try (Cursor<SensorData> cursor = sensorDataMapper.streamSensorData(deviceId, channelId, startTime, endTime)) {
+            for (SensorData data : cursor) {
+                if (data.getDataValue() != null && data.getCollectTime() != null) {
+                    downsampler.add(ChronoUnit.MILLIS.between(startTime, data.getCollectTime()), data.getDataValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 汇总桶转成降采样输入：LTTB每桶取桶中点处的平均值；MINMAX每桶输入最小值和最大值两个点，
+     * 汇总表不记录二者的先后，固定按先最小后最大放在桶内，保留峰谷
+     */
+    private void feedRollups(StreamingDownsampler downsampler, RollupResolution tier, Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime) {
+        long halfWidth = tier.getUnit().getDuration().toMillis() / 2;
+        for (SensorDataRollup rollup : rollupMapper.selectRollups(tier.getTable(), deviceId, channelId,
+                tier.floor(startTime), endTime)) {
+            long offset = Math.max(0, ChronoUnit.MILLIS.between(startTime, rollup.getBucketTime()));
+            if (downsampler.getMode() == DownsampleMode.LTTB) {
+                if (rollup.getSampleCount() > 0) {
+                    downsampler.add(offset + halfWidth, rollup.getSumValue() / rollup.getSampleCount());
+                }
+                continue;
+            }
+            downsampler.add(offset, rollup.getMinValue());
+            if (rollup.getMaxValue() > rollup.getMinValue()) {
+                downsampler.add(offset + halfWidth, rollup.getMaxValue());
+            }
+        }
+    }
+}
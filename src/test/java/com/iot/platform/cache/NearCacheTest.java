@@ -0,0 +1,106 @@
+package com.iot.platform.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 单飞加载、未命中缓存，以及加载期间失效不把旧值写回缓存
+ */
+class NearCacheTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        NearCache<String, String> cache = new NearCache<>(100, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.get("k", key -> {
+                    loads.incrementAndGet();
+                    sleep(200);
+                    return "v";
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+        }
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void missIsCachedForNegativeTtl() throws Exception {
+        NearCache<String, String> cache = new NearCache<>(100, 60_000, 200);
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.get("missing", key -> {
+                loads.incrementAndGet();
+                return null;
+            })).isNull();
+        }
+        assertThat(loads.get()).isEqualTo(1);
+
+        Thread.sleep(250);
+        cache.get("missing", key -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidateDuringLoadDiscardsLoadedValue() throws Exception {
+        NearCache<String, String> cache = new NearCache<>(100, 60_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        Future<String> result = executor.submit(() -> cache.get("k", key -> {
+            loading.countDown();
+            await(invalidated);
+            return "old";
+        }));
+        loading.await();
+        cache.invalidate("k");
+        invalidated.countDown();
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("old");
+        assertThat(cache.peek("k")).isNull();
+        assertThat(cache.get("k", key -> "new")).isEqualTo("new");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
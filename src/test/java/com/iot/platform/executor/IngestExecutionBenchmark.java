@@ -0,0 +1,134 @@
+package com.iot.platform.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.iot.platform.enums.ExecutionMode;
+
+/**
+ * 接入线程模型压测驱动：PLATFORM与VIRTUAL两种模式的分区执行器在不同 db-permits 下的吞吐
+ * <p>
+ * 每条消息按设备分区提交，处理时经 {@link IngestExecution} 的限流器做一次模拟Redis调用和一次模拟DB调用
+ * （阻塞式睡眠），与接入路径上查设备、写库的调用形态一致。结果与CPU核数和JDK版本有关：
+ * VIRTUAL需要JDK 21+，运行时不支持虚拟线程时该组跳过并注明。
+ * <p>
+ * 不是单元测试，不会被测试插件执行。编译测试代码后运行：
+ * <pre>
+ * java -cp target/test-classes:target/classes:&lt;依赖&gt; com.iot.platform.executor.IngestExecutionBenchmark \
+ *      [消息数=20000] [设备数=5000] [Redis耗时ms=1] [DB耗时ms=5] [db-permits列表=4,10,50]
+ * </pre>
+ */
+public final class IngestExecutionBenchmark {
+
+    private static final int REDIS_PERMITS = 8;
+    private static final int WARMUP_MESSAGES = 2000;
+
+    private IngestExecutionBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int devices = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        long redisMillis = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        long dbMillis = args.length > 3 ? Long.parseLong(args[3]) : 5;
+        List<Integer> permitValues = new ArrayList<>();
+        for (String value : (args.length > 4 ? args[4] : "4,10,50").split(",")) {
+            permitValues.add(Integer.parseInt(value.trim()));
+        }
+
+        System.out.printf(Locale.ROOT, "Java %d, %d CPU(s), %d messages over %d devices, %d ms Redis + %d ms DB per message%n",
+                Runtime.version().feature(), Runtime.getRuntime().availableProcessors(),
+                messages, devices, redisMillis, dbMillis);
+        System.out.printf(Locale.ROOT, "%-9s %6s %10s %12s %12s %16s%n",
+                "mode", "lanes", "db-permits", "msg/s", "ceiling", "avg db wait ms");
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            for (int dbPermits : permitValues) {
+                Result result = run(mode, dbPermits, messages, devices, redisMillis, dbMillis);
+                if (result == null) {
+                    System.out.printf(Locale.ROOT, "%-9s skipped: virtual threads not supported on Java %d%n",
+                            mode, Runtime.version().feature());
+                    break;
+                }
+                System.out.printf(Locale.ROOT, "%-9s %6d %10d %12.0f %12.0f %16s%n", mode, result.lanes, dbPermits,
+                        result.throughput, ceiling(result.lanes, dbPermits, redisMillis, dbMillis),
+                        result.avgDbWaitMillis);
+            }
+        }
+    }
+
+    /**
+     * 理论上限：lane全部阻塞时受lane数限制，DB限流时受 permits / DB耗时 限制
+     */
+    private static double ceiling(int lanes, int dbPermits, long redisMillis, long dbMillis) {
+        double byLanes = lanes * 1000.0 / (redisMillis + dbMillis);
+        double byDb = dbPermits * 1000.0 / dbMillis;
+        return Math.min(byLanes, byDb);
+    }
+
+    private static Result run(ExecutionMode mode, int dbPermits, int messages, int devices,
+                              long redisMillis, long dbMillis) throws InterruptedException {
+        IngestExecution execution = new IngestExecution();
+        ReflectionTestUtils.setField(execution, "configuredMode", mode);
+        ReflectionTestUtils.setField(execution, "dbPermits", dbPermits);
+        ReflectionTestUtils.setField(execution, "redisPermits", REDIS_PERMITS);
+        ReflectionTestUtils.setField(execution, "virtualLaneCount", 1024);
+        ReflectionTestUtils.setField(execution, "virtualLaneQueueCapacity", 256);
+        execution.init();
+        if (mode == ExecutionMode.VIRTUAL && !execution.isVirtual()) {
+            return null;
+        }
+        int lanes = execution.resolveLaneCount(0);
+        PartitionedExecutor executor = new PartitionedExecutor("bench", lanes,
+                execution.resolveLaneQueueCapacity(1024), execution.threadFactory("bench"));
+        try {
+            submit(executor, execution, WARMUP_MESSAGES, devices, redisMillis, dbMillis);
+            // 预热后重建限流器，等待时间只统计正式一轮
+            execution.init();
+            long start = System.nanoTime();
+            submit(executor, execution, messages, devices, redisMillis, dbMillis);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new Result(lanes, messages / seconds, execution.db().getStats().get("avgWaitMillis"));
+        } finally {
+            executor.shutdown(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void submit(PartitionedExecutor executor, IngestExecution execution, int messages, int devices,
+                               long redisMillis, long dbMillis) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(messages);
+        for (int i = 0; i < messages; i++) {
+            String deviceCode = "DEV" + (i % devices);
+            executor.execute(deviceCode, () -> {
+                try {
+                    execution.redis().run(() -> block(redisMillis));
+                    execution.db().run(() -> block(dbMillis));
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private static void block(long millis) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static final class Result {
+        final int lanes;
+        final double throughput;
+        final Object avgDbWaitMillis;
+
+        Result(int lanes, double throughput, Object avgDbWaitMillis) {
+            this.lanes = lanes;
+            this.throughput = throughput;
+            this.avgDbWaitMillis = avgDbWaitMillis;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.iot.platform.mqtt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import com.iot.platform.executor.PartitionedExecutor;
+
+/**
+ * 按主题分区：同一主题的消息按到达顺序处理；lane队列满时阻塞调用方（Paho回调线程）
+ */
+class PartitionedInboundHandlerTest {
+
+    private static final int TOPICS = 50;
+    private static final int LANES = 4;
+    private static final int MESSAGES = 10_000;
+
+    @Test
+    void messagesOfOneTopicAreHandledInArrivalOrder() throws Exception {
+        Map<String, Integer> lastSequence = new ConcurrentHashMap<>();
+        List<String> reordered = new CopyOnWriteArrayList<>();
+        AtomicInteger handled = new AtomicInteger();
+        PartitionedInboundHandler handler = new PartitionedInboundHandler(message -> {
+            String topic = message.getHeaders().get("mqtt_receivedTopic", String.class);
+            int sequence = (Integer) message.getPayload();
+            Integer previous = lastSequence.put(topic, sequence);
+            if (previous != null && previous >= sequence) {
+                reordered.add(topic + ": " + previous + " -> " + sequence);
+            }
+            if (ThreadLocalRandom.current().nextInt(20) == 0) {
+                Thread.yield();
+            }
+            handled.incrementAndGet();
+        }, new PartitionedExecutor("mqtt-test", LANES, 16));
+
+        for (int i = 0; i < MESSAGES; i++) {
+            handler.handleMessage(message("device/dev" + (i % TOPICS) + "/data", i));
+        }
+        handler.destroy();
+
+        assertThat(handled.get()).isEqualTo(MESSAGES);
+        assertThat(lastSequence).hasSize(TOPICS);
+        assertThat(reordered).isEmpty();
+    }
+
+    @Test
+    void fullLaneBlocksCaller() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        PartitionedInboundHandler handler = new PartitionedInboundHandler(message -> {
+            firstStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add((Integer) message.getPayload());
+        }, new PartitionedExecutor("mqtt-test", 1, 1));
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            // 第一条被lane取走并阻塞在处理中，第二条占满容量为1的队列
+            handler.handleMessage(message("device/dev1/data", 1));
+            assertThat(firstStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            handler.handleMessage(message("device/dev1/data", 2));
+
+            Future<?> third = caller.submit(() -> handler.handleMessage(message("device/dev1/data", 3)));
+            assertThatThrownBy(() -> third.get(300, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+            release.countDown();
+            third.get(5, TimeUnit.SECONDS);
+            handler.destroy();
+            assertThat(handled).containsExactly(1, 2, 3);
+        } finally {
+            release.countDown();
+            caller.shutdownNow();
+        }
+    }
+
+    private static Message<Integer> message(String topic, int sequence) {
+        return MessageBuilder.withPayload(sequence).setHeader("mqtt_receivedTopic", topic).build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.iot.platform.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.RollupResolution;
+import com.iot.platform.mapper.SensorDataRollupMapper;
+
+/**
+ * 汇总水位只在全部桶入库后推进；过期水位触发从回看起点开始的覆盖重建
+ */
+class SensorDataRollupRepairTest {
+
+    private SensorDataRollupMapper rollupMapper;
+    private SensorDataRollupAccumulator accumulator;
+    private SensorDataRollupRepairer repairer;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        rollupMapper = mock(SensorDataRollupMapper.class);
+        accumulator = new SensorDataRollupAccumulator(rollupMapper);
+        ReflectionTestUtils.setField(accumulator, "batchSize", 500);
+        ReflectionTestUtils.setField(accumulator, "repairEnabled", true);
+
+        RLock lock = mock(RLock.class);
+        when(lock.tryLock(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        when(redissonClient.getLock(anyString())).thenReturn(lock);
+        repairer = new SensorDataRollupRepairer(rollupMapper, redissonClient);
+        ReflectionTestUtils.setField(repairer, "enabled", true);
+        ReflectionTestUtils.setField(repairer, "staleAfterMillis", 600_000L);
+        ReflectionTestUtils.setField(repairer, "lookbackMillis", 300_000L);
+        ReflectionTestUtils.setField(repairer, "minuteRetentionDays", 30);
+    }
+
+    @Test
+    void markAdvancesOnlyAfterAllBucketsPersisted() {
+        accumulator.accumulate(List.of(data(LocalDateTime.now())));
+        doThrow(new RuntimeException("db down")).when(rollupMapper)
+                .upsertBatch(eq(RollupResolution.HOUR.getTable()), anyList());
+        accumulator.flush();
+        verify(rollupMapper, never()).saveMark(anyString(), any());
+
+        // 重试的桶在下一次刷新中写入成功后才推进水位
+        reset(rollupMapper);
+        accumulator.flush();
+        verify(rollupMapper).upsertBatch(eq(RollupResolution.HOUR.getTable()), anyList());
+        verify(rollupMapper).saveMark(anyString(), any());
+    }
+
+    @Test
+    void cleanShutdownDeletesMark() {
+        accumulator.accumulate(List.of(data(LocalDateTime.now())));
+        accumulator.shutdown();
+        verify(rollupMapper).saveMark(anyString(), any());
+        verify(rollupMapper).deleteMark(anyString());
+    }
+
+    @Test
+    void noStaleMarkRebuildsNothing() {
+        repairer.repair();
+        verify(rollupMapper, never()).rebuildMinuteBuckets(any(), any());
+        verify(rollupMapper, never()).deleteStaleMarks(any());
+    }
+
+    @Test
+    void staleMarkRebuildsFromLookbackUpToLastClosedMinute() {
+        LocalDateTime mark = LocalDateTime.now().minusMinutes(30);
+        when(rollupMapper.selectOldestStaleMark(any())).thenReturn(mark);
+        repairer.repair();
+
+        ArgumentCaptor<LocalDateTime> from = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> to = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(rollupMapper, atLeastOnce()).rebuildMinuteBuckets(from.capture(), to.capture());
+        LocalDateTime since = RollupResolution.MINUTE.floor(mark.minusMinutes(5));
+        assertThat(from.getAllValues().get(0)).isEqualTo(since);
+        assertThat(to.getAllValues().get(to.getAllValues().size() - 1))
+                .isBeforeOrEqualTo(RollupResolution.MINUTE.floor(LocalDateTime.now()).minusMinutes(1));
+
+        verify(rollupMapper).rebuildBucket(RollupResolution.HOUR.getTable(), RollupResolution.MINUTE.getTable(),
+                RollupResolution.HOUR.floor(since), RollupResolution.HOUR.floor(since).plusHours(1));
+        verify(rollupMapper, atLeastOnce()).rebuildBucket(eq(RollupResolution.DAY.getTable()),
+                eq(RollupResolution.HOUR.getTable()), eq(RollupResolution.DAY.floor(since)), any());
+        verify(rollupMapper, times(1)).deleteStaleMarks(any());
+    }
+
+    private static SensorData data(LocalDateTime collectTime) {
+        SensorData data = new SensorData();
+        data.setDeviceId(1);
+        data.setChannelId("ch1");
+        data.setDataValue(1.0);
+        data.setCollectTime(collectTime);
+        return data;
+    }
+}
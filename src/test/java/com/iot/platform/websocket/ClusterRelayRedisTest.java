@@ -0,0 +1,169 @@
+package com.iot.platform.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.platform.entity.AlarmRecord;
+import com.iot.platform.enums.DeviceTopic;
+import com.iot.platform.enums.ExecutionMode;
+import com.iot.platform.executor.IngestExecution;
+
+/**
+ * 两个中继节点连同一个Redis：验证只在其他节点有会话在看时才需要发布、事件能送达对端的本地订阅者。
+ * 需要可访问的Redis（REDIS_HOST/REDIS_PORT，默认 localhost:6379），不可用时跳过。
+ */
+class ClusterRelayRedisTest {
+
+    private final String deviceCode = "relay-test-" + UUID.randomUUID();
+    private final List<Node> nodes = new ArrayList<>();
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        String host = System.getenv().getOrDefault("REDIS_HOST", "localhost");
+        int port = Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"));
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        boolean reachable;
+        try {
+            reachable = "PONG".equals(redisTemplate.execute(connection -> connection.ping(), true));
+        } catch (Exception e) {
+            reachable = false;
+        }
+        if (!reachable) {
+            connectionFactory.destroy();
+            connectionFactory = null;
+            redisTemplate = null;
+        }
+        Assumptions.assumeTrue(reachable, "Redis is not reachable at " + host + ":" + port);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (Node node : nodes) {
+            node.relay.shutdown();
+            node.container.destroy();
+        }
+        if (redisTemplate != null) {
+            redisTemplate.delete(List.of("iot:ws:watch:" + deviceCode));
+        }
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void ownWatchIsNotRemoteWatch() {
+        Node watcher = node();
+        Node ingest = node();
+        watcher.registry.addSubscription(deviceCode, DeviceTopic.ALARM);
+        watcher.relay.syncWatches();
+
+        assertThat(watcher.relay.isWatchedRemotely(deviceCode)).isFalse();
+        assertThat(ingest.relay.isWatchedRemotely(deviceCode)).isTrue();
+    }
+
+    @Test
+    void publishedEventReachesWatchingNode() throws InterruptedException {
+        Node watcher = node();
+        Node ingest = node();
+        watcher.registry.addSubscription(deviceCode, DeviceTopic.ALARM);
+        watcher.relay.syncWatches();
+
+        AlarmRecord alarm = new AlarmRecord();
+        alarm.setChannelId("ch1");
+        // 频道订阅在监听容器中异步生效，未收到时重发
+        long deadline = System.currentTimeMillis() + 5000;
+        do {
+            ingest.relay.publish(deviceCode, DeviceTopic.ALARM, alarm);
+            Thread.sleep(100);
+        } while (mockingDetails(watcher.messagingTemplate).getInvocations().isEmpty()
+                && System.currentTimeMillis() < deadline);
+
+        verify(watcher.messagingTemplate, atLeastOnce())
+                .convertAndSend(eq("/topic/device/" + deviceCode + "/alarm"), any(AlarmRecord.class));
+        verify(ingest.messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void unwatchRemovesOnlyOwnRegistration() {
+        Node first = node();
+        Node second = node();
+        Node ingest = node();
+        first.registry.addSubscription(deviceCode, DeviceTopic.ALARM);
+        second.registry.addSubscription(deviceCode, DeviceTopic.ALARM);
+        first.relay.syncWatches();
+        second.relay.syncWatches();
+
+        first.registry.removeSubscription(deviceCode, DeviceTopic.ALARM);
+        first.relay.syncWatches();
+        assertThat(ingest.relay.isWatchedRemotely(deviceCode)).isTrue();
+
+        second.registry.removeSubscription(deviceCode, DeviceTopic.ALARM);
+        second.relay.syncWatches();
+        assertThat(ingest.relay.isWatchedRemotely(deviceCode)).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node node() {
+        IngestExecution ingestExecution = new IngestExecution();
+        ReflectionTestUtils.setField(ingestExecution, "configuredMode", ExecutionMode.PLATFORM);
+        ReflectionTestUtils.setField(ingestExecution, "dbPermits", 4);
+        ReflectionTestUtils.setField(ingestExecution, "redisPermits", 4);
+        ingestExecution.init();
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.afterPropertiesSet();
+        container.start();
+
+        Node node = new Node();
+        node.container = container;
+        node.registry = new SubscriptionRegistry();
+        node.messagingTemplate = mock(SimpMessagingTemplate.class);
+        node.relay = new ClusterRelay(redisTemplate, container, node.messagingTemplate, node.registry,
+                mock(ObjectProvider.class), mock(SseStreams.class), new ObjectMapper(), ingestExecution);
+        ReflectionTestUtils.setField(node.relay, "enabled", true);
+        ReflectionTestUtils.setField(node.relay, "watchTtlMillis", 30_000L);
+        // 不缓存查询结果，每次都读Redis
+        ReflectionTestUtils.setField(node.relay, "watchCacheTtlMillis", 0L);
+        ReflectionTestUtils.setField(node.relay, "publishThreads", 1);
+        ReflectionTestUtils.setField(node.relay, "publishQueueCapacity", 100);
+        node.relay.init();
+        nodes.add(node);
+        return node;
+    }
+
+    private static final class Node {
+        RedisMessageListenerContainer container;
+        SubscriptionRegistry registry;
+        SimpMessagingTemplate messagingTemplate;
+        ClusterRelay relay;
+    }
+}
@@ -0,0 +1,173 @@
+package com.iot.platform.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.server.support.WebSocketHandlerMapping;
+import org.springframework.web.socket.sockjs.support.SockJsHttpRequestHandler;
+
+import com.iot.platform.config.WebSocketBrokerConfiguration;
+import com.iot.platform.config.WebSocketConfig;
+import com.iot.platform.config.WebSocketOutboundProperties;
+
+/**
+ * 按应用的STOMP配置组装代理和 /ws 端点的处理器链，用一个发送很慢的会话验证分级队列确实生效：
+ * 告警越过积压的数据先发出，数据按容量丢弃最早的，会话不被断开。
+ */
+class OutboundBackpressureStompTest {
+
+    private static final String DEVICE_TOPIC = "/topic/device/D1/";
+    private static final int DATA_CAPACITY = 4;
+
+    private AnnotationConfigApplicationContext context;
+    private WebSocketHandler handler;
+    private WebSocketSession session;
+    private SimpMessagingTemplate template;
+    private OutboundBackpressure backpressure;
+
+    private final List<String> sent = new ArrayList<>();
+    private volatile boolean blockData;
+    private final CountDownLatch dataSendStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseSend = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        context = new AnnotationConfigApplicationContext();
+        context.register(WebSocketOutboundProperties.class, OutboundBackpressure.class,
+                WebSocketConfig.class, WebSocketBrokerConfiguration.class);
+        context.refresh();
+        context.getBean(WebSocketOutboundProperties.class).setDataQueueCapacity(DATA_CAPACITY);
+        backpressure = context.getBean(OutboundBackpressure.class);
+        template = context.getBean("brokerMessagingTemplate", SimpMessagingTemplate.class);
+
+        WebSocketHandlerMapping mapping = context.getBean("stompWebSocketHandlerMapping", WebSocketHandlerMapping.class);
+        handler = ((SockJsHttpRequestHandler) mapping.getUrlMap().get("/ws/**")).getWebSocketHandler();
+
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        when(session.getAttributes()).thenReturn(new ConcurrentHashMap<>());
+        doAnswer(invocation -> {
+            String frame = ((TextMessage) invocation.getArgument(0)).getPayload();
+            if (blockData && frame.contains("destination:" + DEVICE_TOPIC + "data")
+                    && dataSendStarted.getCount() > 0) {
+                dataSendStarted.countDown();
+                releaseSend.await(10, TimeUnit.SECONDS);
+            }
+            synchronized (sent) {
+                sent.add(frame);
+            }
+            return null;
+        }).when(session).sendMessage(any(WebSocketMessage.class));
+
+        handler.afterConnectionEstablished(session);
+        handler.handleMessage(session, new TextMessage("CONNECT\naccept-version:1.2\nhost:localhost\n\n\0"));
+        awaitTrue(() -> sentFrames().stream().anyMatch(frame -> frame.startsWith("CONNECTED")));
+        subscribe("sub-alarm", DEVICE_TOPIC + "alarm");
+        subscribe("sub-data", DEVICE_TOPIC + "data");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        releaseSend.countDown();
+        if (handler != null) {
+            handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        }
+        context.close();
+    }
+
+    @Test
+    void alarmsOvertakeQueuedDataOnSlowSession() throws Exception {
+        blockData = true;
+        template.convertAndSend(DEVICE_TOPIC + "data", "d0");
+        assertThat(dataSendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // 发送线程卡在d0上，后续消息只能进入该会话的分级队列
+        for (int i = 1; i <= 20; i++) {
+            template.convertAndSend(DEVICE_TOPIC + "data", "d" + i);
+        }
+        for (int i = 1; i <= 5; i++) {
+            template.convertAndSend(DEVICE_TOPIC + "alarm", "a" + i);
+        }
+        awaitTrue(() -> droppedData() == 20 - DATA_CAPACITY
+                && (int) backpressure.getStats().get("queuedMessages") == DATA_CAPACITY + 5);
+
+        releaseSend.countDown();
+        awaitTrue(() -> messageBodies().size() == 1 + 5 + DATA_CAPACITY);
+
+        List<String> bodies = messageBodies();
+        assertThat(bodies.get(0)).isEqualTo("d0");
+        assertThat(bodies.subList(1, 6)).containsExactlyInAnyOrder("a1", "a2", "a3", "a4", "a5");
+        assertThat(bodies.subList(6, bodies.size())).allMatch(body -> body.startsWith("d"));
+        verify(session, never()).close(any(CloseStatus.class));
+    }
+
+    private void subscribe(String id, String destination) throws Exception {
+        handler.handleMessage(session, new TextMessage(
+                "SUBSCRIBE\nid:" + id + "\ndestination:" + destination + "\n\n\0"));
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        Message<byte[]> probe = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        SubscriptionRegistry registry = context.getBean(SimpleBrokerMessageHandler.class).getSubscriptionRegistry();
+        awaitTrue(() -> registry.findSubscriptions(probe).containsKey(session.getId()));
+    }
+
+    private long droppedData() {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> dropped = (Map<String, Object>) backpressure.getStats().get("droppedFrames");
+        return (long) dropped.get(OutboundBackpressure.OutboundClass.DATA.name());
+    }
+
+    private List<String> sentFrames() {
+        synchronized (sent) {
+            return new ArrayList<>(sent);
+        }
+    }
+
+    private List<String> messageBodies() {
+        List<String> bodies = new ArrayList<>();
+        for (String frame : sentFrames()) {
+            if (frame.startsWith("MESSAGE")) {
+                bodies.add(frame.substring(frame.indexOf("\n\n") + 2, frame.indexOf('\0')));
+            }
+        }
+        return bodies;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
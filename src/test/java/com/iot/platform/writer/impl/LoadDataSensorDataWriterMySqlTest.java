@@ -0,0 +1,124 @@
+package com.iot.platform.writer.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.mapper.SensorDataMapper;
+
+/**
+ * LOAD DATA导入：TSV转义与NULL往返一致；非空列遇到NULL被服务端改写时回滚并回退到insertBatch。
+ * 需要可访问的MySQL（MYSQL_URL/MYSQL_USER/MYSQL_PASSWORD，默认本机iot_platform_test库）并开启local_infile，
+ * 不可用时跳过。sensor_data表不存在时按结构建一张不分区的表。
+ */
+class LoadDataSensorDataWriterMySqlTest {
+
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/iot_platform_test"
+            + "?allowLoadLocalInfile=true&connectTimeout=2000&serverTimezone=UTC";
+
+    private final int deviceId = 900_000_000 + ThreadLocalRandom.current().nextInt(1_000_000);
+    private JdbcTemplate jdbcTemplate;
+    private SensorDataMapper sensorDataMapper;
+    private LoadDataSensorDataWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        String url = System.getenv().getOrDefault("MYSQL_URL", DEFAULT_URL);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url,
+                System.getenv().getOrDefault("MYSQL_USER", "root"),
+                System.getenv().getOrDefault("MYSQL_PASSWORD", ""));
+        boolean reachable;
+        try (Connection connection = dataSource.getConnection()) {
+            reachable = connection.isValid(2);
+        } catch (Exception e) {
+            reachable = false;
+        }
+        Assumptions.assumeTrue(reachable, "MySQL is not reachable at " + url);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        Assumptions.assumeTrue(Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT @@local_infile", Boolean.class)),
+                "local_infile is disabled on the server");
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS sensor_data (
+                id BIGINT AUTO_INCREMENT,
+                device_id BIGINT NOT NULL,
+                channel_id VARCHAR(50) NOT NULL,
+                data_value DOUBLE NOT NULL,
+                data_unit VARCHAR(20),
+                data_type VARCHAR(50) NOT NULL,
+                collect_time DATETIME NOT NULL,
+                create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                PRIMARY KEY (id, collect_time)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+            """);
+        sensorDataMapper = mock(SensorDataMapper.class);
+        writer = new LoadDataSensorDataWriter(dataSource, sensorDataMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (jdbcTemplate != null) {
+            jdbcTemplate.update("DELETE FROM sensor_data WHERE device_id = ?", deviceId);
+        }
+    }
+
+    @Test
+    void escapedFieldsAndNullsRoundTrip() {
+        SensorData special = data("ch\t1\\raw", 1.5, null, "line\nbreak\r");
+        SensorData unicode = data("通道2", -0.25, "℃", "温度");
+        writer.write(List.of(special, unicode));
+
+        verify(sensorDataMapper, never()).insertBatch(any());
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT channel_id, data_value, data_unit, data_type FROM sensor_data WHERE device_id = ? ORDER BY id",
+                deviceId);
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).get("channel_id")).isEqualTo("ch\t1\\raw");
+        assertThat(rows.get(0).get("data_value")).isEqualTo(1.5);
+        assertThat(rows.get(0).get("data_unit")).isNull();
+        assertThat(rows.get(0).get("data_type")).isEqualTo("line\nbreak\r");
+        assertThat(rows.get(1).get("channel_id")).isEqualTo("通道2");
+        assertThat(rows.get(1).get("data_unit")).isEqualTo("℃");
+        assertThat(rows.get(1).get("data_type")).isEqualTo("温度");
+    }
+
+    @Test
+    void nullInNotNullColumnRollsBackAndFallsBack() {
+        // data_type非空：LOAD DATA会把\N改写为''并只给出警告，整批必须回滚后走insertBatch
+        List<SensorData> batch = List.of(data("ch1", 1.0, "V", "voltage"), data("ch2", 2.0, "V", null));
+        writer.write(batch);
+
+        verify(sensorDataMapper).insertBatch(batch);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sensor_data WHERE device_id = ?",
+                Long.class, deviceId)).isZero();
+        assertThat(writer.getStats().get("fallbackBatches")).isEqualTo(1L);
+        assertThat(writer.getStats().get("loadedBatches")).isEqualTo(0L);
+    }
+
+    private SensorData data(String channelId, double value, String unit, String type) {
+        SensorData data = new SensorData();
+        data.setDeviceId(deviceId);
+        data.setChannelId(channelId);
+        data.setDataValue(value);
+        data.setDataUnit(unit);
+        data.setDataType(type);
+        data.setCollectTime(LocalDateTime.of(2024, 6, 1, 12, 0, 0));
+        return data;
+    }
+}
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.Map;
 
 import com.iot.platform.dto.ChartData;
+import com.iot.platform.enums.DownsampleMode;
 
 /**
  * 图表服务接口
@@ -20,6 +21,12 @@ public interface ChartService {
      */
     ChartData getHistoryTrendChart(Long deviceId, String channelId, 
             LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * 获取历史趋势图，数据降采样到不超过maxPoints个点（为空时取默认值）
+     */
+    ChartData getHistoryTrendChart(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, Integer maxPoints, DownsampleMode mode);
     
     /**
      * 获取统计分析图
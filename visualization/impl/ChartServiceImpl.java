@@ -2,22 +2,26 @@ package com.iot.platform.visualization.impl;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.iot.platform.dto.AggregationResult;
 import com.iot.platform.dto.ChartData;
+import com.iot.platform.dto.DownsampledSeries;
 import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.DownsampleMode;
 import com.iot.platform.service.AlarmService;
 import com.iot.platform.service.DataAggregationService;
 import com.iot.platform.service.SensorDataService;
+import com.iot.platform.signal.TimeSeriesDownsampler;
 import com.iot.platform.visualization.ChartService;
 
 import lombok.RequiredArgsConstructor;
@@ -31,9 +35,13 @@ public class ChartServiceImpl implements ChartService {
     private final SensorDataService sensorDataService;
     private final AlarmService alarmService;
     private final DataAggregationService aggregationService;
+    private final TimeSeriesDownsampler timeSeriesDownsampler;
     
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Value("${downsample.default-points:2000}")
+    private int defaultMaxPoints;
 
     @Override
     public ChartData getRealTimeChart(Long deviceId, String channelId) {
@@ -72,21 +80,33 @@ public class ChartServiceImpl implements ChartService {
     @Override
     public ChartData getHistoryTrendChart(Long deviceId, String channelId,
             LocalDateTime startTime, LocalDateTime endTime) {
+        return getHistoryTrendChart(deviceId, channelId, startTime, endTime, null, DownsampleMode.LTTB);
+    }
+
+    @Override
+    public ChartData getHistoryTrendChart(Long deviceId, String channelId,
+            LocalDateTime startTime, LocalDateTime endTime, Integer maxPoints, DownsampleMode mode) {
         ChartData chartData = new ChartData();
         chartData.setTitle("历史趋势分析");
         chartData.setType("line");
-        
-        // 获取历史数据
-        List<SensorData> dataList = sensorDataService.getDeviceSensorData(deviceId, channelId, startTime, endTime);
-        
+
+        // 未指定时间范围时显示最近一天
+        LocalDateTime end = endTime != null ? endTime : LocalDateTime.now();
+        LocalDateTime start = startTime != null ? startTime : end.minusDays(1);
+
+        // 获取降采样后的历史数据，点数与时间范围无关
+        DownsampledSeries downsampled = timeSeriesDownsampler.downsample(deviceId, channelId, start, end,
+                maxPoints != null ? maxPoints : defaultMaxPoints, mode);
+        long[] offsets = downsampled.getTimeOffsets();
+        double[] points = downsampled.getValues();
+
         // 构建图表数据
-        List<String> times = dataList.stream()
-                .map(data -> DATE_FORMATTER.format(data.getCollectTime()))
-                .collect(Collectors.toList());
-                
-        List<Double> values = dataList.stream()
-                .map(data -> data.getDataValue())
-                .collect(Collectors.toList());
+        List<String> times = new ArrayList<>(offsets.length);
+        List<Double> values = new ArrayList<>(points.length);
+        for (int i = 0; i < offsets.length; i++) {
+            times.add(DATE_TIME_FORMATTER.format(start.plus(offsets[i], ChronoUnit.MILLIS)));
+            values.add(points[i]);
+        }
         
         chartData.setXAxis(times);
         
@@ -123,7 +143,7 @@ public class ChartServiceImpl implements ChartService {
             stats.getMinValue(),
             stats.getMaxValue(),
             stats.getAvgValue(),
-            Math.sqrt(stats.getSumValue() / stats.getCount())
+            stats.getStdDevValue()
         );
         
         chartData.setXAxis(categories);
@@ -0,0 +1,492 @@
+package com.iot.platform.wal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.iot.platform.entity.SensorData;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 传感器数据预写日志（WAL）
+ * <p>
+ * 数据进入写入缓冲前先追加到本地分段日志：追加只写内存缓冲区，由同步线程按固定间隔
+ * 成组写入FileChannel并force，单次fsync覆盖该间隔内的全部记录。
+ * 每条记录标记所属分段，数据库确认写入后累加分段的确认数，分段已封存且全部确认时删除文件。
+ * 启动时未删除的分段即为未落库数据，由消费线程重放。
+ */
+@Slf4j
+@Component
+public class SensorDataWal {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    /** 记录头：长度(4) + CRC32(4) */
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    @Value("${batch.wal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${batch.wal.dir:./data/wal}")
+    private String walDir;
+
+    @Value("${batch.wal.segment-size:67108864}")
+    private long segmentSize;
+
+    @Value("${batch.wal.buffer-size:1048576}")
+    private int bufferSize;
+
+    @Value("${batch.wal.sync-interval:20}")
+    private long syncIntervalMillis;
+
+    private Path directory;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private ByteBuffer writeBuffer;
+    private Segment activeSegment;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final List<Segment> recoveredSegments = new ArrayList<>();
+    private Thread syncThread;
+    private volatile boolean running;
+
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong appendedRecords = new AtomicLong();
+    /** 已刷盘的记录数，等待持久化的调用方在syncMonitor上等待 */
+    private volatile long durableRecords;
+    private final Object syncMonitor = new Object();
+
+    private final ThreadLocal<ByteBuffer> encodeBuffer =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAX_RECORD_SIZE));
+    private final ThreadLocal<CRC32> crc = ThreadLocal.withInitial(CRC32::new);
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            log.info("Sensor data WAL disabled");
+            return;
+        }
+        directory = Paths.get(walDir);
+        Files.createDirectories(directory);
+
+        long nextId = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> existing = files
+                .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                .filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted()
+                .toList();
+            for (Path path : existing) {
+                // 重放完成前不封存，避免重放过程中被提前删除
+                Segment segment = new Segment(parseSegmentId(path), path);
+                segments.put(segment.id, segment);
+                recoveredSegments.add(segment);
+                nextId = Math.max(nextId, segment.id + 1);
+            }
+        }
+        writeBuffer = ByteBuffer.allocateDirect(bufferSize);
+        activeSegment = openSegment(nextId);
+
+        running = true;
+        syncThread = new Thread(this::syncLoop, "sensor-data-wal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+        log.info("Sensor data WAL opened at {}, {} segment(s) pending replay", directory, recoveredSegments.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 追加一条记录，并把所属分段编号写回数据对象
+     *
+     * @throws UncheckedIOException 写入日志失败，该记录没有持久化保护，调用方应让上游重投
+     */
+    public void append(SensorData data) {
+        if (!enabled) {
+            return;
+        }
+        ByteBuffer record;
+        try {
+            record = encode(data);
+        } catch (BufferOverflowException e) {
+            log.error("Sensor data record too large for WAL, channelId={}", data.getChannelId());
+            return;
+        }
+        appendLock.lock();
+        try {
+            if (activeSegment.size + record.remaining() > segmentSize && activeSegment.appended.get() > 0) {
+                rotate();
+            }
+            if (writeBuffer.remaining() < record.remaining()) {
+                flushBuffer(false);
+            }
+            writeBuffer.put(record);
+            activeSegment.size += record.limit();
+            activeSegment.appended.incrementAndGet();
+            data.setWalSegment(activeSegment.id);
+            appendedRecords.incrementAndGet();
+        } catch (IOException e) {
+            // 不能吞掉：调用方随后的awaitDurable只看计数，会把这条记录误判为已持久化
+            throw new UncheckedIOException("Failed to append sensor data to WAL", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * 数据库确认写入后调用，分段全部确认后删除
+     */
+    public void acknowledge(List<SensorData> batch) {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Integer> counts = new HashMap<>();
+        for (SensorData data : batch) {
+            if (data.getWalSegment() != null) {
+                counts.merge(data.getWalSegment(), 1, Integer::sum);
+            }
+        }
+        counts.forEach((segmentId, count) -> {
+            Segment segment = segments.get(segmentId);
+            if (segment != null) {
+                segment.acked.addAndGet(count);
+                deleteIfComplete(segment);
+            }
+        });
+    }
+
+    /**
+     * 等待调用前已追加的记录全部刷盘（随下一次成组提交完成）
+     *
+     * @return 超时前是否已持久化；WAL未启用时直接返回true
+     */
+    public boolean awaitDurable(long timeoutMillis) throws InterruptedException {
+        if (!enabled) {
+            return true;
+        }
+        long target = appendedRecords.get();
+        if (durableRecords >= target) {
+            return true;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (syncMonitor) {
+            while (durableRecords < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                syncMonitor.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 重放启动前遗留的分段，按批交给sink写库
+     * <p>
+     * 若某批在上次运行中已落库但分段未及删除，重放会再次写入，即至少一次语义。
+     */
+    public void replay(int batchSize, Consumer<List<SensorData>> sink) {
+        if (!enabled || recoveredSegments.isEmpty()) {
+            return;
+        }
+        long replayed = 0;
+        for (Segment segment : recoveredSegments) {
+            List<SensorData> batch = new ArrayList<>(batchSize);
+            boolean complete = false;
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE - 8));
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // 读满整个分段
+                }
+                buffer.flip();
+                SensorData data;
+                while ((data = decodeNext(buffer)) != null) {
+                    data.setWalSegment(segment.id);
+                    segment.appended.incrementAndGet();
+                    batch.add(data);
+                    if (batch.size() >= batchSize) {
+                        sink.accept(batch);
+                        replayed += batch.size();
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                complete = true;
+            } catch (IOException e) {
+                // 保留该分段，下次启动再重放
+                log.error("Failed to replay WAL segment {}", segment.path, e);
+            }
+            if (!batch.isEmpty()) {
+                sink.accept(batch);
+                replayed += batch.size();
+            }
+            if (complete) {
+                segment.sealed = true;
+                deleteIfComplete(segment);
+            }
+        }
+        recoveredSegments.clear();
+        log.info("Replayed {} sensor data records from WAL", replayed);
+    }
+
+    private void syncLoop() {
+        while (running) {
+            try {
+                Thread.sleep(syncIntervalMillis);
+                appendLock.lock();
+                try {
+                    flushBuffer(true);
+                } finally {
+                    appendLock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.error("WAL group commit failed", e);
+            }
+        }
+    }
+
+    /**
+     * 把内存缓冲写入当前分段，force为true时同时刷盘（调用方持有appendLock）
+     */
+    private void flushBuffer(boolean force) throws IOException {
+        if (writeBuffer.position() > 0) {
+            writeBuffer.flip();
+            while (writeBuffer.hasRemaining()) {
+                activeSegment.channel.write(writeBuffer);
+            }
+            writeBuffer.clear();
+            activeSegment.dirty = true;
+        }
+        if (force) {
+            if (activeSegment.dirty) {
+                activeSegment.channel.force(false);
+                activeSegment.dirty = false;
+                syncCount.incrementAndGet();
+            }
+            markDurable(appendedRecords.get());
+        }
+    }
+
+    private void markDurable(long records) {
+        if (records > durableRecords) {
+            durableRecords = records;
+            synchronized (syncMonitor) {
+                syncMonitor.notifyAll();
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        flushBuffer(true);
+        Segment sealed = activeSegment;
+        sealed.channel.close();
+        sealed.channel = null;
+        sealed.sealed = true;
+        activeSegment = openSegment(sealed.id + 1);
+        deleteIfComplete(sealed);
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        Segment segment = new Segment(id, path);
+        segment.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void deleteIfComplete(Segment segment) {
+        if (segment.sealed && segment.acked.get() >= segment.appended.get()
+                && segments.remove(segment.id, segment)) {
+            try {
+                Files.deleteIfExists(segment.path);
+                log.debug("Deleted acknowledged WAL segment {}", segment.path);
+            } catch (IOException e) {
+                log.warn("Failed to delete WAL segment {}", segment.path, e);
+            }
+        }
+    }
+
+    private ByteBuffer encode(SensorData data) {
+        ByteBuffer buffer = encodeBuffer.get();
+        buffer.clear();
+        buffer.position(HEADER_SIZE);
+        buffer.putInt(data.getDeviceId() == null ? -1 : data.getDeviceId());
+        buffer.putDouble(data.getDataValue() == null ? Double.NaN : data.getDataValue());
+        LocalDateTime collectTime = data.getCollectTime();
+        if (collectTime == null) {
+            buffer.put((byte) 0);
+        } else {
+            buffer.put((byte) 1);
+            buffer.putLong(collectTime.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(collectTime.getNano());
+        }
+        putString(buffer, data.getChannelId());
+        putString(buffer, data.getDataUnit());
+        putString(buffer, data.getDataType());
+
+        int payloadLength = buffer.position() - HEADER_SIZE;
+        CRC32 checksum = crc.get();
+        checksum.reset();
+        checksum.update(buffer.array(), HEADER_SIZE, payloadLength);
+        buffer.putInt(0, payloadLength);
+        buffer.putInt(4, (int) checksum.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 解码下一条记录；遇到末尾或不完整/校验失败的记录（崩溃时写了一半）返回null
+     */
+    private SensorData decodeNext(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int start = buffer.position();
+        int payloadLength = buffer.getInt(start);
+        int expectedCrc = buffer.getInt(start + 4);
+        if (payloadLength <= 0 || payloadLength > MAX_RECORD_SIZE || buffer.remaining() < HEADER_SIZE + payloadLength) {
+            return null;
+        }
+        CRC32 checksum = crc.get();
+        checksum.reset();
+        checksum.update(buffer.array(), buffer.arrayOffset() + start + HEADER_SIZE, payloadLength);
+        if ((int) checksum.getValue() != expectedCrc) {
+            log.warn("WAL record checksum mismatch at offset {}, ignoring rest of segment", start);
+            return null;
+        }
+        buffer.position(start + HEADER_SIZE);
+        SensorData data = new SensorData();
+        int deviceId = buffer.getInt();
+        data.setDeviceId(deviceId == -1 ? null : deviceId);
+        double value = buffer.getDouble();
+        data.setDataValue(Double.isNaN(value) ? null : value);
+        if (buffer.get() == 1) {
+            long epochSecond = buffer.getLong();
+            int nano = buffer.getInt();
+            data.setCollectTime(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC));
+        }
+        data.setChannelId(getString(buffer));
+        data.setDataUnit(getString(buffer));
+        data.setDataType(getString(buffer));
+        buffer.position(start + HEADER_SIZE + payloadLength);
+        return data;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long parseSegmentId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        long pending = 0;
+        long bytes = 0;
+        for (Segment segment : segments.values()) {
+            pending += Math.max(0, segment.appended.get() - segment.acked.get());
+            bytes += segment.size;
+        }
+        stats.put("segments", segments.size());
+        stats.put("pendingRecords", pending);
+        stats.put("segmentBytes", bytes);
+        stats.put("appendedRecords", appendedRecords.get());
+        stats.put("groupCommits", syncCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        syncThread.interrupt();
+        appendLock.lock();
+        try {
+            flushBuffer(true);
+            activeSegment.channel.close();
+            activeSegment.sealed = true;
+            deleteIfComplete(activeSegment);
+        } catch (IOException e) {
+            log.error("Failed to close WAL", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private static class Segment {
+        final long id;
+        final Path path;
+        FileChannel channel;
+        volatile boolean sealed;
+        boolean dirty;
+        /** 已写入字节数（含内存缓冲中尚未写盘的部分） */
+        volatile long size;
+        final AtomicLong appended = new AtomicLong();
+        final AtomicLong acked = new AtomicLong();
+
+        Segment(long id, Path path) {
+            this.id = id;
+            this.path = path;
+            try {
+                this.size = Files.exists(path) ? Files.size(path) : 0;
+            } catch (IOException e) {
+                this.size = 0;
+            }
+        }
+    }
+}
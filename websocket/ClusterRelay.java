@@ -0,0 +1,339 @@
+package com.iot.platform.websocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.platform.cache.NearCache;
+import com.iot.platform.dto.ChartData;
+import com.iot.platform.dto.SignalDTO;
+import com.iot.platform.entity.AlarmRecord;
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.DeviceTopic;
+import com.iot.platform.executor.IngestExecution;
+import com.iot.platform.executor.PartitionedExecutor;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 多节点WebSocket推送中继
+ * <p>
+ * 浏览器连在A节点、设备数据落在B节点时，B节点把推送事件发到Redis频道 iot:ws:device:{code}，
+ * A节点转给本地会话。每个节点只订阅本地会话在看的设备的频道，并在有序集合 iot:ws:watch:{code}
+ * 中以节点ID为成员、过期时间为分值登记；接入节点据此（本地缓存几秒）判断是否有其他节点在看，
+ * 没人看或只有本节点在看的设备不产生Redis流量。发布在按设备分区的后台线程上异步执行，
+ * 队列满时丢弃，不阻塞接入线程。实时数据以合并后的帧为单位中继，接收节点自行编码为JSON或二进制帧。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClusterRelay implements MessageListener {
+
+    private static final String CHANNEL_PREFIX = "iot:ws:device:";
+    private static final String WATCH_PREFIX = "iot:ws:watch:";
+    /** 有通配符订阅的节点登记此键，表示所有设备都有人看 */
+    private static final String WATCH_ALL_KEY = WATCH_PREFIX + "*";
+    private static final String FRAME = "frame";
+    /** KEYS中任一有序集合存在分值未过期、且不是本节点的成员时返回1 */
+    private static final RedisScript<Long> OTHER_WATCHERS = new DefaultRedisScript<>(
+            "for _, key in ipairs(KEYS) do "
+                    + "for _, member in ipairs(redis.call('ZRANGEBYSCORE', key, ARGV[2], '+inf')) do "
+                    + "if member ~= ARGV[1] then return 1 end "
+                    + "end "
+                    + "end "
+                    + "return 0", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SubscriptionRegistry subscriptionRegistry;
+    private final ObjectProvider<RealTimePushScheduler> realTimePushScheduler;
+    private final SseStreams sseStreams;
+    private final ObjectMapper objectMapper;
+    private final IngestExecution ingestExecution;
+
+    @Value("${websocket.relay.enabled:false}")
+    private boolean enabled;
+
+    @Value("${websocket.relay.watch-ttl:30000}")
+    private long watchTtlMillis;
+
+    @Value("${websocket.relay.watch-cache-ttl:2000}")
+    private long watchCacheTtlMillis;
+
+    @Value("${websocket.relay.publish-threads:4}")
+    private int publishThreads;
+
+    @Value("${websocket.relay.publish-queue-capacity:10000}")
+    private int publishQueueCapacity;
+
+    /** 本节点标识，忽略自己发出的事件 */
+    private final String nodeId = UUID.randomUUID().toString();
+    private NearCache<String, Boolean> remoteWatches;
+    private PartitionedExecutor publisher;
+    private final Set<String> subscribedDevices = new HashSet<>();
+    private boolean subscribedAll;
+    private long lastWatchRefresh;
+
+    private final LongAdder publishedEvents = new LongAdder();
+    private final LongAdder receivedEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        remoteWatches = new NearCache<>(100_000, watchCacheTtlMillis);
+        if (enabled) {
+            AtomicInteger index = new AtomicInteger();
+            publisher = new PartitionedExecutor("ws-relay", Math.max(1, publishThreads),
+                    Math.max(1, publishQueueCapacity / Math.max(1, publishThreads)), r -> {
+                        Thread thread = new Thread(r, "ws-relay-" + index.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            log.info("WebSocket cluster relay enabled, node {}", nodeId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (publisher != null && !publisher.shutdown(5, TimeUnit.SECONDS)) {
+            log.warn("{} relay events still queued at shutdown", publisher.getQueueDepth());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 是否有其他节点的会话在看该设备；只有本节点在看时由本地直接推送，无需发布
+     */
+    public boolean isWatchedRemotely(String deviceCode) {
+        if (!enabled) {
+            return false;
+        }
+        return remoteWatches.get(deviceCode, this::loadWatch);
+    }
+
+    private Boolean loadWatch(String deviceCode) {
+        try {
+            Long watched = ingestExecution.redis().call(() -> stringRedisTemplate.execute(OTHER_WATCHERS,
+                    List.of(WATCH_PREFIX + deviceCode, WATCH_ALL_KEY), nodeId,
+                    String.valueOf(System.currentTimeMillis())));
+            return watched != null && watched > 0;
+        } catch (Exception e) {
+            log.warn("Failed to check WebSocket watchers of {}", deviceCode, e);
+            return false;
+        }
+    }
+
+    /**
+     * 发布单条推送事件（告警、状态、曲线、信号，以及未开启合并推送时的单个样本）
+     */
+    public void publish(String deviceCode, DeviceTopic topic, Object payload) {
+        publish(deviceCode, topic.getSuffix(), payload);
+    }
+
+    /**
+     * 发布合并后的一帧实时数据
+     */
+    public void publishFrame(String deviceCode, List<SensorData> frame) {
+        publish(deviceCode, FRAME, frame);
+    }
+
+    /**
+     * 在调用线程上序列化（负载之后可能被修改），在发布线程上受Redis并发限制发送
+     */
+    private void publish(String deviceCode, String kind, Object payload) {
+        String body;
+        try {
+            body = nodeId + "|" + kind + "|" + objectMapper.writeValueAsString(payload);
+        } catch (Exception e) {
+            failedEvents.increment();
+            log.warn("Failed to serialize relayed {} event of {}", kind, deviceCode, e);
+            return;
+        }
+        if (!publisher.tryExecute(deviceCode, () -> send(deviceCode, kind, body))) {
+            droppedEvents.increment();
+            if ((droppedEvents.sum() & 1023) == 1) {
+                log.warn("WebSocket relay publish queue full, dropped {} events so far", droppedEvents.sum());
+            }
+        }
+    }
+
+    private void send(String deviceCode, String kind, String body) {
+        try {
+            ingestExecution.redis().run(() -> stringRedisTemplate.convertAndSend(CHANNEL_PREFIX + deviceCode, body));
+            publishedEvents.increment();
+        } catch (Exception e) {
+            failedEvents.increment();
+            log.warn("Failed to relay {} event of {}", kind, deviceCode, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(nodeId + "|")) {
+            return;
+        }
+        int first = body.indexOf('|');
+        int second = first < 0 ? -1 : body.indexOf('|', first + 1);
+        if (second < 0) {
+            return;
+        }
+        String deviceCode = new String(message.getChannel(), StandardCharsets.UTF_8).substring(CHANNEL_PREFIX.length());
+        String kind = body.substring(first + 1, second);
+        String json = body.substring(second + 1);
+        receivedEvents.increment();
+        try {
+            if (FRAME.equals(kind)) {
+                RealTimePushScheduler scheduler = realTimePushScheduler.getIfAvailable();
+                if (scheduler != null) {
+                    scheduler.deliverLocal(deviceCode, objectMapper.readValue(json, new TypeReference<List<SensorData>>() { }));
+                }
+                return;
+            }
+            DeviceTopic topic = DeviceTopic.fromSuffix(kind);
+            if (topic == null) {
+                return;
+            }
+            Object payload = objectMapper.readValue(json, payloadType(topic));
+            if (topic == DeviceTopic.DATA) {
+                List<SensorData> single = List.of((SensorData) payload);
+                sseStreams.deliver(deviceCode, single);
+                RealTimePushScheduler scheduler = realTimePushScheduler.getIfAvailable();
+                if (scheduler != null) {
+                    scheduler.deliverBinary(deviceCode, single);
+                }
+            }
+            if (!subscriptionRegistry.isSubscribed(deviceCode, topic)) {
+                return;
+            }
+            messagingTemplate.convertAndSend("/topic/device/" + deviceCode + "/" + kind, payload);
+        } catch (Exception e) {
+            failedEvents.increment();
+            log.warn("Failed to deliver relayed {} event of {}", kind, deviceCode, e);
+        }
+    }
+
+    private JavaType payloadType(DeviceTopic topic) {
+        switch (topic) {
+            case ALARM:
+                return objectMapper.constructType(AlarmRecord.class);
+            case STATUS:
+                return objectMapper.constructType(Boolean.class);
+            case CHART:
+                return objectMapper.constructType(ChartData.class);
+            case SIGNAL:
+                return objectMapper.constructType(SignalDTO.class);
+            default:
+                return objectMapper.constructType(SensorData.class);
+        }
+    }
+
+    /**
+     * 按本地订阅调整Redis频道订阅，并续期本节点在watch集合中的登记
+     */
+    @Scheduled(fixedDelayString = "${websocket.relay.sync-interval:1000}")
+    public synchronized void syncWatches() {
+        if (!enabled) {
+            return;
+        }
+        Set<String> watched = subscriptionRegistry.watchedDevices();
+        boolean watchAll = subscriptionRegistry.hasPatternSubscriptions();
+        long now = System.currentTimeMillis();
+        boolean refresh = now - lastWatchRefresh >= watchTtlMillis / 3;
+        try {
+            if (watchAll != subscribedAll) {
+                if (watchAll) {
+                    listenerContainer.addMessageListener(this, new PatternTopic(CHANNEL_PREFIX + "*"));
+                    registerWatch(WATCH_ALL_KEY, now);
+                } else {
+                    listenerContainer.removeMessageListener(this, new PatternTopic(CHANNEL_PREFIX + "*"));
+                    stringRedisTemplate.opsForZSet().remove(WATCH_ALL_KEY, nodeId);
+                }
+                subscribedAll = watchAll;
+            } else if (watchAll && refresh) {
+                registerWatch(WATCH_ALL_KEY, now);
+            }
+            for (String deviceCode : watched) {
+                // 通配符订阅已收到全部频道，不再单独订阅，避免重复投递
+                if (!watchAll && subscribedDevices.add(deviceCode)) {
+                    listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL_PREFIX + deviceCode));
+                    registerWatch(WATCH_PREFIX + deviceCode, now);
+                } else if (refresh) {
+                    registerWatch(WATCH_PREFIX + deviceCode, now);
+                }
+            }
+            subscribedDevices.removeIf(deviceCode -> {
+                if (!watchAll && watched.contains(deviceCode)) {
+                    return false;
+                }
+                // 只移除本节点的登记，其他节点可能也在看同一设备
+                listenerContainer.removeMessageListener(this, new ChannelTopic(CHANNEL_PREFIX + deviceCode));
+                stringRedisTemplate.opsForZSet().remove(WATCH_PREFIX + deviceCode, nodeId);
+                return true;
+            });
+            if (refresh) {
+                lastWatchRefresh = now;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to sync WebSocket relay subscriptions", e);
+        }
+    }
+
+    /**
+     * 登记本节点在看，分值为过期时间；顺带清理已过期（节点宕机未注销）的成员
+     */
+    private void registerWatch(String key, long now) {
+        stringRedisTemplate.opsForZSet().add(key, nodeId, now + watchTtlMillis);
+        stringRedisTemplate.opsForZSet().removeRangeByScore(key, 0, now);
+        stringRedisTemplate.expire(key, watchTtlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("nodeId", nodeId);
+        stats.put("subscribedDevices", subscribedDevices.size());
+        stats.put("subscribedAll", subscribedAll);
+        stats.put("remoteWatchCache", remoteWatches.getStats());
+        stats.put("publishedEvents", publishedEvents.sum());
+        stats.put("receivedEvents", receivedEvents.sum());
+        stats.put("failedEvents", failedEvents.sum());
+        stats.put("droppedEvents", droppedEvents.sum());
+        if (publisher != null) {
+            stats.put("publishQueueDepth", publisher.getQueueDepth());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,141 @@
+package com.iot.platform.websocket;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import com.iot.platform.config.WebSocketOutboundProperties;
+import com.iot.platform.enums.SlowConsumerPolicy;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * STOMP会话出站背压
+ * <p>
+ * 每个WebSocket会话换成带分级有界队列的会话（OutboundQueueSession），告警、状态、数据各自排队，
+ * 发送时严格按优先级取出，高频数据挤满队列也不会影响告警。队列写满、排队字节超限或单次发送超时
+ * 按配置丢弃最早的消息或断开该会话，慢的浏览器标签页不再拖住其他会话。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboundBackpressure implements WebSocketHandlerDecoratorFactory {
+
+    /**
+     * 出站消息类别，序号即发送优先级
+     */
+    public enum OutboundClass {
+        /** CONNECTED、RECEIPT、ERROR、心跳等协议帧，不丢弃 */
+        CONTROL,
+        ALARM,
+        STATUS,
+        DATA
+    }
+
+    private final WebSocketOutboundProperties properties;
+
+    private final ConcurrentHashMap<String, OutboundQueueSession> sessions = new ConcurrentHashMap<>();
+    private final Map<OutboundClass, LongAdder> droppedFrames = new EnumMap<>(OutboundClass.class);
+    private final LongAdder overflowDisconnects = new LongAdder();
+    private final LongAdder slowSendDisconnects = new LongAdder();
+
+    {
+        for (OutboundClass outboundClass : OutboundClass.values()) {
+            droppedFrames.put(outboundClass, new LongAdder());
+        }
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                OutboundQueueSession queueSession = new OutboundQueueSession(session, OutboundBackpressure.this);
+                sessions.put(session.getId(), queueSession);
+                super.afterConnectionEstablished(queueSession);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                OutboundQueueSession queueSession = sessions.remove(session.getId());
+                if (queueSession != null) {
+                    queueSession.release();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    int capacity(OutboundClass outboundClass) {
+        switch (outboundClass) {
+            case ALARM:
+                return properties.getAlarmQueueCapacity();
+            case STATUS:
+                return properties.getStatusQueueCapacity();
+            case DATA:
+                return properties.getDataQueueCapacity();
+            default:
+                return Integer.MAX_VALUE;
+        }
+    }
+
+    SlowConsumerPolicy policy(OutboundClass outboundClass) {
+        switch (outboundClass) {
+            case ALARM:
+                return properties.getAlarmPolicy();
+            case STATUS:
+                return properties.getStatusPolicy();
+            case DATA:
+                return properties.getDataPolicy();
+            default:
+                return SlowConsumerPolicy.DISCONNECT;
+        }
+    }
+
+    WebSocketOutboundProperties properties() {
+        return properties;
+    }
+
+    void recordDrop(OutboundClass outboundClass) {
+        droppedFrames.get(outboundClass).increment();
+    }
+
+    void recordDisconnect(String sessionId, boolean slowSend) {
+        (slowSend ? slowSendDisconnects : overflowDisconnects).increment();
+        log.warn("Closing slow WebSocket session {} ({})", sessionId,
+                slowSend ? "send time limit exceeded" : "outbound queue overflow");
+    }
+
+    public Map<String, Object> getStats() {
+        int queued = 0;
+        int maxQueued = 0;
+        long bufferedBytes = 0;
+        for (OutboundQueueSession session : sessions.values()) {
+            int depth = session.queuedMessages();
+            queued += depth;
+            maxQueued = Math.max(maxQueued, depth);
+            bufferedBytes += session.bufferedBytes();
+        }
+        Map<String, Object> dropped = new LinkedHashMap<>();
+        droppedFrames.forEach((outboundClass, count) -> dropped.put(outboundClass.name(), count.sum()));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("queuedMessages", queued);
+        stats.put("maxSessionQueuedMessages", maxQueued);
+        stats.put("bufferedBytes", bufferedBytes);
+        stats.put("droppedFrames", dropped);
+        stats.put("overflowDisconnects", overflowDisconnects.sum());
+        stats.put("slowSendDisconnects", slowSendDisconnects.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,214 @@
+package com.iot.platform.websocket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import com.iot.platform.enums.DeviceTopic;
+import com.iot.platform.enums.SlowConsumerPolicy;
+import com.iot.platform.websocket.OutboundBackpressure.OutboundClass;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 带分级有界队列的WebSocket会话
+ * <p>
+ * sendMessage只把消息放入对应类别的队列；当前没有线程在发送时由调用线程按优先级发送，
+ * 否则立即返回，与 ConcurrentWebSocketSessionDecorator 的做法一致，但按类别各自限流。
+ */
+@Slf4j
+class OutboundQueueSession extends WebSocketSessionDecorator {
+
+    private static final String DESTINATION_HEADER = "\ndestination:";
+    /** 解析目的地时最多查看的帧头长度 */
+    private static final int HEADER_SCAN_LIMIT = 512;
+    private static final OutboundClass[] CLASSES = OutboundClass.values();
+
+    private final OutboundBackpressure backpressure;
+    private final ArrayDeque<WebSocketMessage<?>>[] queues;
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private final long sendTimeLimitNanos;
+    private final int bufferSizeLimit;
+
+    private int queuedMessages;
+    private long bufferedBytes;
+    private volatile long sendStartNanos;
+    private volatile boolean closing;
+
+    @SuppressWarnings("unchecked")
+    OutboundQueueSession(WebSocketSession delegate, OutboundBackpressure backpressure) {
+        super(delegate);
+        this.backpressure = backpressure;
+        this.queues = new ArrayDeque[CLASSES.length];
+        for (int i = 0; i < CLASSES.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(backpressure.properties().getSendTimeLimit());
+        this.bufferSizeLimit = backpressure.properties().getBufferSizeLimit();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (closing) {
+            return;
+        }
+        if (!enqueue(classify(message), message)) {
+            disconnect(false);
+            return;
+        }
+        long start = sendStartNanos;
+        if (start != 0 && System.nanoTime() - start > sendTimeLimitNanos) {
+            disconnect(true);
+            return;
+        }
+        flush();
+    }
+
+    private synchronized boolean enqueue(OutboundClass outboundClass, WebSocketMessage<?> message) {
+        ArrayDeque<WebSocketMessage<?>> queue = queues[outboundClass.ordinal()];
+        if (queue.size() >= backpressure.capacity(outboundClass)) {
+            if (backpressure.policy(outboundClass) == SlowConsumerPolicy.DISCONNECT) {
+                return false;
+            }
+            remove(outboundClass);
+        }
+        queue.addLast(message);
+        queuedMessages++;
+        bufferedBytes += message.getPayloadLength();
+        // 超出字节上限时从优先级最低的可丢弃队列开始丢弃
+        while (bufferedBytes > bufferSizeLimit) {
+            if (!dropLowestPriority()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean dropLowestPriority() {
+        for (int i = CLASSES.length - 1; i >= 0; i--) {
+            OutboundClass outboundClass = CLASSES[i];
+            if (!queues[i].isEmpty() && backpressure.policy(outboundClass) == SlowConsumerPolicy.DROP_OLDEST) {
+                remove(outboundClass);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(OutboundClass outboundClass) {
+        WebSocketMessage<?> dropped = queues[outboundClass.ordinal()].pollFirst();
+        queuedMessages--;
+        bufferedBytes -= dropped.getPayloadLength();
+        backpressure.recordDrop(outboundClass);
+    }
+
+    private synchronized WebSocketMessage<?> poll() {
+        for (ArrayDeque<WebSocketMessage<?>> queue : queues) {
+            WebSocketMessage<?> message = queue.pollFirst();
+            if (message != null) {
+                queuedMessages--;
+                bufferedBytes -= message.getPayloadLength();
+                return message;
+            }
+        }
+        return null;
+    }
+
+    private void flush() throws IOException {
+        // 释放锁后再检查一次，避免其他线程刚放入的消息无人发送
+        while (!closing && queuedMessages() > 0 && sendLock.tryLock()) {
+            try {
+                WebSocketMessage<?> message;
+                while (!closing && (message = poll()) != null) {
+                    sendStartNanos = System.nanoTime();
+                    try {
+                        getDelegate().sendMessage(message);
+                    } finally {
+                        sendStartNanos = 0;
+                    }
+                }
+            } finally {
+                sendLock.unlock();
+            }
+        }
+    }
+
+    private void disconnect(boolean slowSend) {
+        synchronized (this) {
+            if (closing) {
+                return;
+            }
+            closing = true;
+        }
+        backpressure.recordDisconnect(getId(), slowSend);
+        release();
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception e) {
+            log.debug("Failed to close WebSocket session {}", getId(), e);
+        }
+    }
+
+    synchronized void release() {
+        closing = true;
+        for (ArrayDeque<WebSocketMessage<?>> queue : queues) {
+            queue.clear();
+        }
+        queuedMessages = 0;
+        bufferedBytes = 0;
+    }
+
+    synchronized int queuedMessages() {
+        return queuedMessages;
+    }
+
+    synchronized long bufferedBytes() {
+        return bufferedBytes;
+    }
+
+    /**
+     * 按STOMP帧的destination头分类，非MESSAGE帧视为协议帧
+     */
+    static OutboundClass classify(WebSocketMessage<?> message) {
+        String head;
+        if (message instanceof TextMessage) {
+            String payload = ((TextMessage) message).getPayload();
+            head = payload.length() > HEADER_SCAN_LIMIT ? payload.substring(0, HEADER_SCAN_LIMIT) : payload;
+        } else if (message instanceof BinaryMessage) {
+            ByteBuffer payload = ((BinaryMessage) message).getPayload().duplicate();
+            byte[] bytes = new byte[Math.min(payload.remaining(), HEADER_SCAN_LIMIT)];
+            payload.get(bytes);
+            head = new String(bytes, StandardCharsets.ISO_8859_1);
+        } else {
+            return OutboundClass.CONTROL;
+        }
+        if (!head.startsWith("MESSAGE")) {
+            return OutboundClass.CONTROL;
+        }
+        int start = head.indexOf(DESTINATION_HEADER);
+        if (start < 0) {
+            return OutboundClass.STATUS;
+        }
+        start += DESTINATION_HEADER.length();
+        int end = head.indexOf('\n', start);
+        String destination = end < 0 ? head.substring(start) : head.substring(start, end);
+        DeviceTopic topic = DeviceTopic.fromSuffix(destination.substring(destination.lastIndexOf('/') + 1));
+        if (topic == DeviceTopic.ALARM) {
+            return OutboundClass.ALARM;
+        }
+        if (topic == null || topic == DeviceTopic.STATUS) {
+            return OutboundClass.STATUS;
+        }
+        return OutboundClass.DATA;
+    }
+}
@@ -0,0 +1,29 @@
+package com.iot.platform.websocket;
+
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * 保留分级队列会话的STOMP子协议处理器
+ * <p>
+ * 默认实现会把每个会话再包一层 FIFO 的 ConcurrentWebSocketSessionDecorator，
+ * 该层串行发送并按到达顺序缓冲，分级队列拿不到排队的消息，优先级和按类别丢弃都不生效。
+ * 会话已经是 {@link OutboundQueueSession} 时直接使用，不再额外包装。
+ */
+public class OutboundSubProtocolWebSocketHandler extends SubProtocolWebSocketHandler {
+
+    public OutboundSubProtocolWebSocketHandler(MessageChannel clientInboundChannel,
+                                               SubscribableChannel clientOutboundChannel) {
+        super(clientInboundChannel, clientOutboundChannel);
+    }
+
+    @Override
+    protected WebSocketSession decorateSession(WebSocketSession session) {
+        if (session instanceof OutboundQueueSession) {
+            return session;
+        }
+        return super.decorateSession(session);
+    }
+}
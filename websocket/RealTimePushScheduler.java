@@ -0,0 +1,348 @@
+package com.iot.platform.websocket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import com.iot.platform.codec.SensorFrameEncoder;
+import com.iot.platform.config.WebSocketPushProperties;
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.DeviceTopic;
+import com.iot.platform.enums.PushPolicy;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 实时数据合并推送
+ * <p>
+ * 样本先按设备（即 /topic/device/{code}/data 目的地）和通道缓冲，由推送线程按固定帧率
+ * 把每个目的地攒下的样本合成一帧（样本数组）发出。每个通道的缓冲容量和单帧样本数都有上限，
+ * 超出时按取舍策略丢弃或抽稀，因此推送的CPU和带宽只与帧率、目的地数有关，与传感器采样率无关。
+ * 同一帧按订阅情况以JSON数组发往 data，或以二进制帧发往 data.bin，并推给该设备的SSE连接。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RealTimePushScheduler {
+
+    private static final String DEVICE_DATA_TOPIC = "/topic/device/%s/data";
+    private static final String DEVICE_BINARY_TOPIC = "/topic/device/%s/data.bin";
+    private static final Map<String, Object> BINARY_HEADERS =
+            Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketPushProperties properties;
+    private final SubscriptionRegistry subscriptionRegistry;
+    private final ClusterRelay clusterRelay;
+    private final SseStreams sseStreams;
+
+    private final ConcurrentHashMap<String, DestinationBuffer> buffers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService pushExecutor;
+
+    private final LongAdder receivedSamples = new LongAdder();
+    private final LongAdder sentSamples = new LongAdder();
+    private final LongAdder droppedSamples = new LongAdder();
+    private final LongAdder decimatedSamples = new LongAdder();
+    private final LongAdder sentFrames = new LongAdder();
+    private final LongAdder sentBinaryFrames = new LongAdder();
+    private final LongAdder sentBinaryBytes = new LongAdder();
+    private final LongAdder failedFrames = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long periodMillis = Math.max(1, 1000 / Math.max(1, properties.getFrameRate()));
+        pushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ws-realtime-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pushExecutor.scheduleAtFixedRate(this::pushFrames, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        log.info("Real-time push coalescing enabled: frameRate={}, maxSamplesPerFrame={}, policy={}",
+                properties.getFrameRate(), properties.getMaxSamplesPerFrame(), properties.getPolicy());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 缓冲一个样本，等下一帧推送
+     */
+    public void offer(String deviceCode, SensorData data) {
+        receivedSamples.increment();
+        DestinationBuffer buffer = buffers.computeIfAbsent(deviceCode, this::newBuffer);
+        // 缓冲恰好因空闲被回收时换一个新的
+        while (!buffer.offer(data)) {
+            buffer = buffers.computeIfAbsent(deviceCode, this::newBuffer);
+        }
+    }
+
+    private DestinationBuffer newBuffer(String deviceCode) {
+        PushPolicy policy = properties.getDevicePolicies().getOrDefault(deviceCode, properties.getPolicy());
+        return new DestinationBuffer(deviceCode, policy);
+    }
+
+    private void pushFrames() {
+        for (Map.Entry<String, DestinationBuffer> entry : buffers.entrySet()) {
+            DestinationBuffer buffer = entry.getValue();
+            List<SensorData> frame = buffer.drain();
+            if (frame == null) {
+                if (buffer.retired) {
+                    buffers.remove(entry.getKey(), buffer);
+                }
+                continue;
+            }
+            sentSamples.add(frame.size());
+            if (subscriptionRegistry.isSubscribed(buffer.deviceCode, DeviceTopic.DATA)) {
+                send(buffer.destination, frame);
+            }
+            if (subscriptionRegistry.isSubscribed(buffer.deviceCode, DeviceTopic.DATA_BINARY)) {
+                sendBinary(buffer.binaryDestination, frame);
+            }
+            sseStreams.deliver(buffer.deviceCode, frame);
+            if (clusterRelay.isWatchedRemotely(buffer.deviceCode)) {
+                clusterRelay.publishFrame(buffer.deviceCode, frame);
+            }
+        }
+    }
+
+    /**
+     * 把其他节点中继过来的一帧推给本地订阅者
+     */
+    public void deliverLocal(String deviceCode, List<SensorData> frame) {
+        if (subscriptionRegistry.isSubscribed(deviceCode, DeviceTopic.DATA)) {
+            send(String.format(DEVICE_DATA_TOPIC, deviceCode), frame);
+        }
+        deliverBinary(deviceCode, frame);
+        sseStreams.deliver(deviceCode, frame);
+    }
+
+    /**
+     * 有 data.bin 订阅者时编码为二进制帧发送；未开启合并推送时也由此按单个样本发送
+     */
+    public void deliverBinary(String deviceCode, List<SensorData> frame) {
+        if (subscriptionRegistry.isSubscribed(deviceCode, DeviceTopic.DATA_BINARY)) {
+            sendBinary(String.format(DEVICE_BINARY_TOPIC, deviceCode), frame);
+        }
+    }
+
+    private void send(String destination, List<SensorData> frame) {
+        try {
+            messagingTemplate.convertAndSend(destination, frame);
+            sentFrames.increment();
+        } catch (Exception e) {
+            failedFrames.increment();
+            log.error("Failed to push real-time frame to {}", destination, e);
+        }
+    }
+
+    private void sendBinary(String destination, List<SensorData> frame) {
+        try {
+            byte[] bytes = SensorFrameEncoder.encode(frame, properties.isBinaryQuantized());
+            messagingTemplate.convertAndSend(destination, bytes, BINARY_HEADERS);
+            sentBinaryFrames.increment();
+            sentBinaryBytes.add(bytes.length);
+        } catch (Exception e) {
+            failedFrames.increment();
+            log.error("Failed to push binary real-time frame to {}", destination, e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("frameRate", properties.getFrameRate());
+        stats.put("destinations", buffers.size());
+        stats.put("receivedSamples", receivedSamples.sum());
+        stats.put("sentSamples", sentSamples.sum());
+        stats.put("droppedSamples", droppedSamples.sum());
+        stats.put("decimatedSamples", decimatedSamples.sum());
+        stats.put("sentFrames", sentFrames.sum());
+        stats.put("sentBinaryFrames", sentBinaryFrames.sum());
+        stats.put("sentBinaryBytes", sentBinaryBytes.sum());
+        stats.put("failedFrames", failedFrames.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pushExecutor != null) {
+            pushExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 单个目的地的缓冲，按通道分开保存，避免高频通道挤掉低频通道
+     */
+    private final class DestinationBuffer {
+        final String deviceCode;
+        final String destination;
+        final String binaryDestination;
+        final PushPolicy policy;
+        final Map<String, ChannelBuffer> channels = new LinkedHashMap<>();
+        int pending;
+        int idleFrames;
+        volatile boolean retired;
+
+        DestinationBuffer(String deviceCode, PushPolicy policy) {
+            this.deviceCode = deviceCode;
+            this.destination = String.format(DEVICE_DATA_TOPIC, deviceCode);
+            this.binaryDestination = String.format(DEVICE_BINARY_TOPIC, deviceCode);
+            this.policy = policy;
+        }
+
+        synchronized boolean offer(SensorData data) {
+            if (retired) {
+                return false;
+            }
+            channels.computeIfAbsent(data.getChannelId(), k -> new ChannelBuffer()).add(data, policy);
+            pending++;
+            return true;
+        }
+
+        /**
+         * 取出一帧；没有数据时返回null，连续空闲超过阈值则标记回收
+         */
+        synchronized List<SensorData> drain() {
+            if (pending == 0) {
+                if (++idleFrames >= properties.getIdleFrames()) {
+                    retired = true;
+                }
+                return null;
+            }
+            idleFrames = 0;
+            List<SensorData> frame = new ArrayList<>(Math.min(pending, channels.size() * properties.getMaxSamplesPerFrame()));
+            Iterator<ChannelBuffer> it = channels.values().iterator();
+            while (it.hasNext()) {
+                ChannelBuffer channel = it.next();
+                if (channel.samples.isEmpty()) {
+                    it.remove();
+                    continue;
+                }
+                channel.drainTo(frame, properties.getMaxSamplesPerFrame(), policy);
+            }
+            pending = 0;
+            return frame;
+        }
+    }
+
+    private final class ChannelBuffer {
+        final ArrayDeque<SensorData> samples = new ArrayDeque<>();
+        /** DECIMATE策略下缓冲写满后每stride个样本只保留一个 */
+        int stride = 1;
+        int skipped;
+        /** 按步长跳过的最近一个样本，出帧时补在末尾，保证最新样本总能推出 */
+        SensorData latestSkipped;
+
+        void add(SensorData data, PushPolicy policy) {
+            int capacity = properties.getChannelBufferCapacity();
+            if (samples.size() < capacity) {
+                if (stride > 1 && ++skipped < stride) {
+                    discardLatestSkipped();
+                    latestSkipped = data;
+                    return;
+                }
+                discardLatestSkipped();
+                skipped = 0;
+                samples.addLast(data);
+                return;
+            }
+            switch (policy) {
+                case DROP_NEWEST:
+                    droppedSamples.increment();
+                    break;
+                case DROP_OLDEST:
+                    samples.pollFirst();
+                    samples.addLast(data);
+                    droppedSamples.increment();
+                    break;
+                case DECIMATE:
+                default:
+                    // 已缓冲的样本隔一个去一个，之后的样本也按加倍后的步长保留
+                    discardLatestSkipped();
+                    compactHalf();
+                    stride <<= 1;
+                    skipped = 0;
+                    samples.addLast(data);
+                    break;
+            }
+        }
+
+        private void discardLatestSkipped() {
+            if (latestSkipped != null) {
+                decimatedSamples.increment();
+                latestSkipped = null;
+            }
+        }
+
+        private void compactHalf() {
+            int size = samples.size();
+            for (int i = 0; i < size; i++) {
+                SensorData sample = samples.pollFirst();
+                if ((i & 1) == 0) {
+                    samples.addLast(sample);
+                }
+            }
+            decimatedSamples.add(size / 2);
+        }
+
+        void drainTo(List<SensorData> frame, int maxSamples, PushPolicy policy) {
+            if (latestSkipped != null) {
+                samples.addLast(latestSkipped);
+                latestSkipped = null;
+            }
+            int size = samples.size();
+            if (size <= maxSamples) {
+                frame.addAll(samples);
+            } else if (policy == PushPolicy.DROP_NEWEST) {
+                Iterator<SensorData> it = samples.iterator();
+                for (int i = 0; i < maxSamples; i++) {
+                    frame.add(it.next());
+                }
+                droppedSamples.add(size - maxSamples);
+            } else if (policy == PushPolicy.DROP_OLDEST) {
+                Iterator<SensorData> it = samples.iterator();
+                for (int i = 0; i < size; i++) {
+                    SensorData sample = it.next();
+                    if (i >= size - maxSamples) {
+                        frame.add(sample);
+                    }
+                }
+                droppedSamples.add(size - maxSamples);
+            } else {
+                // 等间隔抽取，首尾样本总是保留
+                SensorData[] array = samples.toArray(new SensorData[0]);
+                if (maxSamples == 1) {
+                    frame.add(array[size - 1]);
+                } else {
+                    for (int i = 0; i < maxSamples; i++) {
+                        frame.add(array[(int) ((long) i * (size - 1) / (maxSamples - 1))]);
+                    }
+                }
+                decimatedSamples.add(size - maxSamples);
+            }
+            samples.clear();
+            stride = 1;
+            skipped = 0;
+        }
+    }
+}
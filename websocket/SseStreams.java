@@ -0,0 +1,291 @@
+package com.iot.platform.websocket;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.DeviceTopic;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SSE实时数据连接
+ * <p>
+ * 每个连接只看一台设备（可选单个通道），登记在SubscriptionRegistry中，与STOMP共用合并推送的帧。
+ * 推送线程只把帧放入连接自己的有界队列（满时丢弃最早的帧），由少量发送线程写出，
+ * 请求线程在建立连接后即释放，慢客户端只占用发送线程，不阻塞推送。
+ * <p>
+ * 单次写出超过send-timeout的连接视为卡住：立即摘除并中断其发送线程，避免少数卡住的客户端占满发送线程，
+ * 写出本身仍受Servlet容器写超时约束。
+ * <p>
+ * 浏览器EventSource不能携带Authorization头，连接前先换取一次性票据（见StreamTicketService）。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SseStreams {
+
+    private static final Object HEARTBEAT = new Object();
+
+    private final SubscriptionRegistry subscriptionRegistry;
+
+    @Value("${sse.timeout:1800000}")
+    private long timeoutMillis;
+
+    @Value("${sse.max-connections:10000}")
+    private int maxConnections;
+
+    @Value("${sse.queue-capacity:16}")
+    private int queueCapacity;
+
+    @Value("${sse.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${sse.send-timeout:10000}")
+    private long sendTimeoutMillis;
+
+    private final ConcurrentHashMap<String, List<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private ExecutorService senderPool;
+
+    private final LongAdder sentFrames = new LongAdder();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final LongAdder stalledConnections = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        senderPool = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "sse-sender-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 建立一个连接；超过连接数上限时返回null
+     *
+     * @param channelId 只推送该通道，为null时推送设备全部通道
+     */
+    public SseEmitter open(String deviceCode, String channelId) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            rejectedConnections.increment();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Connection connection = new Connection(deviceCode, channelId, emitter);
+        connections.compute(deviceCode, (k, list) -> {
+            List<Connection> deviceConnections = list != null ? list : new CopyOnWriteArrayList<>();
+            deviceConnections.add(connection);
+            return deviceConnections;
+        });
+        subscriptionRegistry.addSubscription(deviceCode, DeviceTopic.SSE);
+        emitter.onCompletion(connection::close);
+        emitter.onTimeout(connection::close);
+        emitter.onError(e -> connection.close());
+        return emitter;
+    }
+
+    /**
+     * 推送一帧（同一设备的一批样本）给该设备的所有连接
+     */
+    public void deliver(String deviceCode, List<SensorData> frame) {
+        List<Connection> deviceConnections = connections.get(deviceCode);
+        if (deviceConnections == null) {
+            return;
+        }
+        for (Connection connection : deviceConnections) {
+            List<SensorData> samples = connection.filter(frame);
+            if (!samples.isEmpty()) {
+                connection.enqueue(samples);
+            }
+        }
+    }
+
+    /**
+     * 定时发送注释行，防止代理因空闲断开连接
+     */
+    @Scheduled(fixedDelayString = "${sse.heartbeat-interval:15000}")
+    public void heartbeat() {
+        connections.values().forEach(list -> list.forEach(connection -> connection.enqueue(HEARTBEAT)));
+    }
+
+    /**
+     * 摘除单次写出超时的连接
+     */
+    @Scheduled(fixedDelayString = "${sse.stall-check-interval:1000}")
+    public void evictStalled() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        connections.values().forEach(list -> list.forEach(connection -> connection.evictIfStalled(now, timeoutNanos)));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", connectionCount.get());
+        stats.put("devices", connections.size());
+        stats.put("sentFrames", sentFrames.sum());
+        stats.put("droppedFrames", droppedFrames.sum());
+        stats.put("rejectedConnections", rejectedConnections.sum());
+        stats.put("stalledConnections", stalledConnections.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(list -> list.forEach(connection -> connection.emitter.complete()));
+        senderPool.shutdownNow();
+    }
+
+    private final class Connection implements Runnable {
+        final String deviceCode;
+        final String channelId;
+        final SseEmitter emitter;
+        final ArrayDeque<Object> queue = new ArrayDeque<>();
+        boolean scheduled;
+        volatile boolean closed;
+        /** 正在写出的发送线程及开始时间，由this保护 */
+        Thread sender;
+        long sendStartNanos;
+        boolean stalled;
+
+        Connection(String deviceCode, String channelId, SseEmitter emitter) {
+            this.deviceCode = deviceCode;
+            this.channelId = channelId;
+            this.emitter = emitter;
+        }
+
+        List<SensorData> filter(List<SensorData> frame) {
+            if (channelId == null) {
+                return frame;
+            }
+            List<SensorData> samples = new ArrayList<>();
+            for (SensorData sample : frame) {
+                if (channelId.equals(sample.getChannelId())) {
+                    samples.add(sample);
+                }
+            }
+            return samples;
+        }
+
+        void enqueue(Object item) {
+            if (closed) {
+                return;
+            }
+            synchronized (this) {
+                if (queue.size() >= queueCapacity) {
+                    queue.pollFirst();
+                    droppedFrames.increment();
+                }
+                queue.addLast(item);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            senderPool.execute(this);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Object item;
+                boolean evicted;
+                synchronized (this) {
+                    item = queue.pollFirst();
+                    evicted = stalled;
+                    if (item == null || closed) {
+                        scheduled = false;
+                    } else {
+                        sender = Thread.currentThread();
+                        sendStartNanos = System.nanoTime();
+                    }
+                }
+                if (evicted) {
+                    // 卡住的写出最终完成后再结束响应
+                    emitter.completeWithError(new IOException("SSE send stalled"));
+                    return;
+                }
+                if (item == null || closed) {
+                    return;
+                }
+                try {
+                    if (item == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        emitter.send(SseEmitter.event().name("data").data(item, MediaType.APPLICATION_JSON));
+                        sentFrames.increment();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("SSE connection for {} closed: {}", deviceCode, e.getMessage());
+                    close();
+                    emitter.completeWithError(e);
+                    return;
+                } finally {
+                    synchronized (this) {
+                        sender = null;
+                        sendStartNanos = 0;
+                        // 清掉摘除时可能留下的中断标记，不影响线程池中的下一个任务
+                        Thread.interrupted();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 写出超时时摘除连接并中断发送线程；不在这里结束emitter，send持有emitter的锁
+         */
+        void evictIfStalled(long now, long timeoutNanos) {
+            synchronized (this) {
+                if (sender == null || now - sendStartNanos <= timeoutNanos || stalled) {
+                    return;
+                }
+                stalled = true;
+                sender.interrupt();
+            }
+            stalledConnections.increment();
+            log.debug("SSE connection for {} stalled for more than {} ms, evicting", deviceCode, sendTimeoutMillis);
+            close();
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                queue.clear();
+            }
+            connections.computeIfPresent(deviceCode, (k, list) -> {
+                list.remove(this);
+                return list.isEmpty() ? null : list;
+            });
+            subscriptionRegistry.removeSubscription(deviceCode, DeviceTopic.SSE);
+            connectionCount.decrementAndGet();
+        }
+    }
+}
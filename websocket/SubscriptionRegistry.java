@@ -0,0 +1,186 @@
+package com.iot.platform.websocket;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import com.iot.platform.enums.DeviceTopic;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * WebSocket订阅登记
+ * <p>
+ * 根据STOMP的SUBSCRIBE/UNSUBSCRIBE/DISCONNECT事件维护每台设备各推送主题的订阅数，
+ * 推送前以一次哈希查找判断是否有人在看，没有订阅者的设备不构造也不发送消息。
+ * 订阅变更很少，统一加锁处理；查询不加锁。
+ */
+@Slf4j
+@Component
+public class SubscriptionRegistry {
+
+    private static final String DEVICE_TOPIC_PREFIX = "/topic/device/";
+
+    /** 设备编码 -> 各主题订阅数（按DeviceTopic序号） */
+    private final ConcurrentHashMap<String, AtomicIntegerArray> deviceSubscriptions = new ConcurrentHashMap<>();
+    /** 会话 -> 订阅ID -> 目的地，UNSUBSCRIBE和DISCONNECT事件不带目的地，需要据此反查 */
+    private final Map<String, Map<String, String>> sessions = new HashMap<>();
+    /** 带通配符的设备主题订阅，存在时视为所有设备都有订阅者 */
+    private volatile int patternSubscriptions;
+    private int totalSubscriptions;
+
+    private final LongAdder skippedPushes = new LongAdder();
+
+    /**
+     * 该设备的主题当前是否有订阅者
+     */
+    public boolean hasSubscribers(String deviceCode, DeviceTopic topic) {
+        if (isSubscribed(deviceCode, topic)) {
+            return true;
+        }
+        skippedPushes.increment();
+        return false;
+    }
+
+    /**
+     * 实时数据（JSON、二进制帧或SSE）是否有订阅者
+     */
+    public boolean hasRealTimeSubscribers(String deviceCode) {
+        if (isSubscribed(deviceCode, DeviceTopic.DATA) || isSubscribed(deviceCode, DeviceTopic.DATA_BINARY)
+                || isSubscribed(deviceCode, DeviceTopic.SSE)) {
+            return true;
+        }
+        skippedPushes.increment();
+        return false;
+    }
+
+    /**
+     * 同hasSubscribers，但不计入跳过统计
+     */
+    public boolean isSubscribed(String deviceCode, DeviceTopic topic) {
+        if (patternSubscriptions > 0) {
+            return true;
+        }
+        AtomicIntegerArray counts = deviceSubscriptions.get(deviceCode);
+        return counts != null && counts.get(topic.ordinal()) > 0;
+    }
+
+    /**
+     * 本节点会话在看的设备
+     */
+    public Set<String> watchedDevices() {
+        return Set.copyOf(deviceSubscriptions.keySet());
+    }
+
+    public boolean hasPatternSubscriptions() {
+        return patternSubscriptions > 0;
+    }
+
+    /**
+     * 登记STOMP以外的订阅（如SSE连接）
+     */
+    public synchronized void addSubscription(String deviceCode, DeviceTopic topic) {
+        totalSubscriptions++;
+        updateCount(deviceCode, topic, 1);
+    }
+
+    public synchronized void removeSubscription(String deviceCode, DeviceTopic topic) {
+        totalSubscriptions--;
+        updateCount(deviceCode, topic, -1);
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String destination = accessor.getDestination();
+        if (sessionId == null || destination == null || !destination.startsWith(DEVICE_TOPIC_PREFIX)) {
+            return;
+        }
+        synchronized (this) {
+            String previous = sessions.computeIfAbsent(sessionId, k -> new HashMap<>())
+                    .put(accessor.getSubscriptionId(), destination);
+            if (previous != null) {
+                update(previous, -1);
+            }
+            update(destination, 1);
+        }
+        log.debug("Session {} subscribed to {}", sessionId, destination);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        synchronized (this) {
+            Map<String, String> subscriptions = sessions.get(accessor.getSessionId());
+            if (subscriptions == null) {
+                return;
+            }
+            String destination = subscriptions.remove(accessor.getSubscriptionId());
+            if (destination != null) {
+                update(destination, -1);
+            }
+            if (subscriptions.isEmpty()) {
+                sessions.remove(accessor.getSessionId());
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        synchronized (this) {
+            Map<String, String> subscriptions = sessions.remove(event.getSessionId());
+            if (subscriptions != null) {
+                subscriptions.values().forEach(destination -> update(destination, -1));
+            }
+        }
+    }
+
+    private void update(String destination, int delta) {
+        totalSubscriptions += delta;
+        String path = destination.substring(DEVICE_TOPIC_PREFIX.length());
+        int slash = path.lastIndexOf('/');
+        DeviceTopic topic = slash < 0 ? null : DeviceTopic.fromSuffix(path.substring(slash + 1));
+        String deviceCode = slash < 0 ? path : path.substring(0, slash);
+        if (destination.indexOf('*') >= 0 || destination.indexOf('{') >= 0) {
+            patternSubscriptions += delta;
+            return;
+        }
+        if (topic != null) {
+            updateCount(deviceCode, topic, delta);
+        }
+    }
+
+    private void updateCount(String deviceCode, DeviceTopic topic, int delta) {
+        AtomicIntegerArray counts = deviceSubscriptions.computeIfAbsent(deviceCode,
+                k -> new AtomicIntegerArray(DeviceTopic.values().length));
+        counts.addAndGet(topic.ordinal(), delta);
+        for (int i = 0; i < counts.length(); i++) {
+            if (counts.get(i) > 0) {
+                return;
+            }
+        }
+        deviceSubscriptions.remove(deviceCode);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("subscriptions", totalSubscriptions);
+        stats.put("watchedDevices", deviceSubscriptions.size());
+        stats.put("patternSubscriptions", patternSubscriptions);
+        stats.put("skippedPushes", skippedPushes.sum());
+        return stats;
+    }
+}
@@ -1,5 +1,7 @@
 package com.iot.platform.websocket.impl;
 
+import java.util.List;
+
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
@@ -7,6 +9,11 @@ import com.iot.platform.dto.ChartData;
 import com.iot.platform.dto.SignalDTO;
 import com.iot.platform.entity.AlarmRecord;
 import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.DeviceTopic;
+import com.iot.platform.websocket.ClusterRelay;
+import com.iot.platform.websocket.RealTimePushScheduler;
+import com.iot.platform.websocket.SseStreams;
+import com.iot.platform.websocket.SubscriptionRegistry;
 import com.iot.platform.websocket.WebSocketService;
 
 import lombok.RequiredArgsConstructor;
@@ -18,6 +25,10 @@ import lombok.extern.slf4j.Slf4j;
 public class WebSocketServiceImpl implements WebSocketService {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final RealTimePushScheduler realTimePushScheduler;
+    private final SubscriptionRegistry subscriptionRegistry;
+    private final ClusterRelay clusterRelay;
+    private final SseStreams sseStreams;
     
     private static final String DEVICE_DATA_TOPIC = "/topic/device/%s/data";
     private static final String DEVICE_ALARM_TOPIC = "/topic/device/%s/alarm";
@@ -26,6 +37,27 @@ public class WebSocketServiceImpl implements WebSocketService {
 
     @Override
     public void pushRealTimeData(String deviceCode, SensorData data) {
+        // 本节点和其他节点都没有浏览器订阅的设备直接跳过，推送开销只与在看的设备数有关
+        boolean local = subscriptionRegistry.hasRealTimeSubscribers(deviceCode);
+        if (!local && !clusterRelay.isWatchedRemotely(deviceCode)) {
+            return;
+        }
+        if (realTimePushScheduler.isEnabled()) {
+            // 按帧率合并推送，帧内容为样本数组或二进制帧，合并后的帧同时中继给其他节点
+            realTimePushScheduler.offer(deviceCode, data);
+            return;
+        }
+        relay(deviceCode, DeviceTopic.DATA, data);
+        if (!local) {
+            return;
+        }
+        List<SensorData> single = List.of(data);
+        sseStreams.deliver(deviceCode, single);
+        // 未合并推送时 data.bin 订阅者每个样本收到一帧
+        realTimePushScheduler.deliverBinary(deviceCode, single);
+        if (!subscriptionRegistry.isSubscribed(deviceCode, DeviceTopic.DATA)) {
+            return;
+        }
         String destination = String.format(DEVICE_DATA_TOPIC, deviceCode);
         try {
             messagingTemplate.convertAndSend(destination, data);
@@ -38,6 +70,10 @@ public class WebSocketServiceImpl implements WebSocketService {
     @Override
     public void pushAlarmNotification(AlarmRecord alarm) {
         String deviceCode = alarm.getDeviceId().toString();
+        relay(deviceCode, DeviceTopic.ALARM, alarm);
+        if (!subscriptionRegistry.hasSubscribers(deviceCode, DeviceTopic.ALARM)) {
+            return;
+        }
         String destination = String.format(DEVICE_ALARM_TOPIC, deviceCode);
         try {
             messagingTemplate.convertAndSend(destination, alarm);
@@ -49,6 +85,10 @@ public class WebSocketServiceImpl implements WebSocketService {
 
     @Override
     public void pushChartUpdate(String deviceCode, ChartData chartData) {
+        relay(deviceCode, DeviceTopic.CHART, chartData);
+        if (!subscriptionRegistry.hasSubscribers(deviceCode, DeviceTopic.CHART)) {
+            return;
+        }
         String destination = String.format(DEVICE_CHART_TOPIC, deviceCode);
         try {
             messagingTemplate.convertAndSend(destination, chartData);
@@ -60,6 +100,10 @@ public class WebSocketServiceImpl implements WebSocketService {
 
     @Override
     public void pushDeviceStatusChange(String deviceCode, boolean status) {
+        relay(deviceCode, DeviceTopic.STATUS, status);
+        if (!subscriptionRegistry.hasSubscribers(deviceCode, DeviceTopic.STATUS)) {
+            return;
+        }
         String destination = String.format(DEVICE_STATUS_TOPIC, deviceCode);
         try {
             messagingTemplate.convertAndSend(destination, status);
@@ -71,6 +115,10 @@ public class WebSocketServiceImpl implements WebSocketService {
 
     @Override
     public void pushSignalData(String deviceCode, SignalDTO signalData) {
+        relay(deviceCode, DeviceTopic.SIGNAL, signalData);
+        if (!subscriptionRegistry.hasSubscribers(deviceCode, DeviceTopic.SIGNAL)) {
+            return;
+        }
         String destination = String.format("/topic/device/%s/signal", deviceCode);
         try {
             messagingTemplate.convertAndSend(destination, signalData);
@@ -79,4 +127,13 @@ public class WebSocketServiceImpl implements WebSocketService {
             log.error("Failed to push signal data", e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 其他节点有会话在看该设备时经Redis中继
+     */
+    private void relay(String deviceCode, DeviceTopic topic, Object payload) {
+        if (clusterRelay.isWatchedRemotely(deviceCode)) {
+            clusterRelay.publish(deviceCode, topic, payload);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.iot.platform.writer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.WriteStrategy;
+
+/**
+ * sensor_data批量写入接口
+ */
+public interface SensorDataWriter {
+
+    /**
+     * 写入策略标识
+     */
+    WriteStrategy strategy();
+
+    /**
+     * 写入一批传感器数据，失败时抛出异常由调用方重试
+     * @param batch 待写入数据
+     */
+    void write(List<SensorData> batch) throws Exception;
+
+    /**
+     * 写入实现自身的统计信息
+     */
+    default Map<String, Object> getStats() {
+        return Collections.emptyMap();
+    }
+}
@@ -0,0 +1,111 @@
+package com.iot.platform.writer.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.WriteStrategy;
+import com.iot.platform.writer.SensorDataWriter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于JDBC批处理的写入实现
+ * <p>
+ * 整批数据复用同一条固定SQL的PreparedStatement，按块executeBatch后统一提交。
+ * 连接URL开启rewriteBatchedStatements=true时，驱动会把每块改写为多行INSERT发送。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JdbcBatchSensorDataWriter implements SensorDataWriter {
+
+    static final String INSERT_SQL = "INSERT INTO sensor_data "
+            + "(device_id, channel_id, data_value, data_unit, data_type, collect_time) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+
+    @Value("${batch.flush.jdbc-chunk-size:500}")
+    private int chunkSize;
+
+    private volatile Boolean rewriteChecked;
+
+    @Override
+    public WriteStrategy strategy() {
+        return WriteStrategy.JDBC_BATCH;
+    }
+
+    @Override
+    public void write(List<SensorData> batch) throws SQLException {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        boolean autoCommit = connection.getAutoCommit();
+        boolean committed = false;
+        try {
+            checkRewriteBatchedStatements(connection);
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+                int pending = 0;
+                for (SensorData data : batch) {
+                    bind(ps, data);
+                    ps.addBatch();
+                    if (++pending >= chunkSize) {
+                        ps.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    ps.executeBatch();
+                }
+            }
+            connection.commit();
+            committed = true;
+        } finally {
+            // 任何异常（包括绑定参数时的RuntimeException）都先回滚，
+            // 否则恢复autoCommit会提交已执行的分片，重试时重复写入
+            try {
+                if (!committed) {
+                    connection.rollback();
+                }
+                connection.setAutoCommit(autoCommit);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+    }
+
+    private void bind(PreparedStatement ps, SensorData data) throws SQLException {
+        ps.setInt(1, data.getDeviceId());
+        ps.setString(2, data.getChannelId());
+        ps.setDouble(3, data.getDataValue());
+        ps.setString(4, data.getDataUnit());
+        ps.setString(5, data.getDataType());
+        if (data.getCollectTime() != null) {
+            ps.setObject(6, data.getCollectTime());
+        } else {
+            ps.setNull(6, Types.TIMESTAMP);
+        }
+    }
+
+    private void checkRewriteBatchedStatements(Connection connection) throws SQLException {
+        if (rewriteChecked != null) {
+            return;
+        }
+        String url = connection.getMetaData().getURL();
+        boolean enabled = url != null && url.toLowerCase().contains("rewritebatchedstatements=true");
+        if (!enabled) {
+            log.warn("JDBC batch writer: rewriteBatchedStatements is not enabled on {}, "
+                    + "each batched row will be sent as a separate statement", url);
+        }
+        rewriteChecked = enabled;
+    }
+}
@@ -0,0 +1,29 @@
+package com.iot.platform.writer.impl;
+
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.WriteStrategy;
+import com.iot.platform.mapper.SensorDataMapper;
+import com.iot.platform.writer.SensorDataWriter;
+
+import lombok.RequiredArgsConstructor;
+
+@Component
+@RequiredArgsConstructor
+public class MapperSensorDataWriter implements SensorDataWriter {
+
+    private final SensorDataMapper sensorDataMapper;
+
+    @Override
+    public WriteStrategy strategy() {
+        return WriteStrategy.MAPPER_FOREACH;
+    }
+
+    @Override
+    public void write(List<SensorData> batch) {
+        sensorDataMapper.insertBatch(batch);
+    }
+}
@@ -0,0 +1,51 @@
+package com.iot.platform.writer.impl;
+
+import java.util.List;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.iot.platform.entity.SensorData;
+import com.iot.platform.enums.WriteStrategy;
+import com.iot.platform.mapper.SensorDataMapper;
+import com.iot.platform.writer.SensorDataWriter;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 基于MyBatis BATCH执行器的写入实现：单行INSERT语句只解析一次，逐条加入批处理
+ */
+@Component
+@RequiredArgsConstructor
+public class MyBatisBatchSensorDataWriter implements SensorDataWriter {
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    @Value("${batch.flush.jdbc-chunk-size:500}")
+    private int chunkSize;
+
+    @Override
+    public WriteStrategy strategy() {
+        return WriteStrategy.MYBATIS_BATCH;
+    }
+
+    @Override
+    public void write(List<SensorData> batch) {
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            SensorDataMapper mapper = session.getMapper(SensorDataMapper.class);
+            int pending = 0;
+            for (SensorData data : batch) {
+                mapper.insertOne(data);
+                if (++pending >= chunkSize) {
+                    session.flushStatements();
+                    pending = 0;
+                }
+            }
+            session.flushStatements();
+            session.commit();
+        }
+    }
+}